@@ -0,0 +1,50 @@
+package robot;
+
+/**
+ * Geometry class Static helpers for the angle math used by the controller and
+ * the path code. All methods work on primitives so they can be used in the
+ * control loop without creating objects.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class Geometry {
+
+	private Geometry() {
+	}
+
+	/**
+	 * Calculates the heading of an orientation quaternion, the same angle as
+	 * LocalizationResponse.getHeadingAngle gives. The x-axis rotated by the
+	 * quaternion is (w^2 + x^2 - y^2 - z^2, 2(xy + wz), ...) so the heading
+	 * follows directly without building any Quaternion objects.
+	 *
+	 * @param w
+	 *            quaternion element data
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return heading in radians in the range -PI to PI
+	 */
+	public static double heading(double w, double x, double y, double z) {
+		return Math.atan2(2 * (x * y + w * z), w * w + x * x - y * y - z * z);
+	}
+
+	/**
+	 * Calculates the difference between two angles so that it can also be
+	 * used to tell direction.
+	 *
+	 * @param firstAngle
+	 *            angle in degrees
+	 * @param secondAngle
+	 *            angle in degrees
+	 * @return angle difference in the range -180 < angle < 180
+	 */
+	public static double angleDiff(double firstAngle, double secondAngle) {
+		double diffAngle = (firstAngle - secondAngle) + 180;
+		diffAngle = (diffAngle / 360.0);
+		diffAngle = ((diffAngle - Math.floor(diffAngle)) * 360.0) - 180;
+		return diffAngle;
+	}
+}
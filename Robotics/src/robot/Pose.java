@@ -0,0 +1,113 @@
+package robot;
+
+import suppliedFiles.LocalizationResponse;
+
+/**
+ * Pose class A mutable robot pose that is refilled every tick instead of
+ * creating Position objects and arrays for each new localization.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Pose {
+
+	private double x;
+	private double y;
+	private double heading;
+	private long time;
+
+	/**
+	 * Sets all values of the pose.
+	 *
+	 * @param x
+	 *            x coordinate
+	 * @param y
+	 *            y coordinate
+	 * @param heading
+	 *            heading in radians
+	 * @param time
+	 *            time of the pose in nanoseconds
+	 */
+	public void set(double x, double y, double heading, long time) {
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		this.time = time;
+	}
+
+	/**
+	 * Sets the pose from a localization response.
+	 *
+	 * @param lr
+	 *            the localization response
+	 * @param time
+	 *            time the response was sampled in nanoseconds
+	 */
+	public void set(LocalizationResponse lr, long time) {
+		set(lr.getX(), lr.getY(), lr.getHeadingAngle(), time);
+	}
+
+	/**
+	 * Copies another pose.
+	 *
+	 * @param pose
+	 *            the pose to copy
+	 */
+	public void set(Pose pose) {
+		set(pose.x, pose.y, pose.heading, pose.time);
+	}
+
+	/**
+	 * @return x coordinate
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * @return y coordinate
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * @return heading in radians
+	 */
+	public double getHeading() {
+		return heading;
+	}
+
+	/**
+	 * @return time of the pose in nanoseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @param targetX
+	 *            x coordinate of the target
+	 * @param targetY
+	 *            y coordinate of the target
+	 * @return distance from the pose to the target
+	 */
+	public double distanceTo(double targetX, double targetY) {
+		double dx = targetX - x;
+		double dy = targetY - y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * @param targetX
+	 *            x coordinate of the target
+	 * @param targetY
+	 *            y coordinate of the target
+	 * @return bearing from the pose to the target in radians, measured the
+	 *         same way as Position.getBearingTo
+	 */
+	public double bearingTo(double targetX, double targetY) {
+		return Math.atan2(targetY - y, targetX - x);
+	}
+}
@@ -1,41 +1,161 @@
 package robot;
 
 import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.TypeFactory;
+import robot.comm.DriveChannel;
+import robot.comm.DriveCommand;
+import robot.comm.RobotLink;
+import robot.comm.SensorFetcher;
+import robot.comm.SensorSnapshot;
+import robot.control.Clock;
+import robot.control.FixedRateScheduler;
+import robot.control.FixedRateScheduler.OverrunPolicy;
+import robot.control.SystemClock;
+import robot.estimate.LikelihoodField;
+import robot.estimate.ParticleFilter;
+import robot.estimate.PosePredictor;
+import robot.estimate.ScanLocalizer;
+import robot.laser.LaserGeometry;
+import robot.laser.ScanProcessor;
+import robot.laser.Sector;
+import robot.map.MapBuilder;
+import robot.map.OccupancyGrid;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+import robot.path.Path;
+import robot.path.PathCache;
+import robot.path.PathFilter;
+import robot.path.PathLoader;
+import robot.path.SpeedProfile;
+import robot.path.WaypointTree;
+import robot.plan.LocalPlanner;
+import robot.sim.ObstacleMap;
+import robot.sim.Simulator;
+import robot.sim.SimulatorLink;
+import robot.sim.SimulatorServer;
+import robot.track.PathTracker;
+import robot.track.PurePursuit;
+import robot.track.Stanley;
 import suppliedFiles.*;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * RobotController class This class controls how the robot moves along a given
- * path of coordinates.
+ * path of coordinates. The control loop runs at a fixed rate so every
+ * command is applied for the same length of time.
  *
  * @author Magnus Stenman, dv12msn
  * @author Christer Jakobsson, dv12cjn
  * @version 2014-09-25
  */
-public class RobotController {
+public class RobotController implements FixedRateScheduler.Task {
+
+	/**
+	 * How the robot follows the path.
+	 */
+	public enum Tracking {
+		/**
+		 * Steer towards a carrotpoint picked by carrotPlanning.
+		 */
+		CARROT,
+		/**
+		 * Pure pursuit of a lookahead point that moves further ahead with
+		 * the speed.
+		 */
+		PURE_PURSUIT,
+		/**
+		 * The Stanley law on heading and cross-track error.
+		 */
+		STANLEY
+	}
 
-	private static final double SPEED_CONSTANT = -0.000123456790123;
 	private static final int DIST_TO_GOAL = 1;
-	private static final double MIN_DIST_TO_TARGET = 0.8;
 	private static final double MAX_DIST_TO_NEXT_CP = 0.5;
-	private static final double MAX_ANGLE_TO_NEXT_CP = 50;
 	private static final double AVOIDANCE_TURN_SPEED = 1.4;
-	private static final double LASER_DIST = 0.7;
+	private static final double AVOIDANCE_SECTOR = Math.toRadians(15);
+	private static final int MEDIAN_WINDOW = 3;
+	private static final double MIN_ECHO = 0.05;
+	private static final double MAX_ECHO = 20;
 	private static final double AVOIDANCE_SPEED = 0.2;
-	private int mapListIndex;
-	private List<Map<String, Object>> mapList;
-	private final RobotCommunication robotComm;
-	private Position goalPos;
+	private static final double REACQUIRE_DIST = 1.5;
+	private static final int REACQUIRE_BEHIND = 20;
+	private static final int REACQUIRE_AHEAD = 500;
+	public static final double DEFAULT_RATE = 20;
+	public static final double MAP_RESOLUTION = 0.05;
+	private static final double PLANNER_WINDOW = 20;
+	private static final int PLANNER_BUDGET = 5000;
+	private static final double ROBOT_RADIUS = 0.3;
+	private static final double INFLATION = 0.7;
+	private static final double REJOIN_DIST = 2;
+	private static final double DETOUR_LOOKAHEAD = 0.5;
+	private static final double STOP_DIST = 0.35;
+	private static final double DETOUR_SPEED = 1;
+	private static final double MAX_SPEED = 1.5;
+	private static final double MAX_LATERAL_ACCELERATION = 1;
+	private static final double MAX_DECELERATION = 1;
+	private static final double PATH_MIN_SPACING = 0.01;
+	private static final double PATH_TOLERANCE = 0.03;
+	private static final double PATH_SPACING = 0.1;
+	private static final double MAX_TURN_SPEED = 2;
+	private static final double MIN_LOOKAHEAD = 0.4;
+	private static final double LOOKAHEAD_TIME = 0.5;
+	private static final double MAX_LOOKAHEAD = 1.2;
+	private static final double STANLEY_GAIN = 1.5;
+	private static final double STANLEY_SOFTENING = 0.3;
+	private static final double STANLEY_HEADING_GAIN = 2;
+	private static final int PREDICTION_HISTORY = 32;
+	private static final long ACTUATION_DELAY = 0;
+	private static final long MAX_PREDICTION = 500000000L;
+	private static final double DRIVE_TOLERANCE = 0.001;
+	private static final long DRIVE_KEEP_ALIVE = 500000000L;
+	public static final int PARTICLES = 5000;
+	public static final double FIELD_RESOLUTION = 0.05;
+	public static final double FIELD_SIGMA = 0.1;
+	private static final int BEAM_STRIDE = 5;
+	private static final long PARTICLE_SEED = 1;
+	private static volatile PathCache pathCache;
+	private int pathIndex;
+	private final String filePath;
+	private double pathSpacing;
+	private Path path;
+	private SpeedProfile profile;
+	private PathTracker tracker;
+	private Tuning tuning = Tuning.DEFAULT;
+	private WaypointTree waypoints;
+	private boolean avoiding;
+	private boolean detoured;
+	private int target;
+	private boolean finished;
+	private final RobotLink robotComm;
+	private final SensorFetcher sensors;
+	private final FixedRateScheduler scheduler;
+	private final Clock clock;
+	private final LocalizationResponse robotLR;
+	private final SensorSnapshot snapshot;
+	private final Pose robotPose;
+	private final Pose predictedPose = new Pose();
+	private PosePredictor predictor;
+	private DriveChannel drive;
+	private ScanLocalizer localizer;
+	private ForkJoinPool localizerPool;
+	private Histogram puts;
+	private Histogram carrotIterations;
+	private final DriveCommand command;
+	private ScanProcessor scan;
+	private Sector front;
+	private MapBuilder mapper;
+	private LocalPlanner planner;
+	private boolean detouring;
+	private int rejoin;
+	private final double[] detourPoint = new double[2];
+	private double goalX;
+	private double goalY;
 
 	/**
-	 * Constructor for RobotController.
+	 * Constructor for RobotController. The control loop runs at DEFAULT_RATE
+	 * and skips periods on overrun.
 	 *
 	 * @param host
 	 *            communication IP-address or URL to MRDS
@@ -45,137 +165,531 @@ public class RobotController {
 	 *            path to the JSON-file
 	 */
 	public RobotController(String host, int port, String filePath) {
-		robotComm = new RobotCommunication(host, port);
+		this(host, port, filePath, DEFAULT_RATE, OverrunPolicy.SKIP);
+	}
 
+	/**
+	 * Constructor for RobotController.
+	 *
+	 * @param host
+	 *            communication IP-address or URL to MRDS
+	 * @param port
+	 *            communication port to MRDS
+	 * @param filePath
+	 *            path to the JSON-file
+	 * @param rate
+	 *            control loop rate in Hz
+	 * @param policy
+	 *            what to do when a tick misses its deadline
+	 */
+	public RobotController(String host, int port, String filePath,
+			double rate, OverrunPolicy policy) {
+		this(new RobotCommunication(host, port), filePath, rate, policy);
+	}
+
+	/**
+	 * Constructor for RobotController running on any link to the robot, for
+	 * example an in-process simulator.
+	 *
+	 * @param link
+	 *            the link to the robot
+	 * @param filePath
+	 *            path to the JSON-file
+	 * @param rate
+	 *            control loop rate in Hz
+	 * @param policy
+	 *            what to do when a tick misses its deadline
+	 */
+	public RobotController(RobotLink link, String filePath, double rate,
+			OverrunPolicy policy) {
+		this(link, SystemClock.INSTANCE, filePath, rate, policy);
+	}
+
+	/**
+	 * Constructor for RobotController on any link and clock, for example a
+	 * replay on a virtual clock.
+	 *
+	 * @param link
+	 *            the link to the robot
+	 * @param clock
+	 *            the clock the control loop runs on
+	 * @param filePath
+	 *            path to the JSON-file
+	 * @param rate
+	 *            control loop rate in Hz
+	 * @param policy
+	 *            what to do when a tick misses its deadline
+	 */
+	public RobotController(RobotLink link, Clock clock, String filePath,
+			double rate, OverrunPolicy policy) {
+		robotComm = link;
+		sensors = new SensorFetcher(robotComm, clock);
+		scheduler = new FixedRateScheduler(clock, rate, policy);
+		this.clock = clock;
+		robotLR = new LocalizationResponse();
+		snapshot = new SensorSnapshot(robotLR, new LaserEchoesResponse());
+		robotPose = new Pose();
+		command = new DriveCommand();
+		setLaser(LaserGeometry.ROBULAB, MEDIAN_WINDOW);
+		this.filePath = filePath;
+		loadPath(PATH_SPACING);
+	}
+
+	/**
+	 * Reads the path and everything that is built from it.
+	 *
+	 * @param spacing
+	 *            distance between the resampled waypoints, 0 to leave the
+	 *            path unsmoothed
+	 */
+	private void loadPath(double spacing) {
+		pathSpacing = spacing;
 		try {
-			mapList = readFile(filePath);
-			LocalizationResponse goalLR = new LocalizationResponse();
-			goalLR.setData(mapList.get(mapList.size() - 1));
-			goalPos = new Position(goalLR.getPosition());
+			path = readFile(filePath, spacing);
+			profile = new SpeedProfile(path, MAX_SPEED,
+					MAX_LATERAL_ACCELERATION, MAX_DECELERATION,
+					tuning.getMinDistToTarget());
+			waypoints = new WaypointTree(path);
+			int goal = path.size() - 1;
+			goalX = path.getX(goal);
+			goalY = path.getY(goal);
 		} catch (JsonParseException e) {
 			System.err.println(e.getMessage());
-		} catch (JsonMappingException e) {
-			System.err.println(e.getMessage());
 		} catch (IOException e) {
 			System.err.println(e.getMessage());
 		}
 	}
 
 	/**
-	 * Run method which in a do-while loop calculates the next move depending on
-	 * the given path and executes it. If the while-loop completes the robot
-	 * will stop as it has reached the goal.
+	 * Run method which lets the scheduler call tick at a fixed rate until the
+	 * robot has reached the goal or the scheduler stops the run because of an
+	 * overrun. The robot is stopped in both cases.
 	 *
 	 * @throws Exception
 	 */
 	public void run() throws Exception {
-		mapListIndex = 0;
-		do {
-			LocalizationResponse robotLR = new LocalizationResponse();
-			robotComm.getResponse(robotLR);
-			LocalizationResponse nextLR = new LocalizationResponse();
-			nextLR.setData(mapList.get(mapListIndex));
+		start();
+		try {
+			if (!scheduler.run(this)) {
+				System.err.println("Control loop stopped after overrun: "
+						+ scheduler.summary());
+			}
+		} finally {
+			shutdown();
+		}
+	}
 
-			Position nextCP = carrotPlanning(robotLR, nextLR);
+	/**
+	 * Start resets the controller to the beginning of the path. Run calls it,
+	 * it only has to be called when tick is driven by something else, such
+	 * as a FleetController.
+	 */
+	public void start() {
+		pathIndex = 0;
+		target = -1;
+		detoured = false;
+		detouring = false;
+		finished = false;
+		if (tracker != null) {
+			tracker.reset();
+		}
+		if (predictor != null) {
+			predictor.reset();
+		}
+		if (localizer != null) {
+			localizer.reset();
+		}
+	}
 
-			if (nextCP != null) {
-				calculateAndMove(robotLR, nextCP);
+	/**
+	 * Shutdown stops the robot and releases the link, the sensor thread, the
+	 * map builder and the pool of the localization if the controller made
+	 * it. Everything is released even if the stop command fails.
+	 *
+	 * @throws Exception
+	 *             if the stop command could not be sent
+	 */
+	public void shutdown() throws Exception {
+		try {
+			command.set(0, 0);
+			if (drive != null) {
+				drive.stop();
 			} else {
-				mapListIndex = mapList.size() + 1;
+				robotComm.putRequest(command);
+			}
+		} finally {
+			if (drive != null) {
+				drive.shutdown();
+			}
+			sensors.shutdown();
+			robotComm.close();
+			if (mapper != null) {
+				mapper.shutdown();
+			}
+			if (localizerPool != null) {
+				localizerPool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Tick makes one move of the robot. It fetches the pose and the laser
+	 * scan, picks a new carrotpoint with carrotPlanning if there is none and
+	 * steers towards it. The carrotpoint is kept until the robot is within
+	 * the target distance of the tuning or, if the robot has had to avoid
+	 * an obstacle, until the way is clear so the path can be re-acquired.
+	 * With mapping on, an obstacle in the way starts a detour planned around
+	 * it instead, which is followed until the robot is back on the path. The
+	 * detour is planned a little every tick, and until it is ready the robot
+	 * keeps turning away as without mapping.
+	 * With a tracking other than CARROT the path tracker steers instead of
+	 * the carrotpoint. With localization on, the measured pose is first
+	 * corrected against the map with the scan. With prediction on, all of
+	 * this is done from the pose predicted for when the command is applied,
+	 * while the map is built from the measured pose the scan was taken at.
+	 * The same pose, snapshot and command objects are used for every tick.
+	 *
+	 * @return false when the robot has reached the goal
+	 * @throws Exception
+	 */
+	@Override
+	public boolean tick() throws Exception {
+		if (finished) {
+			return false;
+		}
+		sensors.fetch(snapshot);
+		robotPose.set(robotLR, snapshot.getLocalizationTime());
+		if (localizer != null) {
+			localizer.correct(robotPose, snapshot.getLaser());
+		}
+		Pose pose = robotPose;
+		if (predictor != null) {
+			predictor.update(robotPose, robotLR.getTimestamp());
+			pose = predictor.predict(robotPose, clock.nanoTime(),
+					predictedPose);
+		}
+
+		if (detouring) {
+			detouring = followDetour(pose, snapshot.getLaser(), command);
+		}
+		double targetDistance = Double.POSITIVE_INFINITY;
+		if (!onDetour() && tracker != null) {
+			track(pose, snapshot.getLaser(), command);
+		} else if (!onDetour()) {
+			if (target < 0) {
+				reacquirePath(pose);
+				target = carrotPlanning(pose);
+				if (target < 0) {
+					finished = true;
+					return false;
+				}
 			}
 
-			mapListIndex++;
-			if (hasReachedGoal(new Position(robotLR.getPosition()))) {
-				mapListIndex = mapList.size() + 1;
+			double targetX = path.getX(target);
+			double targetY = path.getY(target);
+			targetDistance = pose.distanceTo(targetX, targetY);
+
+			steer(pose, targetX, targetY, profile.getSpeed(target),
+					snapshot.getLaser(), command);
+		}
+		if (!detouring && avoiding && planner != null
+				&& startDetour(pose) && planner.isReady()) {
+			detouring = followDetour(pose, snapshot.getLaser(), command);
+		}
+
+		long sendStart = clock.nanoTime();
+		if (drive != null) {
+			drive.publish(command);
+		} else {
+			robotComm.putRequest(command);
+		}
+		long sendEnd = clock.nanoTime();
+		if (predictor != null) {
+			// A published command waits half a send on average for the one
+			// in progress and then takes half a round trip to arrive.
+			predictor.sent(command, sendStart, drive == null ? sendEnd
+					: sendEnd + 2 * drive.getRoundTrip());
+		}
+		if (puts != null) {
+			puts.record(sendEnd - sendStart);
+		}
+
+		if (mapper != null) {
+			mapper.submit(robotPose, scan);
+		}
+
+		if (onDetour()) {
+			return true;
+		}
+		if (tracker != null) {
+			pathIndex = tracker.getIndex();
+			finished = hasReachedGoal(pose);
+		} else if (avoiding) {
+			detoured = true;
+		} else if (targetDistance <= tuning.getMinDistToTarget()
+				|| detoured) {
+			detoured = false;
+			target = -1;
+			pathIndex++;
+			finished = hasReachedGoal(pose)
+					|| path.size() <= pathIndex;
+		}
+		return !finished;
+	}
+
+	/**
+	 * StartDetour looks for a waypoint at least REJOIN_DIST ahead of the
+	 * robot where it fits, and starts planning a detour to it in a window of
+	 * the map around the robot.
+	 *
+	 * @param robotPose
+	 *            current pose of the robot
+	 * @return true if a detour was found or is still being planned
+	 */
+	private boolean startDetour(Pose robotPose) {
+		double x = robotPose.getX();
+		double y = robotPose.getY();
+		planner.center(x, y);
+		for (int i = Math.max(target, pathIndex); i < path.size(); i++) {
+			double wx = path.getX(i);
+			double wy = path.getY(i);
+			if (!planner.contains(wx, wy)) {
+				break;
 			}
-		} while (mapList.size() > mapListIndex);
+			if (robotPose.distanceTo(wx, wy) >= REJOIN_DIST
+					&& planner.isFree(wx, wy)) {
+				if (!planner.plan(x, y, wx, wy)) {
+					return false;
+				}
+				rejoin = i;
+				detouring = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * FollowDetour repairs the detour with what has been mapped since the
+	 * last tick and steers towards a point DETOUR_LOOKAHEAD along it. A
+	 * detour that is still being planned is only planned further, and the
+	 * command is left for the tick to fill in. When the robot is close to
+	 * the waypoint where the detour joins the path, the path is taken up
+	 * again from there.
+	 *
+	 * @param robotPose
+	 *            current pose of the robot
+	 * @param ler
+	 *            the laser echoes of the current tick
+	 * @param command
+	 *            command to fill in with the move
+	 * @return false if the detour is over or could not be kept up, in which
+	 *         case the command is left as it was
+	 */
+	private boolean followDetour(Pose robotPose, LaserEchoesResponse ler,
+			DriveCommand command) {
+		double x = robotPose.getX();
+		double y = robotPose.getY();
+		if (robotPose.distanceTo(path.getX(rejoin), path.getY(rejoin))
+				<= tuning.getMinDistToTarget()) {
+			pathIndex = rejoin;
+			target = -1;
+			detoured = false;
+			if (tracker != null) {
+				tracker.seek(rejoin);
+			}
+			return false;
+		}
+		if (!planner.replan(x, y)) {
+			return false;
+		}
+		if (!planner.isReady()) {
+			return true;
+		}
+		if (!planner.lookahead(x, y, DETOUR_LOOKAHEAD, detourPoint)) {
+			return false;
+		}
+		steer(robotPose, detourPoint[0], detourPoint[1], DETOUR_SPEED, ler,
+				command);
+		return true;
+	}
 
-		DifferentialDriveRequest ddr = new DifferentialDriveRequest();
-		ddr.setLinearSpeed(0);
-		ddr.setAngularSpeed(0);
-		robotComm.putRequest(ddr);
+	/**
+	 * ReacquirePath checks if the robot has got further than REACQUIRE_DIST
+	 * from the waypoint at the current path index, for example after avoiding
+	 * an obstacle, and if so moves the index to the closest waypoint. The
+	 * search is limited to a window around the current index so the robot
+	 * does not jump to another part of the path that passes close by.
+	 *
+	 * @param robotPose
+	 *            current pose of the robot
+	 */
+	private void reacquirePath(Pose robotPose) {
+		double x = robotPose.getX();
+		double y = robotPose.getY();
+		if (path.distanceTo(pathIndex, x, y) <= REACQUIRE_DIST) {
+			return;
+		}
+		int nearest = waypoints.nearest(x, y, pathIndex - REACQUIRE_BEHIND,
+				pathIndex + REACQUIRE_AHEAD, Double.POSITIVE_INFINITY);
+		if (nearest >= 0) {
+			pathIndex = nearest;
+		}
 	}
 
 	/**
 	 * CarrotPlanning calculates where the next target point should be by using
-	 * keepSearching method and returns that target position if it exist, else
-	 * no new targets exists and it will return null.
-	 *
-	 * @param robotLR
-	 *            LocalizationResponse for the robot
-	 * @param nextLR
-	 *            LocalizationResponse for the next position on the path
-	 * @return the new target position or null if none exists
-	 */
-	private Position carrotPlanning(LocalizationResponse robotLR,
-			LocalizationResponse nextLR) {
-		Position currentCP = new Position(nextLR.getPosition());
-		LocalizationResponse tempLR = new LocalizationResponse();
-
-		if (mapList.size() > mapListIndex + 1) {
-			tempLR.setData(mapList.get(mapListIndex + 1));
-			Position nextCP = new Position(tempLR.getPosition());
-
-			while (keepSearching(robotLR, currentCP, nextCP)) {
-				mapListIndex++;
-				tempLR.setData(mapList.get(mapListIndex));
-				nextCP = new Position(tempLR.getPosition());
+	 * keepSearching method and returns the path index of that target if it
+	 * exist, else no new targets exists and it will return -1.
+	 *
+	 * @param robotPose
+	 *            current pose of the robot
+	 * @return path index of the new target or -1 if none exists
+	 */
+	private int carrotPlanning(Pose robotPose) {
+		double robotX = robotPose.getX();
+		double robotY = robotPose.getY();
+		int currentCP = pathIndex;
+
+		if (path.size() > pathIndex + 1) {
+			int nextCP = pathIndex + 1;
+
+			int iterations = 0;
+			while (keepSearching(robotX, robotY, currentCP, nextCP)) {
+				pathIndex++;
+				nextCP = pathIndex;
+				iterations++;
+			}
+			if (carrotIterations != null) {
+				carrotIterations.record(iterations);
 			}
 			return nextCP;
 		}
-		return null;
+		return -1;
 	}
 
 	/**
 	 * KeepSearching checks if the suggested next carrotpoint is in the set max
 	 * distance and angle from the current carrotpoint and if so, returns true.
 	 *
-	 * @param robotLR
-	 *            the robots LocalizationResponse
+	 * @param robotX
+	 *            the robots x coordinate
+	 * @param robotY
+	 *            the robots y coordinate
 	 * @param currentCP
-	 *            the current carrotpoint
+	 *            path index of the current carrotpoint
 	 * @param nextCP
-	 *            the suggested next carrotpoint
+	 *            path index of the suggested next carrotpoint
 	 * @return true if robot should keep searching for a carrotpoint or false if
 	 *         the suggested carrotpoint is invalid
 	 */
-	private boolean keepSearching(LocalizationResponse robotLR,
-			Position currentCP, Position nextCP) {
-		Position robotPos = new Position(robotLR.getPosition());
-
-		double currentCPDistance = robotPos.getDistanceTo(currentCP);
-		double nextCPDistance = robotPos.getDistanceTo(nextCP);
+	private boolean keepSearching(double robotX, double robotY, int currentCP,
+			int nextCP) {
+		double currentCPDistance = path.distanceTo(currentCP, robotX, robotY);
+		double nextCPDistance = path.distanceTo(nextCP, robotX, robotY);
 
-		double currentCPAngle = robotPos.getBearingTo(currentCP);
-		double nextCPAngle = robotPos.getBearingTo(nextCP);
+		double currentCPAngle = path.bearingTo(currentCP, robotX, robotY);
+		double nextCPAngle = path.bearingTo(nextCP, robotX, robotY);
 
-		if (mapList.size() <= mapListIndex + 1) {
+		if (path.size() <= pathIndex + 1) {
 			return false;
 		}
 
 		return (Math.abs(currentCPDistance - nextCPDistance)
 					< MAX_DIST_TO_NEXT_CP)
-				&& (Math.abs(calculateAngleDiff(currentCPAngle, nextCPAngle))
-						< MAX_ANGLE_TO_NEXT_CP);
+				&& (Math.abs(Geometry.angleDiff(currentCPAngle, nextCPAngle))
+						< tuning.getMaxAngleToNextCP());
 	}
 
 	/**
-	 * ReadFile reads the file to a List of Map objects using Typefactory to
-	 * construct the collection while parsing from JSON with ObjectMapper.
+	 * ReadFile reads the file to a Path with PathLoader. A binary path file is
+	 * memory mapped, a JSON file is streamed keeping only the positions,
+	 * headings and timestamps. The path is then cleaned up with PathFilter:
+	 * poses recorded while standing still are dropped, the rest is simplified
+	 * to within PATH_TOLERANCE and resampled every PATH_SPACING along a
+	 * spline. If a PathCache has been set with setPathCache, the result is
+	 * kept in it, so the next read of the same file with the same settings
+	 * only maps the cached path.
 	 *
 	 * @param filePath
-	 *            path to the JSON path object
-	 * @return List<Map<String,Object>>
+	 *            path to the binary or JSON path file
+	 * @return Path
 	 * @throws JsonParseException
-	 * @throws JsonMappingException
 	 * @throws IOException
 	 */
-	private List<Map<String, Object>> readFile(String filePath)
-			throws JsonParseException, JsonMappingException, IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		File file = new File(filePath);
-		return mapper.readValue(file, TypeFactory.defaultInstance()
-				.constructCollectionType(List.class, Map.class));
+	public static Path readFile(String filePath) throws JsonParseException,
+			IOException {
+		return readFile(filePath, PATH_SPACING);
+	}
+
+	/**
+	 * ReadFile reads the file to a Path as above, resampled at a given
+	 * spacing along the spline.
+	 *
+	 * @param filePath
+	 *            path to the binary or JSON path file
+	 * @param spacing
+	 *            distance between the resampled waypoints, 0 to leave the
+	 *            simplified path as it is
+	 * @return Path
+	 * @throws JsonParseException
+	 * @throws IOException
+	 */
+	public static Path readFile(String filePath, final double spacing)
+			throws JsonParseException, IOException {
+		PathCache cache = pathCache;
+		if (cache == null) {
+			return PathFilter.preprocess(PathLoader.read(new File(filePath)),
+					PATH_MIN_SPACING, PATH_TOLERANCE, spacing);
+		}
+		return cache.read(new File(filePath), "PathFilter.preprocess "
+				+ PATH_MIN_SPACING + " " + PATH_TOLERANCE + " " + spacing,
+				new PathCache.Preprocessor() {
+					@Override
+					public Path preprocess(Path path) {
+						return PathFilter.preprocess(path, PATH_MIN_SPACING,
+								PATH_TOLERANCE, spacing);
+					}
+				});
+	}
+
+	/**
+	 * SetPathCache makes readFile keep the paths it reads in a cache. There
+	 * is none by default, so reading a path writes no files. Main sets the
+	 * default cache of PathCache.
+	 *
+	 * @param cache
+	 *            the cache, or null to read every path from its file
+	 */
+	public static void setPathCache(PathCache cache) {
+		pathCache = cache;
+	}
+
+	/**
+	 * CarrotPass runs carrotPlanning over the whole path the way tick does
+	 * when the robot follows the path exactly: the robot is placed on the
+	 * waypoint at the path index, the next carrotpoint is picked and the
+	 * robot moves on to the waypoint after the one the search stopped at.
+	 * The controller is left at the start of the path again. It is meant
+	 * for benchmarks.
+	 *
+	 * @return sum of the path indices of the carrotpoints picked
+	 */
+	public long carrotPass() {
+		long sum = 0;
+		pathIndex = 0;
+		while (pathIndex < path.size()) {
+			robotPose.set(path.getX(pathIndex), path.getY(pathIndex),
+					path.getHeading(pathIndex), 0);
+			int next = carrotPlanning(robotPose);
+			if (next < 0) {
+				break;
+			}
+			sum += next;
+			pathIndex++;
+		}
+		start();
+		return sum;
 	}
 
 	/**
@@ -184,62 +698,75 @@ public class RobotController {
 	 * 80% of the path has passed as the start and goal can be at the same
 	 * position.
 	 *
-	 * @param robotPos
-	 *            current position of the robot
+	 * @param robotPose
+	 *            current pose of the robot
 	 * @return true if goal has been reached
 	 */
-	private boolean hasReachedGoal(Position robotPos) {
-		return robotPos.getDistanceTo(goalPos) <= DIST_TO_GOAL
-				&& (mapListIndex > mapList.size() * 0.8);
+	private boolean hasReachedGoal(Pose robotPose) {
+		return robotPose.distanceTo(goalX, goalY) <= DIST_TO_GOAL
+				&& (pathIndex > path.size() * 0.8);
 	}
 
 	/**
-	 * CalculateAndMove gets called for every new move the robot will make. It
-	 * uses a while-loop to move closer to the carrotpoint until
-	 * MIN_DIST_TO_TARGET is met. A quadratic equation is used for speed and
-	 * depends on current angle between the robots heading and the target.
-	 * Before the robot makes its move it calls collisionDetection.
+	 * Track lets the path tracker fill in the move and then gives
+	 * collisionDetection the chance to alter it, the same way steer does.
 	 *
-	 * @param robotLR
-	 *            the robots LocalizationResponse
-	 * @param nextCP
-	 *            the next carrotpoint to aim for
-	 * @throws Exception
+	 * @param robotPose
+	 *            current pose of the robot
+	 * @param ler
+	 *            the laser echoes of the current tick
+	 * @param command
+	 *            command to fill in with the move
 	 */
-	private void calculateAndMove(LocalizationResponse robotLR, Position nextCP)
-			throws Exception {
-		double targetDistance = 1;
+	private void track(Pose robotPose, LaserEchoesResponse ler,
+			DriveCommand command) {
+		tracker.steer(robotPose, command);
+		collisionDetection(command, -command.getAngularSpeed(), ler);
+	}
+
+	/**
+	 * Steer calculates the move towards a target. The speed is the lowest of
+	 * the given limit, which comes from the speed profile of the path, and a
+	 * quadratic equation of the angle between the robots heading and the
+	 * target, so the robot slows down both in curves and when it is not
+	 * facing the target. Before the move is returned collisionDetection gets to
+	 * alter it. Nothing is allocated, so this can run every tick without
+	 * creating garbage.
+	 *
+	 * @param robotPose
+	 *            current pose of the robot
+	 * @param targetX
+	 *            x coordinate of the target
+	 * @param targetY
+	 *            y coordinate of the target
+	 * @param maxSpeed
+	 *            highest speed allowed
+	 * @param ler
+	 *            the laser echoes of the current tick
+	 * @param command
+	 *            command to fill in with the move
+	 */
+	public void steer(Pose robotPose, double targetX, double targetY,
+			double maxSpeed, LaserEchoesResponse ler, DriveCommand command) {
 		double speed;
-		double angle;
-		Position robotPos;
-		double targetAngle;
-		double robotHeading;
-		double angleDiff;
-
-		while (targetDistance > MIN_DIST_TO_TARGET) {
-			robotComm.getResponse(robotLR);
-			robotPos = new Position(robotLR.getPosition());
-			targetAngle = Math.toDegrees(robotPos.getBearingTo(nextCP));
-			robotHeading = robotLR.getHeadingAngle() * (180 / Math.PI);
-			angleDiff = calculateAngleDiff(robotHeading, targetAngle);
-			targetDistance = robotPos.getDistanceTo(nextCP);
-			DifferentialDriveRequest ddr = new DifferentialDriveRequest();
-
-			if (Math.abs(angleDiff) > 90) {
-				speed = 0;
-			} else {
-				speed = SPEED_CONSTANT * (angleDiff * angleDiff) + 1;
-			}
+		double targetAngle = Math.toDegrees(robotPose.bearingTo(targetX,
+				targetY));
+		double robotHeading = robotPose.getHeading() * (180 / Math.PI);
+		double angleDiff = Geometry.angleDiff(robotHeading, targetAngle);
 
-			angle = degreesToRadians(angleDiff) * 2;
+		if (Math.abs(angleDiff) > 90) {
+			speed = 0;
+		} else {
+			speed = Math.min(maxSpeed, MAX_SPEED
+					* (tuning.getSpeedConstant() * (angleDiff * angleDiff)
+							+ 1));
+		}
 
-			ddr.setLinearSpeed(speed);
-			ddr.setAngularSpeed(-angle);
+		double angle = degreesToRadians(angleDiff) * 2;
 
-			ddr = collisionDetection(ddr, angle);
+		command.set(speed, -angle);
 
-			robotComm.putRequest(ddr);
-		}
+		collisionDetection(command, angle, ler);
 	}
 
 	/**
@@ -255,33 +782,225 @@ public class RobotController {
 		}
 	}
 
+	/**
+	 * SetLaser sets the beam geometry of the laser scanner and the number of
+	 * beams in the median filter that removes single beam spikes before
+	 * collision detection. The avoidance sector is AVOIDANCE_SECTOR to each
+	 * side of the heading.
+	 *
+	 * @param geometry
+	 *            the beams of the scanner
+	 * @param medianWindow
+	 *            odd number of beams in the median filter, 1 for none
+	 */
+	public void setLaser(LaserGeometry geometry, int medianWindow) {
+		scan = new ScanProcessor(geometry, medianWindow, MIN_ECHO, MAX_ECHO);
+		front = geometry.sector(-AVOIDANCE_SECTOR, AVOIDANCE_SECTOR);
+	}
+
+	/**
+	 * SetTuning replaces the hand tuned constants of the controller. The
+	 * speed profile is rebuilt, since it depends on the distance at which a
+	 * carrotpoint counts as reached. It must be called before setTracking
+	 * and run.
+	 *
+	 * @param tuning
+	 *            the constants to use, Tuning.DEFAULT by default
+	 */
+	public void setTuning(Tuning tuning) {
+		this.tuning = tuning;
+		if (path != null) {
+			profile = new SpeedProfile(path, MAX_SPEED,
+					MAX_LATERAL_ACCELERATION, MAX_DECELERATION,
+					tuning.getMinDistToTarget());
+		}
+	}
+
+	/**
+	 * SetSmoothing chooses whether the path is resampled every PATH_SPACING
+	 * along a spline or followed as simplified from the file. The path is
+	 * read again if the choice changes. It must be called before setTracking
+	 * and run.
+	 *
+	 * @param smoothing
+	 *            true to smooth the path, true by default
+	 */
+	public void setSmoothing(boolean smoothing) {
+		double spacing = smoothing ? PATH_SPACING : 0;
+		if (spacing != pathSpacing) {
+			loadPath(spacing);
+		}
+	}
+
+	/**
+	 * SetTracking chooses how the robot follows the path. It must be called
+	 * before run.
+	 *
+	 * @param tracking
+	 *            the tracking to use, CARROT by default
+	 */
+	public void setTracking(Tracking tracking) {
+		switch (tracking) {
+		case PURE_PURSUIT:
+			tracker = new PurePursuit(path, profile, MIN_LOOKAHEAD,
+					LOOKAHEAD_TIME, MAX_LOOKAHEAD, MAX_TURN_SPEED);
+			break;
+		case STANLEY:
+			tracker = new Stanley(path, profile, STANLEY_GAIN,
+					STANLEY_SOFTENING, STANLEY_HEADING_GAIN, MAX_TURN_SPEED);
+			break;
+		default:
+			tracker = null;
+		}
+	}
+
+	/**
+	 * SetPrediction makes the controller steer from the pose the robot is
+	 * predicted to have when the command is applied, instead of the pose it
+	 * had when it was measured. It must be called before run.
+	 *
+	 * @param prediction
+	 *            true to predict the pose, false by default
+	 */
+	public void setPrediction(boolean prediction) {
+		predictor = prediction ? new PosePredictor(PREDICTION_HISTORY,
+				ACTUATION_DELAY, MAX_PREDICTION) : null;
+	}
+
+	/**
+	 * SetAsyncDrive makes the controller hand its commands to a DriveChannel
+	 * instead of waiting for each of them to be sent, so a tick no longer
+	 * waits for a round trip. Only the newest command is sent, and one that
+	 * has not changed by more than DRIVE_TOLERANCE is only sent again every
+	 * DRIVE_KEEP_ALIVE. It must be called before setMetrics and run.
+	 *
+	 * @param async
+	 *            true to send commands asynchronously, false by default
+	 */
+	public void setAsyncDrive(boolean async) {
+		drive = async ? new DriveChannel(robotComm, clock, DRIVE_TOLERANCE,
+				DRIVE_KEEP_ALIVE) : null;
+	}
+
+	/**
+	 * SetLocalization makes the controller correct the pose from the
+	 * localization service with a particle filter that matches the laser
+	 * scans against a known map, instead of trusting the pose as it is. The
+	 * stages of the filter run on the given pool. It must be called after
+	 * setLaser, if that is used, and before setMetrics and run.
+	 *
+	 * @param field
+	 *            likelihood field of the map
+	 * @param particles
+	 *            number of particles
+	 * @param pool
+	 *            the pool the filter runs on
+	 */
+	public void setLocalization(LikelihoodField field, int particles,
+			ForkJoinPool pool) {
+		localizer = new ScanLocalizer(new ParticleFilter(field,
+				scan.getGeometry(), particles, BEAM_STRIDE, pool,
+				PARTICLE_SEED), scan.getGeometry().getBeams(), MAX_ECHO);
+	}
+
+	/**
+	 * SetLocalization turns on localization as above, with the filter
+	 * running on a pool of its own with a thread per processor. The pool is
+	 * shut down by shutdown.
+	 *
+	 * @param field
+	 *            likelihood field of the map
+	 * @param particles
+	 *            number of particles
+	 */
+	public void setLocalization(LikelihoodField field, int particles) {
+		if (localizerPool == null) {
+			localizerPool = new ForkJoinPool();
+		}
+		setLocalization(field, particles, localizerPool);
+	}
+
+	/**
+	 * SetMetrics makes the controller record where the time of a tick goes:
+	 * the pose and laser requests, the JSON decoding and encoding when the
+	 * link is a RobotCommunication, the drive request in put, the number of
+	 * waypoints the carrot search moves past in carrot.iterations, and the
+	 * tick time, allocation and deadline misses from the scheduler. Nothing
+	 * is recorded without it. It must be called before run.
+	 *
+	 * @param metrics
+	 *            the registry to record into
+	 */
+	public void setMetrics(Metrics metrics) {
+		scheduler.setMetrics(metrics);
+		sensors.setMetrics(metrics);
+		if (robotComm instanceof RobotCommunication) {
+			((RobotCommunication) robotComm).setMetrics(metrics);
+		}
+		if (drive != null) {
+			drive.setMetrics(metrics);
+		}
+		if (localizer != null) {
+			localizer.setMetrics(metrics);
+		}
+		puts = metrics.histogram("put");
+		carrotIterations = metrics.histogram("carrot.iterations");
+	}
+
+	/**
+	 * SetMapping makes the controller fuse the scan of every tick into an
+	 * occupancy grid on a background thread, and plan detours around
+	 * obstacles in it instead of turning away from them. It must be called
+	 * after setLaser, if that is used, and before run.
+	 *
+	 * @param grid
+	 *            the grid to build
+	 */
+	public void setMapping(OccupancyGrid grid) {
+		mapper = new MapBuilder(grid, scan.getGeometry());
+		planner = new LocalPlanner(grid, PLANNER_WINDOW, ROBOT_RADIUS,
+				INFLATION);
+		planner.setBudget(PLANNER_BUDGET);
+	}
+
+	/**
+	 * @return true if the robot is steering along a detour that is ready,
+	 *         false if there is none or it is still being planned
+	 */
+	private boolean onDetour() {
+		return detouring && planner.isReady();
+	}
+
 	/**
 	 * CollisionDetection gets called every time the robot plans to move and
-	 * uses the laser to check for any obstacles 0.7m and +-15 degrees in the
-	 * robots direction. If anything is in the way this method will alter the
-	 * command to avoid this.
+	 * uses the laser scan fetched in the same tick to check for any obstacles
+	 * within the laser distance of the tuning in the front sector. If
+	 * anything is in the way this method will alter the command to avoid
+	 * this.
 	 *
-	 * @param ddr
+	 * @param command
 	 *            the current move command
 	 * @param angle
 	 *            current angularspeed
-	 * @return DifferentialDriveRequest
-	 * @throws Exception
+	 * @param ler
+	 *            the laser echoes of the current tick
 	 */
-	private DifferentialDriveRequest collisionDetection(
-			DifferentialDriveRequest ddr, double angle) throws Exception {
-		LaserEchoesResponse ler = new LaserEchoesResponse();
-		robotComm.getResponse(ler);
-		double[] echoes = ler.getEchoes();
-
-		for (int i = 120; i < 150; i++) {
-			if (echoes[i] < LASER_DIST) {
-				ddr.setAngularSpeed(getTurnHeading(angle)
-						* AVOIDANCE_TURN_SPEED);
-				ddr.setLinearSpeed(AVOIDANCE_SPEED);
+	private void collisionDetection(DriveCommand command, double angle,
+			LaserEchoesResponse ler) {
+		scan.update(ler);
+		double clearance = scan.minDistance(front);
+		avoiding = clearance < tuning.getLaserDist();
+
+		if (onDetour()) {
+			// The detour already goes around what has been seen, only stop
+			// for something that was not in the map.
+			if (clearance < STOP_DIST) {
+				command.set(0, command.getAngularSpeed());
 			}
+		} else if (avoiding) {
+			command.set(AVOIDANCE_SPEED, getTurnHeading(angle)
+					* AVOIDANCE_TURN_SPEED);
 		}
-		return ddr;
 	}
 
 	/**
@@ -295,40 +1014,133 @@ public class RobotController {
 		return angle * (Math.PI / 180);
 	}
 
-	/**
-	 * Calculates the difference between two angles so that it can also be used
-	 * to tell direction.
-	 *
-	 * @param firstAngle
-	 * @param secondAngle
-	 * @return angle difference in the range -180 < angle < 180
-	 */
-	private double calculateAngleDiff(double firstAngle, double secondAngle) {
-		double diffAngle = (firstAngle - secondAngle) + 180;
-		diffAngle = (diffAngle / 360.0);
-		diffAngle = ((diffAngle - Math.floor(diffAngle)) * 360.0) - 180;
-		return diffAngle;
-	}
-
 	/**
 	 * Main checks for filepath to the JSON-file containing the path to follow,
 	 * otherwise the robot will run demonstration path
-	 * (Path-around-the-table-and-back.json), then runs the robot.
+	 * (Path-around-the-table-and-back.json), then runs the robot. The control
+	 * loop rate in Hz, the overrun policy (SKIP, DEGRADE or STOP) and the link
+	 * can be given after the filepath. The link is either http, which talks
+	 * to MRDS on port 50000, or sim, which drives an in-process simulator in
+	 * an empty room around the path. If a fifth argument other than - is
+	 * given, an occupancy grid is built from the laser scans and saved to
+	 * that file. The sixth argument is the tracking (CARROT, PURE_PURSUIT or
+	 * STANLEY) and the seventh turns on pose prediction if it is true. If
+	 * an eighth argument other than - is given, metrics are recorded,
+	 * registered as a JMX MBean while the robot runs and written to that file
+	 * at the end. The ninth sends the drive commands asynchronously if it is
+	 * true. If a tenth argument other than - is given, it is a map file,
+	 * in the format of ObstacleMap, to correct the pose against with
+	 * PARTICLES particles. The eleventh follows the path without smoothing
+	 * it if it is false. The path is read through the default PathCache.
 	 *
 	 * @param args
-	 *            must be a filepath to a JSONfile in the right format
+	 *            must be a filepath to a JSONfile in the right format,
+	 *            optionally followed by rate, overrun policy, link, map
+	 *            file, tracking, prediction, metrics file, async drive,
+	 *            localization map and smoothing
 	 */
 	public static void main(String[] args) {
-		RobotController robot;
-		if (args.length > 0) {
-			robot = new RobotController("http://127.0.0.1", 50000, args[0]);
-		} else {
-			robot = new RobotController("http://127.0.0.1", 50000,
-					"Path-around-table-and-back.json");
-		}
+		String filePath = args.length > 0 ? args[0]
+				: "Path-around-table-and-back.json";
+		double rate = args.length > 1 ? Double.parseDouble(args[1])
+				: DEFAULT_RATE;
+		OverrunPolicy policy = args.length > 2 ? OverrunPolicy
+				.valueOf(args[2]) : OverrunPolicy.SKIP;
+		String mode = args.length > 3 ? args[3] : "http";
+		String mapFile = args.length > 4 && !args[4].equals("-") ? args[4]
+				: null;
+		Tracking tracking = args.length > 5 ? Tracking.valueOf(args[5])
+				: Tracking.CARROT;
+		boolean prediction = args.length > 6
+				&& Boolean.parseBoolean(args[6]);
+		String metricsFile = args.length > 7 && !args[7].equals("-") ? args[7]
+				: null;
+		boolean async = args.length > 8 && Boolean.parseBoolean(args[8]);
+		String localizationMap = args.length > 9 && !args[9].equals("-")
+				? args[9] : null;
+		boolean smoothing = args.length <= 10
+				|| Boolean.parseBoolean(args[10]);
+		setPathCache(PathCache.getDefault());
 
 		try {
+			RobotLink link;
+			if (mode.equals("sim")) {
+				Path path = PathLoader.read(new File(filePath));
+				Simulator simulator = new Simulator(ObstacleMap.room(path,
+						SimulatorServer.ROOM_MARGIN), 1);
+				if (path.size() > 0) {
+					simulator.setPose(path.getX(0), path.getY(0),
+							path.getHeading(0));
+				}
+				link = new SimulatorLink(simulator, SystemClock.INSTANCE, 1);
+			} else if (mode.equals("http")) {
+				link = new RobotCommunication("http://127.0.0.1", 50000);
+			} else {
+				throw new IllegalArgumentException("Unknown link " + mode);
+			}
+			RobotController robot = new RobotController(link, filePath, rate,
+					policy);
+			robot.setSmoothing(smoothing);
+			robot.setTracking(tracking);
+			robot.setPrediction(prediction);
+			robot.setAsyncDrive(async);
+			if (localizationMap != null) {
+				robot.setLocalization(LikelihoodField.of(ObstacleMap
+						.read(new File(localizationMap)), FIELD_RESOLUTION,
+						FIELD_SIGMA), PARTICLES);
+			}
+			Metrics metrics = null;
+			if (metricsFile != null) {
+				metrics = new Metrics();
+				robot.setMetrics(metrics);
+				metrics.register();
+			}
+			OccupancyGrid grid = null;
+			if (mapFile != null) {
+				grid = new OccupancyGrid(MAP_RESOLUTION);
+				robot.setMapping(grid);
+			}
+
 			robot.run();
+			if (metrics != null) {
+				metrics.unregister();
+				metrics.write(new File(metricsFile));
+			}
+			if (grid != null) {
+				System.out.println("Planner: " + robot.planner.getPlans()
+						+ " detours, " + robot.planner.getReplans()
+						+ " repairs, longest " + robot.planner.getMaxPlanTime()
+						/ 1000 + "us");
+				grid.write(new File(mapFile));
+				System.out.println("Map: " + robot.mapper.getFused()
+						+ " scans fused in " + robot.mapper.getMeanFuseTime()
+						/ 1000 + "us each, " + robot.mapper.getDropped()
+						+ " dropped, " + grid.getTileCount() + " tiles");
+			}
+			System.out.println(robot.scheduler.summary());
+			System.out.println("Pose/scan skew: mean "
+					+ robot.sensors.getMeanSkew() / 1000 + "us, max "
+					+ robot.sensors.getMaxSkew() / 1000 + "us over "
+					+ robot.sensors.getFetches() + " ticks");
+			if (robot.predictor != null) {
+				System.out.println("Prediction: last lead "
+						+ robot.predictor.getLead() / 1000 + "us, send delay "
+						+ robot.predictor.getSendDelay() / 1000 + "us");
+			}
+			if (robot.localizer != null) {
+				ParticleFilter filter = robot.localizer.getFilter();
+				System.out.println("Localization: " + filter.getSize()
+						+ " particles, " + filter.getResamples()
+						+ " resamples, effective "
+						+ Math.round(filter.getEffectiveSize())
+						+ " at the end");
+			}
+			if (robot.drive != null) {
+				System.out.println("Drive: " + robot.drive.getSent()
+						+ " sent, " + robot.drive.getSuperseded()
+						+ " superseded, " + robot.drive.getCoalesced()
+						+ " coalesced");
+			}
 		} catch (Exception e) {
 			System.err.println("An error has occurred with message:"
 					+ e.getMessage());
@@ -0,0 +1,83 @@
+package robot;
+
+/**
+ * Tuning class The hand tuned constants of the carrot controller, kept
+ * together so a run can be made with other values than the defaults, for
+ * example by a parameter sweep. A Tuning never changes once made.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Tuning {
+
+	/**
+	 * The values the controller has been tuned to on the real robot.
+	 */
+	public static final Tuning DEFAULT = new Tuning(-0.000123456790123, 0.8,
+			50, 0.7);
+
+	private final double speedConstant;
+	private final double minDistToTarget;
+	private final double maxAngleToNextCP;
+	private final double laserDist;
+
+	/**
+	 * Constructor for Tuning.
+	 *
+	 * @param speedConstant
+	 *            factor of the squared angle to the target, in degrees, by
+	 *            which the speed is lowered
+	 * @param minDistToTarget
+	 *            distance at which a carrotpoint counts as reached
+	 * @param maxAngleToNextCP
+	 *            largest change of bearing in degrees for the carrot search
+	 *            to move on to the next waypoint
+	 * @param laserDist
+	 *            distance in front of the robot at which obstacles are
+	 *            avoided
+	 */
+	public Tuning(double speedConstant, double minDistToTarget,
+			double maxAngleToNextCP, double laserDist) {
+		this.speedConstant = speedConstant;
+		this.minDistToTarget = minDistToTarget;
+		this.maxAngleToNextCP = maxAngleToNextCP;
+		this.laserDist = laserDist;
+	}
+
+	/**
+	 * @return factor of the squared angle to the target by which the speed
+	 *         is lowered
+	 */
+	public double getSpeedConstant() {
+		return speedConstant;
+	}
+
+	/**
+	 * @return distance at which a carrotpoint counts as reached
+	 */
+	public double getMinDistToTarget() {
+		return minDistToTarget;
+	}
+
+	/**
+	 * @return largest change of bearing in degrees for the carrot search to
+	 *         move on
+	 */
+	public double getMaxAngleToNextCP() {
+		return maxAngleToNextCP;
+	}
+
+	/**
+	 * @return distance in front of the robot at which obstacles are avoided
+	 */
+	public double getLaserDist() {
+		return laserDist;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("speed %.3g, target %.2f, angle %.0f, laser %.2f",
+				speedConstant, minDistToTarget, maxAngleToNextCP, laserDist);
+	}
+}
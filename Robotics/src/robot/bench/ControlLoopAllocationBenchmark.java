@@ -0,0 +1,213 @@
+package robot.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import robot.RobotController;
+import robot.comm.RobotLink;
+import robot.control.Clock;
+import robot.control.FixedRateScheduler.OverrunPolicy;
+import robot.control.SystemClock;
+import robot.control.VirtualClock;
+import robot.path.Path;
+import robot.sim.ObstacleMap;
+import robot.sim.Simulator;
+import robot.sim.SimulatorLink;
+import robot.sim.SimulatorServer;
+import suppliedFiles.RobotCommunication;
+
+/**
+ * ControlLoopAllocationBenchmark class Runs whole control loop ticks,
+ * fetching the pose and the scan, steering and sending the drive command,
+ * and measures the bytes allocated per tick with the thread allocation
+ * counter. The ticks run against an in-process simulator on a virtual clock
+ * that moves one period per tick, so the robot drives the path over and
+ * over, and against a StubRobotServer over HTTP. The allocation of the
+ * thread running the ticks and of the threads the controller runs its
+ * requests on is counted, that of the server is not. The control loop is
+ * meant to be free of garbage, so the program exits with status 1 if any
+ * allocation is seen.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ControlLoopAllocationBenchmark {
+
+	private static final String PATH = "Path-around-table-and-back.json";
+	private static final int SIM_WARMUP_TICKS = 50000;
+	private static final int SIM_TICKS = 200000;
+	private static final int HTTP_WARMUP_TICKS = 5000;
+	private static final int HTTP_TICKS = 10000;
+	private static final int ROUNDS = 3;
+	private static final String[] THREADS = { "laser-fetch", "drive-channel" };
+	private static final com.sun.management.ThreadMXBean BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * Main runs the benchmark.
+	 *
+	 * @param args
+	 *            optionally the path file, Path-around-table-and-back.json
+	 *            by default
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		String file = args.length > 0 ? args[0] : PATH;
+		long allocated = simulated(file) + http(file);
+		if (allocated > 0) {
+			System.err.println("The control loop allocates " + allocated
+					+ " bytes");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs the ticks against a SimulatorLink in an empty room around the
+	 * path.
+	 *
+	 * @return bytes allocated by the measured ticks
+	 */
+	private static long simulated(String file) throws Exception {
+		Path path = RobotController.readFile(file);
+		Simulator simulator = new Simulator(ObstacleMap.room(path,
+				SimulatorServer.ROOM_MARGIN), 1);
+		VirtualClock clock = new VirtualClock(0);
+		RobotController controller = new RobotController(new SimulatorLink(
+				simulator, clock, 1), clock, file,
+				RobotController.DEFAULT_RATE, OverrunPolicy.SKIP);
+		try {
+			return measure("sim", controller, simulator, path, clock,
+					SIM_WARMUP_TICKS, SIM_TICKS);
+		} finally {
+			controller.shutdown();
+		}
+	}
+
+	/**
+	 * Runs the ticks against a StubRobotServer through RobotCommunication
+	 * and the keep-alive transport. The replies never change, so the robot
+	 * does not get anywhere, but every tick makes the same three requests
+	 * as against the real robot.
+	 *
+	 * @return bytes allocated by the measured ticks
+	 */
+	private static long http(String file) throws Exception {
+		StubRobotServer server = new StubRobotServer(0, 3 * (HTTP_WARMUP_TICKS
+				+ HTTP_TICKS));
+		server.start();
+		RobotLink link = new RobotCommunication("http://127.0.0.1",
+				server.getPort());
+		RobotController controller = new RobotController(link,
+				SystemClock.INSTANCE, file, RobotController.DEFAULT_RATE,
+				OverrunPolicy.SKIP);
+		try {
+			return measure("http", controller, null, null,
+					SystemClock.INSTANCE, HTTP_WARMUP_TICKS, HTTP_TICKS);
+		} finally {
+			controller.shutdown();
+			server.stop();
+		}
+	}
+
+	/**
+	 * Warms up and then measures a number of ticks, ROUNDS times. A
+	 * simulated robot that reaches the goal is put back at the start of the
+	 * path. The least allocating round counts, so a one-off allocation of
+	 * the JIT compiler recompiling something is not taken for a tick that
+	 * allocates, which would show in every round.
+	 *
+	 * @return bytes allocated by the measured ticks
+	 */
+	private static long measure(String name, RobotController controller,
+			Simulator simulator, Path path, Clock clock, int warmupTicks,
+			int ticks) throws Exception {
+		controller.start();
+		run(controller, simulator, path, clock, warmupTicks);
+
+		// The helper threads exist once the first tick has run.
+		long[] ids = threadIds();
+		// The counter itself may allocate, measure that first.
+		long overhead = allocatedBytes(ids);
+		overhead = allocatedBytes(ids) - overhead;
+
+		long allocated = Long.MAX_VALUE;
+		long time = Long.MAX_VALUE;
+		int laps = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = allocatedBytes(ids);
+			long start = System.nanoTime();
+			laps = run(controller, simulator, path, clock, ticks);
+			time = Math.min(time, System.nanoTime() - start);
+			allocated = Math.min(allocated, allocatedBytes(ids) - before
+					- overhead);
+		}
+
+		System.out.println(String.format(
+				"%-4s %d ticks, %d laps, %.1f us/tick, "
+						+ "%.3f bytes allocated/tick over %d threads", name,
+				ticks, laps, time / 1000.0 / ticks, allocated
+						/ (double) ticks, ids.length));
+		return allocated;
+	}
+
+	/**
+	 * Runs ticks, moving a virtual clock one period ahead after each of
+	 * them.
+	 *
+	 * @return number of times the goal was reached
+	 */
+	private static int run(RobotController controller, Simulator simulator,
+			Path path, Clock clock, int ticks) throws Exception {
+		long period = (long) (1e9 / RobotController.DEFAULT_RATE);
+		int laps = 0;
+		for (int i = 0; i < ticks; i++) {
+			if (!controller.tick()) {
+				laps++;
+				if (simulator != null) {
+					simulator.setPose(path.getX(0), path.getY(0),
+							path.getHeading(0));
+				}
+				controller.start();
+			}
+			if (clock instanceof VirtualClock) {
+				clock.sleepUntil(clock.nanoTime() + period);
+			}
+		}
+		return laps;
+	}
+
+	/**
+	 * @return ids of the thread running the ticks and of the helper threads
+	 *         of the controller
+	 */
+	private static long[] threadIds() {
+		List<Long> ids = new ArrayList<Long>();
+		ids.add(Thread.currentThread().getId());
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			for (String name : THREADS) {
+				if (thread.getName().equals(name)) {
+					ids.add(thread.getId());
+				}
+			}
+		}
+		long[] result = new long[ids.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ids.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * @return bytes the threads have allocated since they started, read one
+	 *         thread at a time since reading them all at once allocates
+	 */
+	private static long allocatedBytes(long[] ids) {
+		long sum = 0;
+		for (long id : ids) {
+			sum += Math.max(0, BEAN.getThreadAllocatedBytes(id));
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,321 @@
+package robot.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import robot.Geometry;
+import robot.RobotController;
+import robot.comm.ResponseDecoder;
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+import suppliedFiles.Position;
+import suppliedFiles.Quaternion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * HotPathBenchmark class A suite of microbenchmarks of the math and parsing
+ * that the control loop and the path loading run through: the heading of a
+ * localization response, both directly and through Quaternion.bearing as it
+ * used to be computed, Position distance and bearing, the angle difference,
+ * decoding localization and laser replies through a Map and with
+ * ResponseDecoder, reading the laser echoes, loading each path JSON in the
+ * working directory the way the controller does, and one full carrotPlanning
+ * pass. Results can be written to a file and compared against such a file
+ * from an earlier run, so a change can be measured against a baseline.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class HotPathBenchmark {
+
+	private static final long ITERATION_NANOS = 200000000;
+	private static final int WARMUPS = 5;
+	private static final int ITERATIONS = 5;
+	private static final int INPUTS = 1024;
+	private static final String CARROT_PATH = "Path-around-table-and-back.json";
+
+	/**
+	 * Main runs the suite.
+	 *
+	 * @param args
+	 *            optionally a regular expression that the names of the
+	 *            benchmarks to run must contain, a file to write the results
+	 *            to or -, and a results file of an earlier run to compare
+	 *            with
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Pattern filter = Pattern.compile(args.length > 0 ? args[0] : "");
+		String resultFile = args.length > 1 && !args[1].equals("-") ? args[1]
+				: null;
+		Map<String, double[]> baseline = args.length > 2 ? readResults(new File(
+				args[2])) : new HashMap<String, double[]>();
+
+		List<Microbenchmark.Result> results =
+				new ArrayList<Microbenchmark.Result>();
+		for (Microbenchmark benchmark : suite()) {
+			if (!filter.matcher(benchmark.getName()).find()) {
+				continue;
+			}
+			Microbenchmark.Result result = benchmark.measure(ITERATION_NANOS,
+					WARMUPS, ITERATIONS);
+			results.add(result);
+			double[] before = baseline.get(result.getName());
+			if (before == null) {
+				System.out.println(result);
+			} else {
+				System.out.println(String.format("%s  %+6.1f%% time %+8.1f B/op",
+						result, 100 * (result.getMean() / before[0] - 1),
+						result.getBytesPerOp() - before[1]));
+			}
+		}
+		if (resultFile != null) {
+			writeResults(results, new File(resultFile));
+		}
+	}
+
+	/**
+	 * @return every benchmark of the suite
+	 * @throws Exception
+	 *             if the inputs can not be set up
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Microbenchmark> suite() throws Exception {
+		List<Microbenchmark> suite = new ArrayList<Microbenchmark>();
+		ObjectMapper mapper = new ObjectMapper();
+		final LocalizationResponse lr = new LocalizationResponse();
+		lr.setData(mapper.readValue(StubRobotServer.localizationReply(),
+				Map.class));
+		final LaserEchoesResponse ler = new LaserEchoesResponse();
+		ler.setData(mapper.readValue(StubRobotServer.laserReply(271),
+				Map.class));
+
+		Random random = new Random(42);
+		final Position[] positions = new Position[INPUTS];
+		final double[] angles = new double[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			positions[i] = new Position(random.nextDouble() * 20 - 10,
+					random.nextDouble() * 20 - 10);
+			angles[i] = random.nextDouble() * 720 - 360;
+		}
+		final double[] echoes = new double[271];
+
+		final ObjectMapper decodeMapper = new ObjectMapper();
+		final ResponseDecoder decoder = new ResponseDecoder();
+		final byte[] localizationBody = StubRobotServer.localizationReply()
+				.getBytes("UTF-8");
+		final byte[] laserBody = StubRobotServer.laserReply(271).getBytes(
+				"UTF-8");
+		final LocalizationResponse decodedLr = new LocalizationResponse();
+		final LaserEchoesResponse decodedLer = new LaserEchoesResponse();
+
+		suite.add(new Microbenchmark("decode.localization.map") {
+			@Override
+			protected long run(int ops) throws Exception {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					decodedLr.setData(decodeMapper.readValue(localizationBody,
+							Map.class));
+					sum += decodedLr.getX();
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("decode.localization.typed") {
+			@Override
+			protected long run(int ops) throws Exception {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					decoder.decode(localizationBody, localizationBody.length,
+							decodedLr);
+					sum += decodedLr.getX();
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("decode.laser.map") {
+			@Override
+			protected long run(int ops) throws Exception {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					decodedLer.setData(decodeMapper.readValue(laserBody,
+							Map.class));
+					decodedLer.getEchoes(echoes);
+					sum += echoes[i % 271];
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("decode.laser.typed") {
+			@Override
+			protected long run(int ops) throws Exception {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					decoder.decode(laserBody, laserBody.length, decodedLer);
+					decodedLer.getEchoes(echoes);
+					sum += echoes[i % 271];
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("localization.getHeadingAngle") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += lr.getHeadingAngle();
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("quaternion.bearing") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					double[] v = new Quaternion(lr.getOrientation()).bearing();
+					sum += Math.atan2(v[1], v[0]);
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("position.getDistanceTo") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += positions[i & (INPUTS - 1)]
+							.getDistanceTo(positions[(i + 1) & (INPUTS - 1)]);
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("position.getBearingTo") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += positions[i & (INPUTS - 1)]
+							.getBearingTo(positions[(i + 1) & (INPUTS - 1)]);
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("geometry.angleDiff") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += Geometry.angleDiff(angles[i & (INPUTS - 1)],
+							angles[(i + 1) & (INPUTS - 1)]);
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("laser.getEchoes") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += ler.getEchoes()[i % 271];
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+		suite.add(new Microbenchmark("laser.getEchoes.into") {
+			@Override
+			protected long run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					ler.getEchoes(echoes);
+					sum += echoes[i % 271];
+				}
+				return Double.doubleToLongBits(sum);
+			}
+		});
+
+		File[] paths = new File(".").listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".json");
+			}
+		});
+		Arrays.sort(paths);
+		for (final File path : paths) {
+			suite.add(new Microbenchmark("readFile." + path.getName()) {
+				@Override
+				protected long run(int ops) throws Exception {
+					long sum = 0;
+					for (int i = 0; i < ops; i++) {
+						sum += RobotController.readFile(path.getPath()).size();
+					}
+					return sum;
+				}
+			});
+		}
+
+		if (new File(CARROT_PATH).exists()) {
+			// No connection is opened until run is called.
+			final RobotController controller = new RobotController(
+					"http://127.0.0.1", 50000, CARROT_PATH);
+			suite.add(new Microbenchmark("carrotPlanning.pass") {
+				@Override
+				protected long run(int ops) {
+					long sum = 0;
+					for (int i = 0; i < ops; i++) {
+						sum += controller.carrotPass();
+					}
+					return sum;
+				}
+			});
+		}
+		return suite;
+	}
+
+	private static void writeResults(List<Microbenchmark.Result> results,
+			File file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			for (Microbenchmark.Result result : results) {
+				out.println(result.getName() + " " + result.getMean() + " "
+						+ result.getBytesPerOp());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static Map<String, double[]> readResults(File file)
+			throws IOException {
+		Map<String, double[]> results = new HashMap<String, double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				if (fields.length == 3) {
+					results.put(fields[0], new double[] {
+							Double.parseDouble(fields[1]),
+							Double.parseDouble(fields[2]) });
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return results;
+	}
+}
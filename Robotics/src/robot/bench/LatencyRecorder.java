@@ -0,0 +1,80 @@
+package robot.bench;
+
+import java.util.Arrays;
+
+/**
+ * LatencyRecorder class Collects latency samples in nanoseconds into a
+ * preallocated array and summarises them as percentiles. Recording is
+ * synchronized so the stub server threads can share one recorder.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class LatencyRecorder {
+
+	private final long[] samples;
+	private int count;
+
+	/**
+	 * Constructor for LatencyRecorder.
+	 *
+	 * @param capacity
+	 *            maximum number of samples kept, later samples are dropped
+	 */
+	public LatencyRecorder(int capacity) {
+		samples = new long[capacity];
+	}
+
+	/**
+	 * Records one sample.
+	 *
+	 * @param nanos
+	 *            the latency in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		if (count < samples.length) {
+			samples[count++] = nanos;
+		}
+	}
+
+	/**
+	 * Removes all recorded samples.
+	 */
+	public synchronized void reset() {
+		count = 0;
+	}
+
+	/**
+	 * @return number of recorded samples
+	 */
+	public synchronized int getCount() {
+		return count;
+	}
+
+	/**
+	 * Formats mean, median, 99th percentile and max in microseconds.
+	 *
+	 * @return a one line summary of the samples
+	 */
+	public synchronized String summary() {
+		if (count == 0) {
+			return "no samples";
+		}
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		long sum = 0;
+		for (long sample : sorted) {
+			sum += sample;
+		}
+		return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+				count, sum / (count * 1000.0), percentile(sorted, 0.50) / 1000.0,
+				percentile(sorted, 0.99) / 1000.0,
+				sorted[count - 1] / 1000.0);
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+}
@@ -0,0 +1,216 @@
+package robot.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import robot.metrics.Metrics;
+
+/**
+ * Microbenchmark class One operation of a benchmark suite and the harness
+ * that measures it, in the way JMH does it but without a build tool: the
+ * operation is run in batches for a number of warmup iterations, so the JIT
+ * has compiled it, and then for a number of measured iterations of fixed
+ * length. Every batch returns a value that depends on each result, and the
+ * harness keeps it, so the JIT can not remove the work. Besides the time per
+ * operation the harness reports what the JMH GC profiler does: bytes
+ * allocated per operation, from the thread allocation counter, and the
+ * number of collections and the time spent in them while measuring.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public abstract class Microbenchmark {
+
+	private static final long MIN_BATCH_NANOS = 1000000;
+	private static volatile long sink;
+	private final String name;
+
+	/**
+	 * Constructor for Microbenchmark.
+	 *
+	 * @param name
+	 *            name of the benchmark in the results
+	 */
+	protected Microbenchmark(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return name of the benchmark
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Runs the operation a number of times.
+	 *
+	 * @param ops
+	 *            number of operations
+	 * @return a value that depends on the result of every operation
+	 * @throws Exception
+	 */
+	protected abstract long run(int ops) throws Exception;
+
+	/**
+	 * Measures the operation.
+	 *
+	 * @param iterationNanos
+	 *            length of each iteration in nanoseconds
+	 * @param warmups
+	 *            number of iterations run before measuring
+	 * @param iterations
+	 *            number of iterations measured
+	 * @return the result
+	 * @throws Exception
+	 *             if the operation fails
+	 */
+	public Result measure(long iterationNanos, int warmups, int iterations)
+			throws Exception {
+		int batch = 1;
+		while (true) {
+			long start = System.nanoTime();
+			sink += run(batch);
+			if (System.nanoTime() - start >= MIN_BATCH_NANOS
+					|| batch >= Integer.MAX_VALUE / 2) {
+				break;
+			}
+			batch *= 2;
+		}
+		for (int i = 0; i < warmups; i++) {
+			iteration(batch, iterationNanos);
+		}
+
+		long gcCount = gcCount();
+		long gcTime = gcTime();
+		long allocated = Metrics.allocatedBytes();
+		long ops = 0;
+		double[] nanosPerOp = new double[iterations];
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			long n = iteration(batch, iterationNanos);
+			nanosPerOp[i] = (System.nanoTime() - start) / (double) n;
+			ops += n;
+		}
+		allocated = Metrics.allocatedBytes() - allocated;
+		return new Result(name, nanosPerOp, allocated / (double) ops,
+				gcCount() - gcCount, gcTime() - gcTime);
+	}
+
+	/**
+	 * Runs batches until the iteration has taken its time.
+	 *
+	 * @return number of operations run
+	 */
+	private long iteration(int batch, long iterationNanos) throws Exception {
+		long end = System.nanoTime() + iterationNanos;
+		long ops = 0;
+		do {
+			sink += run(batch);
+			ops += batch;
+		} while (System.nanoTime() - end < 0);
+		return ops;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Result class The measurement of one benchmark.
+	 */
+	public static class Result {
+
+		private final String name;
+		private final double mean;
+		private final double error;
+		private final double bytesPerOp;
+		private final long gcCount;
+		private final long gcMillis;
+
+		private Result(String name, double[] nanosPerOp, double bytesPerOp,
+				long gcCount, long gcMillis) {
+			this.name = name;
+			double sum = 0;
+			for (double x : nanosPerOp) {
+				sum += x;
+			}
+			mean = sum / nanosPerOp.length;
+			double squares = 0;
+			for (double x : nanosPerOp) {
+				squares += (x - mean) * (x - mean);
+			}
+			error = nanosPerOp.length > 1 ? Math.sqrt(squares
+					/ (nanosPerOp.length - 1)) : 0;
+			this.bytesPerOp = bytesPerOp;
+			this.gcCount = gcCount;
+			this.gcMillis = gcMillis;
+		}
+
+		/**
+		 * @return name of the benchmark
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return mean time per operation over the iterations, in
+		 *         nanoseconds
+		 */
+		public double getMean() {
+			return mean;
+		}
+
+		/**
+		 * @return standard deviation of the time per operation between the
+		 *         iterations, in nanoseconds
+		 */
+		public double getError() {
+			return error;
+		}
+
+		/**
+		 * @return bytes allocated per operation
+		 */
+		public double getBytesPerOp() {
+			return bytesPerOp;
+		}
+
+		/**
+		 * @return number of collections while measuring
+		 */
+		public long getGcCount() {
+			return gcCount;
+		}
+
+		/**
+		 * @return time spent in collections while measuring, in milliseconds
+		 */
+		public long getGcMillis() {
+			return gcMillis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-40s %12.1f +- %8.1f ns/op %12.1f B/op"
+					+ " %5d gc %6d ms", name, mean, error, bytesPerOp,
+					gcCount, gcMillis);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package robot.bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import robot.estimate.LikelihoodField;
+import robot.estimate.ParticleFilter;
+import robot.laser.LaserGeometry;
+import robot.sim.ObstacleMap;
+import robot.sim.Simulator;
+
+/**
+ * ParticleFilterBenchmark class Measures the time of a particle filter update
+ * for a number of particle counts and pool sizes. A simulated robot drives
+ * round a 20 by 20 meter room with random boxes in it, and the filter
+ * follows it from odometry with a scale error and scans with noise, the way
+ * ScanLocalizer feeds it. The time of each update and the distance from the
+ * estimate to the true pose at the end are printed.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ParticleFilterBenchmark {
+
+	private static final double SIZE = 20;
+	private static final int OBSTACLES = 30;
+	private static final int WARMUP_UPDATES = 200;
+	private static final int UPDATES = 600;
+	private static final double DT = 0.05;
+	private static final double SPEED = 0.8;
+	private static final double TURN_SPEED = 0.3;
+	private static final double ODOMETRY_SCALE = 1.05;
+	private static final int BEAM_STRIDE = 5;
+
+	/**
+	 * Main runs the benchmark.
+	 *
+	 * @param args
+	 *            optionally the comma separated particle counts, 5000 and
+	 *            10000 by default, and the comma separated pool sizes, 1 up
+	 *            to the number of processors in powers of two by default
+	 */
+	public static void main(String[] args) {
+		int[] counts = args.length > 0 ? parse(args[0]) : new int[] { 5000,
+				10000 };
+		int[] pools = args.length > 1 ? parse(args[1]) : powersOfTwo(Runtime
+				.getRuntime().availableProcessors());
+		Random random = new Random(7);
+		ObstacleMap map = room(random);
+		long start = System.nanoTime();
+		LikelihoodField field = LikelihoodField.of(map, 0.05, 0.1);
+		System.out.println("Likelihood field of " + field.getWidth() + " x "
+				+ field.getHeight() + " cells in "
+				+ (System.nanoTime() - start) / 1000000 + "ms");
+
+		for (int particles : counts) {
+			for (int parallelism : pools) {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				LatencyRecorder updates = new LatencyRecorder(UPDATES);
+				double error = run(map, field, particles, pool, updates);
+				pool.shutdown();
+				System.out.println(String.format(
+						"%6d particles, %2d threads: %s, error %.3f m",
+						particles, parallelism, updates.summary(), error));
+			}
+		}
+	}
+
+	/**
+	 * Drives the robot round the room and updates a filter every step.
+	 *
+	 * @return distance from the estimate to the true position at the end
+	 */
+	private static double run(ObstacleMap map, LikelihoodField field,
+			int particles, ForkJoinPool pool, LatencyRecorder updates) {
+		Simulator robot = new Simulator(map, 3);
+		robot.setLaserNoise(0.03);
+		robot.setPose(-8, -8, 0);
+		ParticleFilter filter = new ParticleFilter(field,
+				LaserGeometry.ROBULAB, particles, BEAM_STRIDE, pool, 11);
+		filter.reset(-8, -8, 0, 0.2, 0.1);
+		double[] echoes = new double[Simulator.BEAMS];
+		for (int i = -WARMUP_UPDATES; i < UPDATES; i++) {
+			double x = robot.getX();
+			double y = robot.getY();
+			double heading = robot.getHeading();
+			// Turn away from whatever is ahead, otherwise go straight.
+			double ahead = map.castRay(x, y, heading, Simulator.MAX_RANGE);
+			robot.setCommand(ahead < 1.5 ? 0.1 : SPEED, ahead < 1.5 ? 1.5
+					: TURN_SPEED * Math.sin(i * 0.01));
+			robot.advanceTo(robot.getTime() + (long) (DT * 1e9));
+			robot.scan(echoes);
+
+			double dx = robot.getX() - x;
+			double dy = robot.getY() - y;
+			double cos = Math.cos(heading);
+			double sin = Math.sin(heading);
+			long start = System.nanoTime();
+			filter.update(ODOMETRY_SCALE * (cos * dx + sin * dy),
+					ODOMETRY_SCALE * (cos * dy - sin * dx), robot.getHeading()
+							- heading, echoes, echoes.length,
+					Simulator.MAX_RANGE);
+			if (i >= 0) {
+				updates.record(System.nanoTime() - start);
+			}
+		}
+		return Math.hypot(filter.getX() - robot.getX(), filter.getY()
+				- robot.getY());
+	}
+
+	/**
+	 * Builds a room with walls and random boxes, keeping the corner the
+	 * robot starts in free.
+	 */
+	private static ObstacleMap room(Random random) {
+		ObstacleMap map = new ObstacleMap();
+		double half = SIZE / 2;
+		map.addBox(-half, -half, half, half);
+		for (int i = 0; i < OBSTACLES; i++) {
+			double cx = -6 + 14 * random.nextDouble();
+			double cy = -6 + 14 * random.nextDouble();
+			double side = 0.2 + 0.6 * random.nextDouble();
+			map.addBox(cx - side, cy - side, cx + side, cy + side);
+		}
+		return map;
+	}
+
+	private static int[] parse(String list) {
+		String[] fields = list.split(",");
+		int[] values = new int[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			values[i] = Integer.parseInt(fields[i]);
+		}
+		return values;
+	}
+
+	private static int[] powersOfTwo(int max) {
+		int n = 1;
+		while (1 << n <= max) {
+			n++;
+		}
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = 1 << i;
+		}
+		return values;
+	}
+}
@@ -0,0 +1,142 @@
+package robot.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import robot.metrics.Metrics;
+import robot.path.BinaryPathFormat;
+import robot.path.Path;
+import robot.path.PathLoader;
+import suppliedFiles.LocalizationResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * PathLoadBenchmark class Compares loading a path file into a List of Map
+ * objects with ObjectMapper against the streaming PathLoader and against
+ * mapping the same path in the binary path format. For each it
+ * prints the load time, the bytes allocated while loading and the heap still
+ * held by the loaded path. It also checks that both give the same waypoints.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class PathLoadBenchmark {
+
+	private static final int ROUNDS = 50;
+
+	/**
+	 * Main runs the benchmark.
+	 *
+	 * @param args
+	 *            path files to load, default Path-around-table-and-back.json
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			args = new String[] { "Path-around-table-and-back.json" };
+		}
+		for (String name : args) {
+			File file = new File(name);
+			verify(file);
+			System.out.println(name + " (" + file.length() / 1024 + " KB)");
+
+			long start = 0;
+			long allocated = 0;
+			for (int round = -ROUNDS; round < ROUNDS; round++) {
+				if (round == 0) {
+					start = System.nanoTime();
+					allocated = Metrics.allocatedBytes();
+				}
+				readMaps(file);
+			}
+			report("  ObjectMapper ", start, allocated, retained(file, true));
+
+			for (int round = -ROUNDS; round < ROUNDS; round++) {
+				if (round == 0) {
+					start = System.nanoTime();
+					allocated = Metrics.allocatedBytes();
+				}
+				PathLoader.readJson(file);
+			}
+			report("  PathLoader   ", start, allocated, retained(file, false));
+
+			File binary = File.createTempFile("path", ".bin");
+			binary.deleteOnExit();
+			BinaryPathFormat.write(PathLoader.readJson(file), binary);
+			for (int round = -ROUNDS; round < ROUNDS; round++) {
+				if (round == 0) {
+					start = System.nanoTime();
+					allocated = Metrics.allocatedBytes();
+				}
+				BinaryPathFormat.map(binary);
+			}
+			report("  mapped       ", start, allocated, 0);
+		}
+	}
+
+	private static List<Map<String, Object>> readMaps(File file)
+			throws Exception {
+		return new ObjectMapper().readValue(file, TypeFactory
+				.defaultInstance().constructCollectionType(List.class,
+						Map.class));
+	}
+
+	/**
+	 * Checks that the streaming loader gives the same positions and headings
+	 * as LocalizationResponse does on the ObjectMapper result.
+	 */
+	private static void verify(File file) throws Exception {
+		List<Map<String, Object>> maps = readMaps(file);
+		Path path = PathLoader.readJson(file);
+		if (maps.size() != path.size()) {
+			throw new IllegalStateException("Size differs for " + file);
+		}
+		LocalizationResponse lr = new LocalizationResponse();
+		for (int i = 0; i < path.size(); i++) {
+			lr.setData(maps.get(i));
+			double[] position = lr.getPosition();
+			if (position[0] != path.getX(i) || position[1] != path.getY(i)
+					|| Math.abs(lr.getHeadingAngle() - path.getHeading(i))
+						> 1e-12) {
+				throw new IllegalStateException("Waypoint " + i
+						+ " differs for " + file);
+			}
+		}
+	}
+
+	/**
+	 * Measures the heap held by one loaded path after a full collection.
+	 */
+	private static long retained(File file, boolean maps) throws Exception {
+		Object[] holder = new Object[1];
+		long before = usedHeap();
+		holder[0] = maps ? readMaps(file) : PathLoader.readJson(file);
+		long after = usedHeap();
+		if (holder[0] == null) {
+			throw new IllegalStateException();
+		}
+		return after - before;
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+				.getUsed();
+	}
+
+	private static void report(String label, long start, long allocated,
+			long retained) {
+		long time = (System.nanoTime() - start) / ROUNDS;
+		long bytes = (Metrics.allocatedBytes() - allocated) / ROUNDS;
+		System.out.println(String.format(
+				"%s%8.2f ms/load %10d bytes allocated/load %10d bytes held",
+				label, time / 1e6, bytes, retained));
+	}
+}
@@ -0,0 +1,162 @@
+package robot.bench;
+
+import java.util.Random;
+
+import robot.map.OccupancyGrid;
+import robot.plan.LocalPlanner;
+
+/**
+ * PlannerBenchmark class Measures the local planner on a cluttered 20 by 20
+ * meter room at 5 cm resolution. A robot crosses the room along its detour
+ * while new obstacles show up in front of it, and every step the plan is
+ * repaired. Each repair is checked against a plan made from scratch on the
+ * same map, and the times of both are printed. Both planners expand at most
+ * BUDGET cells per call, as in the controller, so a plan takes one or more
+ * calls and the times are per call, which is what a tick has to wait for.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class PlannerBenchmark {
+
+	private static final double SIZE = 20;
+	private static final double RESOLUTION = 0.05;
+	private static final int OBSTACLES = 60;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int ROUNDS = 5;
+	private static final double STEP = 0.2;
+	private static final int BUDGET = 5000;
+
+	/**
+	 * Main runs the benchmark.
+	 *
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) {
+		LatencyRecorder fresh = new LatencyRecorder(100000);
+		LatencyRecorder repair = new LatencyRecorder(100000);
+		int plans = 0;
+		for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+			if (round == 0) {
+				fresh.reset();
+				repair.reset();
+				plans = 0;
+			}
+			Random random = new Random(round + WARMUP_ROUNDS);
+			OccupancyGrid map = room(random);
+			LocalPlanner incremental = new LocalPlanner(map, SIZE, 0.25, 0.6);
+			LocalPlanner scratch = new LocalPlanner(map, SIZE, 0.25, 0.6);
+			incremental.setBudget(BUDGET);
+			scratch.setBudget(BUDGET);
+			double x = -9;
+			double y = -9;
+			double goalX = 9;
+			double goalY = 9;
+			incremental.center(0, 0);
+			boolean found = incremental.plan(x, y, goalX, goalY);
+			fresh.record(incremental.getLastPlanTime());
+			if (!found || !finish(incremental, x, y, fresh)) {
+				System.out.println("Round " + round + ": no path");
+				continue;
+			}
+			plans++;
+
+			double[] point = new double[2];
+			int steps = 0;
+			while (Math.hypot(goalX - x, goalY - y) > STEP) {
+				incremental.lookahead(x, y, STEP, point);
+				x = point[0];
+				y = point[1];
+				// Something shows up two meters or so ahead.
+				if (steps % 10 == 0) {
+					incremental.lookahead(x, y, 1.5 + random.nextDouble(),
+							point);
+					addBox(map, point[0], point[1], 0.1);
+				}
+				if (!incremental.replan(x, y)) {
+					break;
+				}
+				repair.record(incremental.getLastPlanTime());
+				if (!finish(incremental, x, y, repair)) {
+					break;
+				}
+
+				scratch.center(0, 0);
+				scratch.plan(x, y, goalX, goalY);
+				fresh.record(scratch.getLastPlanTime());
+				finish(scratch, x, y, fresh);
+				plans++;
+				double a = incremental.getPathCost(x, y);
+				double b = scratch.getPathCost(x, y);
+				if (a != b) {
+					throw new IllegalStateException("Repaired plan costs " + a
+							+ ", new plan " + b);
+				}
+				steps++;
+			}
+			System.out.println((round < 0 ? "Warmup " : "Round ") + round
+					+ ": " + steps + " steps to "
+					+ String.format("%.2f, %.2f", x, y));
+		}
+		System.out.println("Plan from scratch: " + fresh.summary());
+		System.out.println("Incremental repair: " + repair.summary());
+		System.out.println(String.format(
+				"%.1f calls per plan from scratch", fresh.getCount()
+						/ (double) plans));
+	}
+
+	/**
+	 * Calls replan until the plan is ready, recording the time of every
+	 * call.
+	 *
+	 * @return false if the goal can not be reached
+	 */
+	private static boolean finish(LocalPlanner planner, double x, double y,
+			LatencyRecorder times) {
+		while (!planner.isReady()) {
+			if (!planner.replan(x, y)) {
+				return false;
+			}
+			times.record(planner.getLastPlanTime());
+		}
+		return true;
+	}
+
+	/**
+	 * Builds a room with walls and random boxes, keeping the corners the
+	 * robot starts and ends in free.
+	 */
+	private static OccupancyGrid room(Random random) {
+		OccupancyGrid map = new OccupancyGrid(RESOLUTION);
+		for (double t = -9.8; t <= 9.8; t += RESOLUTION) {
+			mark(map, t, -9.8);
+			mark(map, t, 9.8);
+			mark(map, -9.8, t);
+			mark(map, 9.8, t);
+		}
+		for (int i = 0; i < OBSTACLES; i++) {
+			double cx = -8 + 16 * random.nextDouble();
+			double cy = -8 + 16 * random.nextDouble();
+			addBox(map, cx, cy, 0.2 + 0.6 * random.nextDouble());
+		}
+		return map;
+	}
+
+	private static void addBox(OccupancyGrid map, double cx, double cy,
+			double half) {
+		for (double x = cx - half; x <= cx + half; x += RESOLUTION) {
+			mark(map, x, cy - half);
+			mark(map, x, cy + half);
+		}
+		for (double y = cy - half; y <= cy + half; y += RESOLUTION) {
+			mark(map, cx - half, y);
+			mark(map, cx + half, y);
+		}
+	}
+
+	private static void mark(OccupancyGrid map, double x, double y) {
+		map.setLogOdds(map.cell(x), map.cell(y), OccupancyGrid.LOG_ODDS_LIMIT);
+	}
+}
@@ -0,0 +1,162 @@
+package robot.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * StubRobotServer class A minimal local stand-in for the Lokarria web server
+ * that answers localization and laser requests with fixed replies and accepts
+ * drive commands. It records how long every request spends in the server so
+ * benchmarks can separate server time from transport overhead.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class StubRobotServer {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String LOCALIZATION = "{\"Pose\":{\"Orientation\":"
+			+ "{\"W\":0.9999545216560364,\"X\":0.0000012573361800605198,"
+			+ "\"Y\":4.373754336484126e-8,\"Z\":-0.010504132136702538},"
+			+ "\"Position\":{\"X\":-0.0038328170776367188,"
+			+ "\"Y\":0.007820867002010345,\"Z\":0.07760074734687805}},"
+			+ "\"Status\":4,\"Timestamp\":25743}";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final LatencyRecorder serverLatency;
+	private final byte[] localization;
+	private final byte[] laser;
+
+	/**
+	 * Constructor for StubRobotServer. The server listens on the loopback
+	 * interface once start is called.
+	 *
+	 * @param port
+	 *            port to listen on, 0 picks a free port
+	 * @param capacity
+	 *            number of latency samples to keep
+	 * @throws IOException
+	 */
+	public StubRobotServer(int port, int capacity) throws IOException {
+		// Without this the server writes headers and body in two segments
+		// and every reply waits for a delayed ACK.
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", port),
+				0);
+		executor = Executors.newFixedThreadPool(4);
+		serverLatency = new LatencyRecorder(capacity);
+		localization = localizationReply().getBytes(UTF8);
+		laser = laserReply(271).getBytes(UTF8);
+
+		server.setExecutor(executor);
+		server.createContext("/lokarria/localization", new Reply(localization));
+		server.createContext("/lokarria/laser/echoes", new Reply(laser));
+		server.createContext("/lokarria/differentialdrive", new Reply(null));
+	}
+
+	/**
+	 * Starts answering requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server and its worker threads.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the time spent handling each request inside the server
+	 */
+	public LatencyRecorder getServerLatency() {
+		return serverLatency;
+	}
+
+	/**
+	 * @return the fixed localization reply
+	 */
+	public static String localizationReply() {
+		return LOCALIZATION;
+	}
+
+	/**
+	 * Builds a laser reply with the given number of echoes in the same shape
+	 * as Lokarria, mixing integer and decimal values.
+	 *
+	 * @param beams
+	 *            number of echoes
+	 * @return the JSON reply
+	 */
+	public static String laserReply(int beams) {
+		StringBuilder sb = new StringBuilder("{\"Echoes\":[");
+		for (int i = 0; i < beams; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			if (i % 10 == 0) {
+				sb.append(4);
+			} else {
+				sb.append(1.5 + (i % 37) * 0.0625);
+			}
+		}
+		return sb.append("],\"Timestamp\":25743}").toString();
+	}
+
+	/**
+	 * Handler answering with a fixed body, or with an empty body after reading
+	 * the request when no body is given.
+	 */
+	private class Reply implements HttpHandler {
+
+		private final byte[] body;
+
+		private Reply(byte[] body) {
+			this.body = body;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			long start = System.nanoTime();
+			InputStream in = exchange.getRequestBody();
+			byte[] buffer = new byte[512];
+			while (in.read(buffer) != -1) {
+			}
+			in.close();
+
+			exchange.getResponseHeaders().set("Content-Type",
+					"application/json");
+			if (body == null) {
+				exchange.sendResponseHeaders(204, -1);
+			} else {
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+			exchange.close();
+			serverLatency.record(System.nanoTime() - start);
+		}
+	}
+}
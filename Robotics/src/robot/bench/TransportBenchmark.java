@@ -0,0 +1,103 @@
+package robot.bench;
+
+import robot.comm.KeepAliveTransport;
+import robot.comm.Transport;
+import robot.comm.UrlConnectionTransport;
+import suppliedFiles.DifferentialDriveRequest;
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+import suppliedFiles.RobotCommunication;
+
+/**
+ * TransportBenchmark class Runs the same request pattern as one control loop
+ * tick (localization, laser, drive command) against a StubRobotServer, first
+ * with a new connection per request and then with the keep-alive transport,
+ * and prints the client and server side latencies.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class TransportBenchmark {
+
+	private static final int WARMUP_TICKS = 500;
+
+	/**
+	 * Main runs the benchmark.
+	 *
+	 * @param args
+	 *            optional number of measured ticks, default 5000
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		StubRobotServer stub = new StubRobotServer(0, ticks * 3);
+		stub.start();
+		String host = "http://127.0.0.1";
+		int port = stub.getPort();
+
+		try {
+			run("per-request", new UrlConnectionTransport(host, port), stub,
+					ticks);
+			run("keep-alive", new KeepAliveTransport(host, port), stub, ticks);
+		} finally {
+			stub.stop();
+		}
+	}
+
+	/**
+	 * Runs warmup and measured ticks on one transport and prints the result.
+	 *
+	 * @param name
+	 *            label for the printout
+	 * @param transport
+	 *            the transport to measure
+	 * @param stub
+	 *            the server, used for its latency recorder
+	 * @param ticks
+	 *            number of measured ticks
+	 * @throws Exception
+	 */
+	private static void run(String name, Transport transport,
+			StubRobotServer stub, int ticks) throws Exception {
+		RobotCommunication robotComm = new RobotCommunication(transport);
+		LatencyRecorder localization = new LatencyRecorder(ticks);
+		LatencyRecorder laser = new LatencyRecorder(ticks);
+		LatencyRecorder drive = new LatencyRecorder(ticks);
+		LatencyRecorder tick = new LatencyRecorder(ticks);
+		LocalizationResponse lr = new LocalizationResponse();
+		LaserEchoesResponse ler = new LaserEchoesResponse();
+		DifferentialDriveRequest ddr = new DifferentialDriveRequest();
+
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			robotComm.getResponse(lr);
+			robotComm.getResponse(ler);
+			robotComm.putRequest(ddr);
+		}
+		stub.getServerLatency().reset();
+
+		for (int i = 0; i < ticks; i++) {
+			long start = System.nanoTime();
+			robotComm.getResponse(lr);
+			long afterLocalization = System.nanoTime();
+			robotComm.getResponse(ler);
+			long afterLaser = System.nanoTime();
+			robotComm.putRequest(ddr);
+			long end = System.nanoTime();
+
+			localization.record(afterLocalization - start);
+			laser.record(afterLaser - afterLocalization);
+			drive.record(end - afterLaser);
+			tick.record(end - start);
+		}
+		robotComm.close();
+
+		System.out.println(name);
+		System.out.println("  localization  " + localization.summary());
+		System.out.println("  laser         " + laser.summary());
+		System.out.println("  drive         " + drive.summary());
+		System.out.println("  tick          " + tick.summary());
+		System.out.println("  server        "
+				+ stub.getServerLatency().summary());
+	}
+}
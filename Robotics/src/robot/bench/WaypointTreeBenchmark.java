@@ -0,0 +1,125 @@
+package robot.bench;
+
+import java.util.Random;
+
+import robot.path.ArrayPath;
+import robot.path.Path;
+import robot.path.WaypointTree;
+
+/**
+ * WaypointTreeBenchmark class Builds a WaypointTree over a long synthetic
+ * survey path and measures nearest-waypoint queries limited to a window of
+ * path indices, the way the controller uses them to re-acquire the path. The
+ * answers are checked against a linear scan.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class WaypointTreeBenchmark {
+
+	private static final int QUERIES = 1000000;
+	private static final int WINDOW = 500;
+
+	/**
+	 * Main runs the benchmark.
+	 *
+	 * @param args
+	 *            optional number of waypoints, default 1000000
+	 */
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		Path path = syntheticPath(n);
+
+		long start = System.nanoTime();
+		WaypointTree tree = new WaypointTree(path);
+		System.out.println(String.format("Built tree over %d waypoints in %.1f ms",
+				n, (System.nanoTime() - start) / 1e6));
+
+		measure("random", tree, path, false);
+		measure("along path", tree, path, true);
+	}
+
+	/**
+	 * Runs nearest-waypoint queries close to the path, either at random
+	 * places or moving along the path as the robot does. The random queries
+	 * land on a part of the tree that is rarely in the cache, so on a long
+	 * path they mostly measure memory latency.
+	 */
+	private static void measure(String label, WaypointTree tree, Path path,
+			boolean ordered) {
+		int n = path.size();
+		Random random = new Random(42);
+		int[] from = new int[QUERIES];
+		double[] qx = new double[QUERIES];
+		double[] qy = new double[QUERIES];
+		for (int q = 0; q < QUERIES; q++) {
+			int i = ordered ? (int) ((long) q * n / QUERIES) : random
+					.nextInt(n);
+			from[q] = Math.max(0, i - WINDOW / 10);
+			qx[q] = path.getX(i) + random.nextGaussian() * 0.5;
+			qy[q] = path.getY(i) + random.nextGaussian() * 0.5;
+		}
+
+		for (int q = 0; q < 1000; q++) {
+			int to = Math.min(n - 1, from[q] + WINDOW);
+			int expected = linearNearest(path, qx[q], qy[q], from[q], to);
+			int actual = tree.nearest(qx[q], qy[q], from[q], to,
+					Double.POSITIVE_INFINITY);
+			if (path.distanceTo(expected, qx[q], qy[q]) != path.distanceTo(
+					actual, qx[q], qy[q])) {
+				throw new IllegalStateException("Wrong answer for query " + q);
+			}
+		}
+
+		long sink = 0;
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			for (int q = 0; q < QUERIES; q++) {
+				sink += tree.nearest(qx[q], qy[q], from[q],
+						Math.min(n - 1, from[q] + WINDOW), 5.0);
+			}
+			System.out.println(String.format(
+					"nearest in window of %d, %s: %.0f ns/query", WINDOW,
+					label, (System.nanoTime() - start) / (double) QUERIES));
+		}
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+
+	/**
+	 * A survey path sweeping back and forth in 100 m lanes 0.5 m apart with a
+	 * waypoint every 2 cm, which is roughly how a long recorded path looks.
+	 */
+	private static Path syntheticPath(int n) {
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] heading = new double[n];
+		long[] timestamp = new long[n];
+		int perLane = 5000;
+		for (int i = 0; i < n; i++) {
+			int lane = i / perLane;
+			double along = (i % perLane) * 0.02;
+			x[i] = lane % 2 == 0 ? along : 100 - along;
+			y[i] = lane * 0.5;
+			heading[i] = lane % 2 == 0 ? 0 : Math.PI;
+			timestamp[i] = i * 20L;
+		}
+		return new ArrayPath(x, y, heading, timestamp, n);
+	}
+
+	private static int linearNearest(Path path, double x, double y, int from,
+			int to) {
+		int best = -1;
+		double bestDist = Double.POSITIVE_INFINITY;
+		for (int i = from; i <= to; i++) {
+			double dist = path.distanceTo(i, x, y);
+			if (dist < bestDist) {
+				bestDist = dist;
+				best = i;
+			}
+		}
+		return best;
+	}
+}
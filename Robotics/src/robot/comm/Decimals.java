@@ -0,0 +1,170 @@
+package robot.comm;
+
+import java.math.BigInteger;
+
+/**
+ * Decimals class Turns the digits and the power of ten of a decimal number
+ * into the closest double, the same as Double.parseDouble, without making a
+ * String or any other object. A number of at most 15 digits with a power of
+ * ten within POWERS_OF_TEN is one exact multiplication or division of two
+ * exact doubles. Anything else of up to 19 digits is rounded with the
+ * algorithm of Eisel and Lemire, which multiplies the digits by a 128 bit
+ * approximation of the power of five and only needs the upper bits of the
+ * product. The powers of five are computed when the class is loaded.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+final class Decimals {
+
+	/**
+	 * Most digits a number may have to be converted here.
+	 */
+	static final int MAX_DIGITS = 19;
+	private static final int EXACT_DIGITS = 15;
+	private static final int MIN_EXPONENT = -64;
+	private static final int MAX_EXPONENT = 64;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final long[] POWERS_OF_FIVE = powersOfFive();
+
+	private Decimals() {
+	}
+
+	/**
+	 * @param digits
+	 *            the digits of the number as an unsigned integer, of which
+	 *            there are at most MAX_DIGITS
+	 * @param count
+	 *            number of digits, leading zeros not counted
+	 * @param exponent
+	 *            the power of ten the digits are multiplied by
+	 * @param negative
+	 *            true if the number is negative
+	 * @return the closest double, or NaN if the number is out of the range
+	 *         handled here and has to be parsed from its text
+	 */
+	static double toDouble(long digits, int count, int exponent,
+			boolean negative) {
+		double value;
+		if (digits == 0) {
+			value = 0;
+		} else if (count <= EXACT_DIGITS && exponent >= -22 && exponent <= 22) {
+			value = exponent < 0 ? digits / POWERS_OF_TEN[-exponent] : digits
+					* POWERS_OF_TEN[exponent];
+		} else if (count <= MAX_DIGITS && exponent >= MIN_EXPONENT
+				&& exponent <= MAX_EXPONENT) {
+			value = eiselLemire(digits, exponent);
+		} else {
+			return Double.NaN;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Rounds digits times ten to the exponent to a double. Follows
+	 * compute_float of the fast_float library.
+	 *
+	 * @return the double, or NaN if the product is too close to a halfway
+	 *         point to tell
+	 */
+	private static double eiselLemire(long digits, int exponent) {
+		int shift = Long.numberOfLeadingZeros(digits);
+		long w = digits << shift;
+		int index = 2 * (exponent - MIN_EXPONENT);
+
+		// The 128 upper bits of w times the power of five. The low word of
+		// the power only matters if the bits kept could carry from it.
+		long high = multiplyHigh(w, POWERS_OF_FIVE[index]);
+		long low = w * POWERS_OF_FIVE[index];
+		long precisionMask = -1L >>> 55;
+		if ((high & precisionMask) == precisionMask) {
+			long carry = multiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+			low += carry;
+			if (unsignedLess(low, carry)) {
+				high++;
+			}
+			if (low == -1L && (exponent < -27 || exponent > 55)) {
+				return Double.NaN;
+			}
+		}
+
+		int upperBit = (int) (high >>> 63);
+		long mantissa = high >>> (upperBit + 9);
+		int power2 = (((152170 + 65536) * exponent) >> 16) + 63 + upperBit
+				- shift + 1023;
+		if (power2 <= 0) {
+			// Subnormal, left to Double.parseDouble.
+			return Double.NaN;
+		}
+		if ((low == 0 || low == 1) && exponent >= -4 && exponent <= 23
+				&& (mantissa & 3) == 1
+				&& mantissa << (upperBit + 9) == high) {
+			// Exactly halfway, round to even.
+			mantissa &= ~1L;
+		}
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= 2L << 52) {
+			mantissa = 1L << 52;
+			power2++;
+		}
+		mantissa &= ~(1L << 52);
+		if (power2 >= 0x7FF) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Double.longBitsToDouble(mantissa | (long) power2 << 52);
+	}
+
+	/**
+	 * @return the upper 64 bits of the unsigned 128 bit product
+	 */
+	private static long multiplyHigh(long x, long y) {
+		long x0 = x & 0xFFFFFFFFL;
+		long x1 = x >>> 32;
+		long y0 = y & 0xFFFFFFFFL;
+		long y1 = y >>> 32;
+		long crossLow = x0 * y1;
+		long middle = x1 * y0 + (x0 * y0 >>> 32) + (crossLow & 0xFFFFFFFFL);
+		return x1 * y1 + (middle >>> 32) + (crossLow >>> 32);
+	}
+
+	private static boolean unsignedLess(long a, long b) {
+		return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+	}
+
+	/**
+	 * Five to every power from MIN_EXPONENT to MAX_EXPONENT as 128 bits
+	 * with the top bit set, upper word first. Positive powers are cut off,
+	 * negative powers are the reciprocal rounded up, as in the tables of
+	 * fast_float.
+	 */
+	private static long[] powersOfFive() {
+		long[] table = new long[2 * (MAX_EXPONENT - MIN_EXPONENT + 1)];
+		BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+		BigInteger five = BigInteger.valueOf(5);
+		for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+			BigInteger c;
+			if (q < 0) {
+				BigInteger power = five.pow(-q);
+				int z = power.bitLength();
+				int b = q >= -27 ? z + 127 : 2 * z + 128;
+				c = BigInteger.ONE.shiftLeft(b).divide(power)
+						.add(BigInteger.ONE);
+				while (c.compareTo(two128) >= 0) {
+					c = c.shiftRight(1);
+				}
+			} else {
+				c = five.pow(q);
+				c = c.shiftLeft(Math.max(0, 128 - c.bitLength())).shiftRight(
+						Math.max(0, c.bitLength() - 128));
+			}
+			int index = 2 * (q - MIN_EXPONENT);
+			table[index] = c.shiftRight(64).longValue();
+			table[index + 1] = c.longValue();
+		}
+		return table;
+	}
+}
@@ -0,0 +1,281 @@
+package robot.comm;
+
+import robot.control.Clock;
+import robot.metrics.Counter;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+
+/**
+ * DriveChannel class Sends the drive commands of the controller on a thread
+ * of its own, so a tick does not wait for the round trip of its command.
+ * Publish hands over a command and returns at once. Only the newest command
+ * is kept: one that is replaced before the sender gets to it is dropped, as
+ * it is already out of date. A command that is within the tolerance of the
+ * one last sent is not sent again, except once every keep-alive interval,
+ * and while nothing new is published the last command is resent at that
+ * interval. A stop is never held back: it replaces whatever is waiting, goes
+ * out as soon as the request in progress is done and waits until the robot
+ * has it, so the robot is known to be stopped when it returns.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class DriveChannel {
+
+	private final RobotLink link;
+	private final Clock clock;
+	private final double tolerance;
+	private final long keepAlive;
+	private final Thread thread;
+	private final DriveCommand sending = new DriveCommand();
+	private double linearSpeed;
+	private double angularSpeed;
+	private boolean pending;
+	private boolean urgent;
+	private boolean running = true;
+	private long published;
+	private long taken;
+	private long delivered;
+	private int status;
+	private Exception failure;
+	private long superseded;
+	private long coalesced;
+	private long sent;
+	private volatile long roundTrip;
+	private Counter supersededCount;
+	private Counter coalescedCount;
+	private Histogram sends;
+
+	/**
+	 * Constructor for DriveChannel. The sender thread starts right away.
+	 *
+	 * @param link
+	 *            the link to the robot, it must allow a request to be sent
+	 *            while other requests are in progress
+	 * @param clock
+	 *            the clock the keep-alive interval is measured on
+	 * @param tolerance
+	 *            largest difference of each speed for a command to count as
+	 *            the same as the one last sent
+	 * @param keepAlive
+	 *            nanoseconds after which the last command is sent again
+	 */
+	public DriveChannel(RobotLink link, Clock clock, double tolerance,
+			long keepAlive) {
+		this.link = link;
+		this.clock = clock;
+		this.tolerance = tolerance;
+		this.keepAlive = keepAlive;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				sendCommands();
+			}
+		}, "drive-channel");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Records the round trip of every command sent into drive.send and
+	 * counts the dropped commands in drive.superseded and drive.coalesced.
+	 * Must be called before the first command.
+	 *
+	 * @param metrics
+	 *            the registry to record into
+	 */
+	public void setMetrics(Metrics metrics) {
+		sends = metrics.histogram("drive.send");
+		supersededCount = metrics.counter("drive.superseded");
+		coalescedCount = metrics.counter("drive.coalesced");
+	}
+
+	/**
+	 * Hands over a command to be sent. The command is copied, so it can be
+	 * changed as soon as this returns. Nothing is allocated and the call
+	 * never waits for a request.
+	 *
+	 * @param command
+	 *            the command
+	 * @throws Exception
+	 *             if sending an earlier command failed
+	 */
+	public void publish(DriveCommand command) throws Exception {
+		synchronized (this) {
+			throwFailure();
+			put(command.getLinearSpeed(), command.getAngularSpeed());
+		}
+	}
+
+	/**
+	 * Sends a stop in place of anything that is waiting and waits until the
+	 * robot has it.
+	 *
+	 * @return response code of the stop, as from the web server
+	 * @throws Exception
+	 *             if the stop could not be sent
+	 */
+	public synchronized int stop() throws Exception {
+		// An earlier failure says nothing about whether the stop arrives
+		failure = null;
+		put(0, 0);
+		urgent = true;
+		long sequence = published;
+		while (delivered < sequence) {
+			wait();
+		}
+		throwFailure();
+		return status;
+	}
+
+	/**
+	 * Sends what is still waiting and stops the sender thread. The link is
+	 * not closed.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void shutdown() throws InterruptedException {
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+		thread.join();
+	}
+
+	/**
+	 * @return number of commands sent to the robot, keep-alives included
+	 */
+	public synchronized long getSent() {
+		return sent;
+	}
+
+	/**
+	 * @return number of commands replaced by a newer one before they were
+	 *         sent
+	 */
+	public synchronized long getSuperseded() {
+		return superseded;
+	}
+
+	/**
+	 * @return number of commands not sent since they were the same as the
+	 *         one last sent
+	 */
+	public synchronized long getCoalesced() {
+		return coalesced;
+	}
+
+	/**
+	 * @return round trip of the last command sent in nanoseconds
+	 */
+	public long getRoundTrip() {
+		return roundTrip;
+	}
+
+	private void put(double linear, double angular) {
+		if (pending) {
+			superseded++;
+			if (supersededCount != null) {
+				supersededCount.increment();
+			}
+		}
+		linearSpeed = linear;
+		angularSpeed = angular;
+		pending = true;
+		published++;
+		notifyAll();
+	}
+
+	/**
+	 * @return true if the waiting command is within the tolerance of the one
+	 *         last sent
+	 */
+	private boolean isSameAsSent() {
+		return Math.abs(linearSpeed - sending.getLinearSpeed()) <= tolerance
+				&& Math.abs(angularSpeed - sending.getAngularSpeed()) <= tolerance;
+	}
+
+	private void throwFailure() throws Exception {
+		Exception e = failure;
+		if (e != null) {
+			failure = null;
+			throw e;
+		}
+	}
+
+	private void sendCommands() {
+		long lastSend = 0;
+		boolean anySent = false;
+		while (true) {
+			boolean force;
+			synchronized (this) {
+				try {
+					while (!pending && running) {
+						if (!anySent) {
+							wait();
+							continue;
+						}
+						long left = keepAlive - (clock.nanoTime() - lastSend);
+						if (left <= 0) {
+							break;
+						}
+						wait(left / 1000000 + 1);
+					}
+				} catch (InterruptedException e) {
+					// Nothing more is sent, release anyone waiting for a stop
+					running = false;
+					failure = e;
+					delivered = published;
+					notifyAll();
+					return;
+				}
+				if (!pending && !running) {
+					return;
+				}
+				force = urgent || !pending
+						|| clock.nanoTime() - lastSend >= keepAlive;
+				if (pending) {
+					if (!force && anySent && isSameAsSent()) {
+						pending = false;
+						delivered = published;
+						coalesced++;
+						if (coalescedCount != null) {
+							coalescedCount.increment();
+						}
+						notifyAll();
+						continue;
+					}
+					sending.set(linearSpeed, angularSpeed);
+					pending = false;
+				}
+				urgent = false;
+				taken = published;
+			}
+
+			long start = clock.nanoTime();
+			int code = 0;
+			Exception error = null;
+			try {
+				code = link.putRequest(sending);
+			} catch (Exception e) {
+				error = e;
+			}
+			lastSend = clock.nanoTime();
+			anySent = true;
+			roundTrip = lastSend - start;
+			if (sends != null) {
+				sends.record(roundTrip);
+			}
+			synchronized (this) {
+				sent++;
+				status = code;
+				if (error != null) {
+					failure = error;
+				}
+				delivered = taken;
+				notifyAll();
+			}
+		}
+	}
+}
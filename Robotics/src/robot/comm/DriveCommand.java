@@ -0,0 +1,149 @@
+package robot.comm;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DriveCommand class A reusable drive command for the differential drive. It
+ * sends the same JSON as DifferentialDriveRequest but keeps the speeds as
+ * primitives and writes the JSON itself, so a command can be set and sent
+ * every tick without creating any objects. Speeds are written with six
+ * decimals.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class DriveCommand implements JsonRequest {
+
+	public static final String PATH = "/lokarria/differentialdrive";
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	private static final byte[] LINEAR = "{\"TargetLinearSpeed\":"
+			.getBytes(ASCII);
+	private static final byte[] ANGULAR = ",\"TargetAngularSpeed\":"
+			.getBytes(ASCII);
+	private static final long SCALE = 1000000;
+	private static final double MAX_SPEED = 1e9;
+
+	private double linearSpeed;
+	private double angularSpeed;
+
+	/**
+	 * Sets both speeds.
+	 *
+	 * @param linearSpeed
+	 *            linear speed in m/s
+	 * @param angularSpeed
+	 *            angular speed in rad/s
+	 */
+	public void set(double linearSpeed, double angularSpeed) {
+		this.linearSpeed = linearSpeed;
+		this.angularSpeed = angularSpeed;
+	}
+
+	/**
+	 * Copies the speeds of another command.
+	 *
+	 * @param command
+	 *            the command to copy
+	 */
+	public void set(DriveCommand command) {
+		set(command.linearSpeed, command.angularSpeed);
+	}
+
+	/**
+	 * @param linearSpeed
+	 *            linear speed in m/s
+	 */
+	public void setLinearSpeed(double linearSpeed) {
+		this.linearSpeed = linearSpeed;
+	}
+
+	/**
+	 * @param angularSpeed
+	 *            angular speed in rad/s
+	 */
+	public void setAngularSpeed(double angularSpeed) {
+		this.angularSpeed = angularSpeed;
+	}
+
+	/**
+	 * @return linear speed in m/s
+	 */
+	public double getLinearSpeed() {
+		return linearSpeed;
+	}
+
+	/**
+	 * @return angular speed in rad/s
+	 */
+	public double getAngularSpeed() {
+		return angularSpeed;
+	}
+
+	@Override
+	public Map<String, Object> getData() {
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("TargetLinearSpeed", linearSpeed);
+		data.put("TargetAngularSpeed", angularSpeed);
+		return data;
+	}
+
+	@Override
+	public String getPath() {
+		return PATH;
+	}
+
+	@Override
+	public int writeJson(byte[] buffer) {
+		int pos = copy(LINEAR, buffer, 0);
+		pos = writeNumber(linearSpeed, buffer, pos);
+		pos = copy(ANGULAR, buffer, pos);
+		pos = writeNumber(angularSpeed, buffer, pos);
+		buffer[pos++] = '}';
+		return pos;
+	}
+
+	private static int copy(byte[] source, byte[] buffer, int pos) {
+		System.arraycopy(source, 0, buffer, pos, source.length);
+		return pos + source.length;
+	}
+
+	/**
+	 * Writes a number with six decimals. Values that are not finite are
+	 * written as 0 since JSON can not hold them and the robot should rather
+	 * stop than get a broken command.
+	 */
+	private static int writeNumber(double value, byte[] buffer, int pos) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			value = 0;
+		}
+		value = Math.max(-MAX_SPEED, Math.min(MAX_SPEED, value));
+		long scaled = Math.round(Math.abs(value) * SCALE);
+		if (value < 0 && scaled != 0) {
+			buffer[pos++] = '-';
+		}
+		pos = writeDigits(scaled / SCALE, buffer, pos, 1);
+		buffer[pos++] = '.';
+		return writeDigits(scaled % SCALE, buffer, pos, 6);
+	}
+
+	/**
+	 * Writes a non-negative number with at least the given number of digits,
+	 * padding with leading zeros.
+	 */
+	private static int writeDigits(long value, byte[] buffer, int pos,
+			int minDigits) {
+		int digits = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		digits = Math.max(digits, minDigits);
+		for (int i = pos + digits - 1; i >= pos; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return pos + digits;
+	}
+}
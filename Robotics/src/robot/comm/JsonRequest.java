@@ -0,0 +1,30 @@
+package robot.comm;
+
+import suppliedFiles.Request;
+
+/**
+ * JsonRequest interface A request that can write itself as JSON into a byte
+ * buffer. RobotCommunication sends such requests without going through
+ * ObjectMapper and the Map returned by getData, so sending them creates no
+ * objects.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public interface JsonRequest extends Request {
+
+	/**
+	 * Largest number of bytes writeJson may write.
+	 */
+	public static final int MAX_JSON_LENGTH = 256;
+
+	/**
+	 * Writes the request as JSON.
+	 *
+	 * @param buffer
+	 *            buffer of at least MAX_JSON_LENGTH bytes
+	 * @return number of bytes written
+	 */
+	public int writeJson(byte[] buffer);
+}
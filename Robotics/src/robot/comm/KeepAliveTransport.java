@@ -0,0 +1,505 @@
+package robot.comm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * KeepAliveTransport class A small HTTP/1.1 client that keeps a few persistent
+ * connections to the Lokarria/MRDS web server and reuses them between
+ * requests. The server address is resolved once and the request header for
+ * every path is built the first time the path is used, so a request only
+ * costs writing the header and reading the reply. Every response is read in
+ * full before the connection goes back to the pool. The status line and
+ * headers are parsed in place from a reused line buffer, so a request with
+ * a reply buffer that is large enough allocates nothing.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class KeepAliveTransport implements Transport {
+
+	public static final int DEFAULT_MAX_IDLE = 4;
+	private static final int CONNECT_TIMEOUT = 2000;
+	private static final int READ_TIMEOUT = 5000;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	private final InetSocketAddress address;
+	private final String hostHeader;
+	private final BlockingQueue<Connection> idle;
+	private final ConcurrentMap<String, byte[]> getHeaders;
+	private final ConcurrentMap<String, byte[]> postHeaders;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor for KeepAliveTransport.
+	 *
+	 * @param host
+	 *            communication IP-address or URL to MRDS, for example
+	 *            http://127.0.0.1
+	 * @param port
+	 *            communication port to MRDS
+	 */
+	public KeepAliveTransport(String host, int port) {
+		this(host, port, DEFAULT_MAX_IDLE);
+	}
+
+	/**
+	 * Constructor for KeepAliveTransport.
+	 *
+	 * @param host
+	 *            communication IP-address or URL to MRDS
+	 * @param port
+	 *            communication port to MRDS
+	 * @param maxIdle
+	 *            number of idle connections kept open for reuse
+	 */
+	public KeepAliveTransport(String host, int port, int maxIdle) {
+		String hostName = parseHostName(host, port);
+		address = new InetSocketAddress(hostName, port);
+		hostHeader = hostName + ":" + port;
+		idle = new ArrayBlockingQueue<Connection>(maxIdle);
+		getHeaders = new ConcurrentHashMap<String, byte[]>();
+		postHeaders = new ConcurrentHashMap<String, byte[]>();
+	}
+
+	@Override
+	public void get(String path, ReplyBuffer body) throws IOException {
+		byte[] header = getHeaders.get(path);
+		if (header == null) {
+			header = ("GET " + path + " HTTP/1.1\r\nHost: " + hostHeader
+					+ "\r\nAccept: application/json\r\n\r\n").getBytes(ASCII);
+			getHeaders.put(path, header);
+		}
+
+		body.reset();
+		int rc = exchange(header, null, 0, 0, body);
+		if (rc >= 400) {
+			throw new IOException("Server returned HTTP response code: " + rc
+					+ " for path: " + path);
+		}
+	}
+
+	@Override
+	public int post(String path, byte[] body, int offset, int length)
+			throws IOException {
+		byte[] header = postHeaders.get(path);
+		if (header == null) {
+			header = ("POST " + path + " HTTP/1.1\r\nHost: " + hostHeader
+					+ "\r\nContent-Type: application/json\r\n"
+					+ "Content-Length: ").getBytes(ASCII);
+			postHeaders.put(path, header);
+		}
+		return exchange(header, body, offset, length, null);
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		Connection connection;
+		while ((connection = idle.poll()) != null) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Sends one request and reads the whole response. A pooled connection may
+	 * have been closed by the server while it was idle, so a failure on a
+	 * reused connection is retried once on a fresh one.
+	 *
+	 * @param header
+	 *            the prepared request header
+	 * @param body
+	 *            the POST body or null for a GET request
+	 * @param offset
+	 *            start of the POST body
+	 * @param length
+	 *            length of the POST body
+	 * @param response
+	 *            where the response body is written, or null to discard it
+	 * @return response code from the web server
+	 * @throws IOException
+	 */
+	private int exchange(byte[] header, byte[] body, int offset, int length,
+			ByteArrayOutputStream response) throws IOException {
+		Connection connection = acquire();
+		try {
+			return connection.exchange(header, body, offset, length, response);
+		} catch (IOException e) {
+			if (!connection.reused) {
+				throw e;
+			}
+		} finally {
+			release(connection);
+		}
+
+		if (response != null) {
+			response.reset();
+		}
+		connection = open();
+		try {
+			return connection.exchange(header, body, offset, length, response);
+		} finally {
+			release(connection);
+		}
+	}
+
+	/**
+	 * Takes an idle connection from the pool or opens a new one if there is
+	 * none.
+	 *
+	 * @return a connection ready for a request
+	 * @throws IOException
+	 */
+	private Connection acquire() throws IOException {
+		if (closed) {
+			throw new IOException("Transport is closed");
+		}
+		Connection connection = idle.poll();
+		if (connection != null) {
+			connection.reused = true;
+			return connection;
+		}
+		return open();
+	}
+
+	/**
+	 * Opens a new connection to the server.
+	 *
+	 * @return the new connection
+	 * @throws IOException
+	 */
+	private Connection open() throws IOException {
+		Socket socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.setKeepAlive(true);
+		socket.setSoTimeout(READ_TIMEOUT);
+		try {
+			socket.connect(address, CONNECT_TIMEOUT);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return new Connection(socket);
+	}
+
+	/**
+	 * Returns a connection to the pool if it can be reused, otherwise closes
+	 * it.
+	 *
+	 * @param connection
+	 *            the connection to release
+	 */
+	private void release(Connection connection) {
+		if (!connection.isOpen()) {
+			return;
+		}
+		if (closed || !connection.keepAlive || !idle.offer(connection)) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Extracts the host name from a host string such as http://127.0.0.1.
+	 *
+	 * @param host
+	 *            host with or without the http scheme
+	 * @param port
+	 *            communication port
+	 * @return the host name
+	 */
+	private static String parseHostName(String host, int port) {
+		if (!host.contains("://")) {
+			return host;
+		}
+		try {
+			URL url = new URL(host + ":" + port);
+			if (!"http".equals(url.getProtocol())) {
+				throw new IllegalArgumentException("Unsupported protocol: "
+						+ url.getProtocol());
+			}
+			return url.getHost();
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * One persistent socket to the server together with its streams.
+	 */
+	private static final class Connection {
+
+		private final Socket socket;
+		private final InputStream in;
+		private final OutputStream out;
+		private final byte[] scratch = new byte[4096];
+		private final StringBuilder line = new StringBuilder(128);
+		private boolean reused;
+		private boolean keepAlive;
+		private boolean persistent;
+		private long contentLength;
+		private boolean chunked;
+
+		private Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			in = new BufferedInputStream(socket.getInputStream(), 8192);
+			out = new BufferedOutputStream(socket.getOutputStream(), 1024);
+		}
+
+		private int exchange(byte[] header, byte[] body, int offset,
+				int length, OutputStream response) throws IOException {
+			// Only a response read to its end leaves the socket reusable,
+			// whatever is thrown on the way.
+			keepAlive = false;
+			out.write(header);
+			if (body != null) {
+				writeDecimal(length);
+				out.write(CRLF);
+				out.write(CRLF);
+				out.write(body, offset, length);
+			}
+			out.flush();
+			return readResponse(response);
+		}
+
+		/**
+		 * Writes a non-negative number in decimal without creating a String.
+		 */
+		private void writeDecimal(int value) throws IOException {
+			int pos = scratch.length;
+			do {
+				scratch[--pos] = (byte) ('0' + value % 10);
+				value /= 10;
+			} while (value > 0);
+			out.write(scratch, pos, scratch.length - pos);
+		}
+
+		/**
+		 * Reads the status line, headers and the whole body of a response.
+		 * The connection is marked for reuse when the body has been read.
+		 *
+		 * @param body
+		 *            where the body is written, or null to discard it
+		 * @return the status code
+		 * @throws IOException
+		 */
+		private int readResponse(OutputStream body) throws IOException {
+			int rc;
+			do {
+				int length = readLine();
+				int start = indexOf(' ', 0, length) + 1;
+				if (!startsWith("HTTP/") || start == 0 || start + 3 > length) {
+					throw new IOException("Malformed status line: " + line);
+				}
+				rc = (int) parseNumber(start, start + 3, 10);
+				persistent = !startsWith("HTTP/1.0");
+				readHeaders();
+			} while (rc == 100);
+
+			if (rc == 204 || rc == 304) {
+				keepAlive = persistent;
+				return rc;
+			}
+			if (chunked) {
+				readChunked(body);
+			} else if (contentLength >= 0) {
+				copy(body, contentLength, false);
+			} else {
+				// No length given, the body ends when the server closes.
+				persistent = false;
+				copy(body, Long.MAX_VALUE, true);
+			}
+			keepAlive = persistent;
+			return rc;
+		}
+
+		private void readHeaders() throws IOException {
+			contentLength = -1;
+			chunked = false;
+			int length;
+			while ((length = readLine()) > 0) {
+				int colon = indexOf(':', 0, length);
+				if (colon < 0) {
+					continue;
+				}
+				if (matches(0, colon, "Content-Length")) {
+					contentLength = parseNumber(colon + 1, length, 10);
+				} else if (matches(0, colon, "Transfer-Encoding")) {
+					chunked = matches(colon + 1, length, "chunked");
+				} else if (matches(0, colon, "Connection")) {
+					if (matches(colon + 1, length, "close")) {
+						persistent = false;
+					} else if (matches(colon + 1, length, "keep-alive")) {
+						persistent = true;
+					}
+				}
+			}
+		}
+
+		private void readChunked(OutputStream body) throws IOException {
+			while (true) {
+				int length = readLine();
+				int ext = indexOf(';', 0, length);
+				long size = parseNumber(0, ext < 0 ? length : ext, 16);
+				if (size == 0) {
+					// Skip trailers up to the empty line.
+					while (readLine() > 0) {
+					}
+					return;
+				}
+				copy(body, size, false);
+				readLine();
+			}
+		}
+
+		private void copy(OutputStream body, long length, boolean untilClose)
+				throws IOException {
+			while (length > 0) {
+				int n = in.read(scratch, 0,
+						(int) Math.min(scratch.length, length));
+				if (n == -1) {
+					if (untilClose) {
+						return;
+					}
+					throw new EOFException("Connection closed mid response");
+				}
+				if (body != null) {
+					body.write(scratch, 0, n);
+				}
+				length -= n;
+			}
+		}
+
+		/**
+		 * Reads a line into the line buffer, without the line break.
+		 *
+		 * @return length of the line
+		 * @throws IOException
+		 */
+		private int readLine() throws IOException {
+			line.setLength(0);
+			int c;
+			while ((c = in.read()) != -1) {
+				if (c == '\n') {
+					int last = line.length() - 1;
+					if (last >= 0 && line.charAt(last) == '\r') {
+						line.setLength(last);
+					}
+					return line.length();
+				}
+				line.append((char) c);
+			}
+			throw new EOFException("Connection closed by server");
+		}
+
+		/**
+		 * @return index of the first c in the line between start and end, or
+		 *         -1 if there is none
+		 */
+		private int indexOf(char c, int start, int end) {
+			for (int i = start; i < end; i++) {
+				if (line.charAt(i) == c) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return true if the line starts with the prefix
+		 */
+		private boolean startsWith(String prefix) {
+			if (line.length() < prefix.length()) {
+				return false;
+			}
+			for (int i = 0; i < prefix.length(); i++) {
+				if (line.charAt(i) != prefix.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return true if the line between start and end is the text, apart
+		 *         from case and surrounding white space
+		 */
+		private boolean matches(int start, int end, String text) {
+			while (start < end && line.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && line.charAt(end - 1) <= ' ') {
+				end--;
+			}
+			if (end - start != text.length()) {
+				return false;
+			}
+			for (int i = 0; i < text.length(); i++) {
+				char a = line.charAt(start + i);
+				char b = text.charAt(i);
+				if (a != b && Character.toLowerCase(a) != Character
+						.toLowerCase(b)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Parses the non-negative number in the line between start and end,
+		 * which may be surrounded by white space.
+		 *
+		 * @return the number
+		 * @throws IOException
+		 *             if there is no number there
+		 */
+		private long parseNumber(int start, int end, int radix)
+				throws IOException {
+			while (start < end && line.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && line.charAt(end - 1) <= ' ') {
+				end--;
+			}
+			if (start == end || end - start > 15) {
+				throw new IOException("Malformed number in: " + line);
+			}
+			long value = 0;
+			for (int i = start; i < end; i++) {
+				int digit = Character.digit(line.charAt(i), radix);
+				if (digit < 0) {
+					throw new IOException("Malformed number in: " + line);
+				}
+				value = value * radix + digit;
+			}
+			return value;
+		}
+
+		private boolean isOpen() {
+			return !socket.isClosed();
+		}
+
+		private void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing more to do with a broken connection.
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package robot.comm;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * ReplyBuffer class A ByteArrayOutputStream that lets the bytes written to it
+ * be read in place. A Transport reads every reply into one of these, and as
+ * the buffer only grows, a buffer kept for the whole run holds the replies
+ * of every tick without a new array for each of them.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ReplyBuffer extends ByteArrayOutputStream {
+
+	/**
+	 * Constructor for ReplyBuffer.
+	 *
+	 * @param size
+	 *            initial capacity in bytes
+	 */
+	public ReplyBuffer(int size) {
+		super(size);
+	}
+
+	/**
+	 * @return the array holding the bytes, of which the first size() are
+	 *         the reply. It is only valid until the next write.
+	 */
+	public synchronized byte[] getBuffer() {
+		return buf;
+	}
+}
@@ -0,0 +1,573 @@
+package robot.comm;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * ResponseDecoder class Decodes localization and laser replies straight into
+ * the typed fields of the responses, instead of into a Map of boxed values.
+ * Only the fields the responses have are read and everything else is
+ * skipped, so a reply with more fields than expected still decodes. Numbers
+ * are read whether Lokarria wrote them with a decimal point or not. A reply
+ * is scanned byte by byte in place, since a Jackson parser is a handful of
+ * objects that can not be reused for the next reply, so decoding allocates
+ * nothing. Recorded paths, which are far larger, are read with the Jackson
+ * streaming parser through readLocalization, and decimal numbers are read
+ * from the text of the parser without the String that getDoubleValue makes
+ * for each of them. Both ways round numbers with Decimals. Each thread
+ * decodes into its own scratch arrays, so one decoder can serve the pose and
+ * the laser thread at once.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ResponseDecoder {
+
+	/**
+	 * Number of values readLocalization fills in: position x, y, z,
+	 * orientation w, x, y, z and the status.
+	 */
+	public static final int POSE_VALUES = 8;
+	private static final int STATUS = 7;
+	private static final int INITIAL_ECHOES = 512;
+	private static final int MAX_DEPTH = 64;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	/**
+	 * Decodes a localization reply.
+	 *
+	 * @param body
+	 *            the JSON reply
+	 * @param length
+	 *            number of bytes of the reply
+	 * @param r
+	 *            response to fill in
+	 * @throws JsonParseException
+	 *             if the reply is not a JSON object
+	 * @throws IOException
+	 */
+	public void decode(byte[] body, int length, LocalizationResponse r)
+			throws JsonParseException, IOException {
+		Scratch s = scratch.get();
+		double[] pose = s.pose;
+		Arrays.fill(pose, 0, POSE_VALUES, 0);
+		pose[3] = 1;
+		long timestamp = 0;
+		Reader in = s.reader.begin(body, length);
+		if (!in.beginObject()) {
+			throw in.error("Expected a localization object");
+		}
+		while (in.nextField()) {
+			if (in.isField("Pose") && in.beginObject()) {
+				while (in.nextField()) {
+					if (in.isField("Position") && in.beginObject()) {
+						readVector(in, pose, 0, "X", "Y", "Z", null);
+					} else if (in.isField("Orientation") && in.beginObject()) {
+						readVector(in, pose, 3, "W", "X", "Y", "Z");
+					} else {
+						in.skipValue();
+					}
+				}
+			} else if (in.isField("Timestamp") || in.isField("TimeStamp")) {
+				timestamp = (long) in.readNumber();
+			} else if (in.isField("Status")) {
+				pose[STATUS] = (int) in.readNumber();
+			} else {
+				in.skipValue();
+			}
+		}
+		r.setPose(pose, (int) pose[STATUS], timestamp);
+	}
+
+	/**
+	 * Decodes a laser reply.
+	 *
+	 * @param body
+	 *            the JSON reply
+	 * @param length
+	 *            number of bytes of the reply
+	 * @param r
+	 *            response to fill in
+	 * @throws JsonParseException
+	 *             if the reply is not a JSON object
+	 * @throws IOException
+	 */
+	public void decode(byte[] body, int length, LaserEchoesResponse r)
+			throws JsonParseException, IOException {
+		Scratch s = scratch.get();
+		Reader in = s.reader.begin(body, length);
+		if (!in.beginObject()) {
+			throw in.error("Expected a laser object");
+		}
+		long timestamp = 0;
+		int count = 0;
+		while (in.nextField()) {
+			if (in.isField("Echoes") && in.beginArray()) {
+				while (in.nextElement()) {
+					if (count == s.echoes.length) {
+						s.echoes = Arrays.copyOf(s.echoes, count * 2);
+					}
+					s.echoes[count++] = in.readNumber();
+				}
+			} else if (in.isField("Timestamp") || in.isField("TimeStamp")) {
+				timestamp = (long) in.readNumber();
+			} else {
+				in.skipValue();
+			}
+		}
+		r.setEchoes(s.echoes, count, timestamp);
+	}
+
+	/**
+	 * Reads one localization object, as replied by the localization service
+	 * and recorded in path files. The parser must be positioned on the
+	 * START_OBJECT of the record and is left on its END_OBJECT.
+	 *
+	 * @param parser
+	 *            the parser
+	 * @param pose
+	 *            at least POSE_VALUES values, filled with the position x, y,
+	 *            z, the orientation w, x, y, z and the status. Missing
+	 *            values are 0, except the orientation, which is the identity
+	 * @return the timestamp of the record, or 0 if it has none
+	 * @throws IOException
+	 */
+	public static long readLocalization(JsonParser parser, double[] pose)
+			throws IOException {
+		long timestamp = 0;
+		Arrays.fill(pose, 0, POSE_VALUES, 0);
+		pose[3] = 1;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("Pose".equals(field) && value == JsonToken.START_OBJECT) {
+				readPose(parser, pose);
+			} else if ("Timestamp".equals(field) || "TimeStamp".equals(field)) {
+				timestamp = parser.getLongValue();
+			} else if ("Status".equals(field)) {
+				pose[STATUS] = parser.getIntValue();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return timestamp;
+	}
+
+	private static void readPose(JsonParser parser, double[] pose)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("Position".equals(field) && value == JsonToken.START_OBJECT) {
+				readVector(parser, pose, 0, "X", "Y", "Z", null);
+			} else if ("Orientation".equals(field)
+					&& value == JsonToken.START_OBJECT) {
+				readVector(parser, pose, 3, "W", "X", "Y", "Z");
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Reads the named number fields of an object into consecutive slots of
+	 * the target array, skipping all other fields.
+	 */
+	private static void readVector(JsonParser parser, double[] target,
+			int offset, String first, String second, String third,
+			String fourth) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if (field.equals(first)) {
+				target[offset] = readDouble(parser);
+			} else if (field.equals(second)) {
+				target[offset + 1] = readDouble(parser);
+			} else if (field.equals(third)) {
+				target[offset + 2] = readDouble(parser);
+			} else if (field.equals(fourth)) {
+				target[offset + 3] = readDouble(parser);
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Reads the named number fields of an object from a reply into
+	 * consecutive slots of the target array, skipping all other fields.
+	 */
+	private static void readVector(Reader in, double[] target, int offset,
+			String first, String second, String third, String fourth)
+			throws IOException {
+		while (in.nextField()) {
+			if (in.isField(first)) {
+				target[offset] = in.readNumber();
+			} else if (in.isField(second)) {
+				target[offset + 1] = in.readNumber();
+			} else if (in.isField(third)) {
+				target[offset + 2] = in.readNumber();
+			} else if (fourth != null && in.isField(fourth)) {
+				target[offset + 3] = in.readNumber();
+			} else {
+				in.skipValue();
+			}
+		}
+	}
+
+	/**
+	 * Reads the current number token. A decimal number is converted by
+	 * Decimals, which rounds it the same as Double.parseDouble. Anything it
+	 * does not handle is left to the parser.
+	 */
+	private static double readDouble(JsonParser parser) throws IOException {
+		if (parser.getCurrentToken() != JsonToken.VALUE_NUMBER_FLOAT) {
+			return parser.getDoubleValue();
+		}
+		char[] text = parser.getTextCharacters();
+		int i = parser.getTextOffset();
+		int end = i + parser.getTextLength();
+		boolean negative = i < end && text[i] == '-';
+		if (negative) {
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			char c = text[i];
+			if (c >= '0' && c <= '9') {
+				if (mantissa != 0 || c != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (c - '0');
+				if (fraction) {
+					exponent--;
+				}
+				if (digits > Decimals.MAX_DIGITS) {
+					return parser.getDoubleValue();
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if (i < end) {
+			if (text[i] != 'e' && text[i] != 'E' || ++i == end) {
+				return parser.getDoubleValue();
+			}
+			boolean negativeExponent = text[i] == '-';
+			if (negativeExponent || text[i] == '+') {
+				i++;
+			}
+			int e = 0;
+			for (; i < end && e < 1000; i++) {
+				char c = text[i];
+				if (c < '0' || c > '9') {
+					return parser.getDoubleValue();
+				}
+				e = e * 10 + (c - '0');
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		double value = i < end ? Double.NaN : Decimals.toDouble(mantissa,
+				digits, exponent, negative);
+		return Double.isNaN(value) ? parser.getDoubleValue() : value;
+	}
+
+	/**
+	 * Arrays one thread decodes into.
+	 */
+	private static class Scratch {
+
+		private final double[] pose = new double[POSE_VALUES];
+		private final Reader reader = new Reader();
+		private double[] echoes = new double[INITIAL_ECHOES];
+	}
+
+	/**
+	 * A cursor over the bytes of a reply that reads the JSON values the
+	 * decoder asks for in place. The field name last read is kept as its
+	 * position in the reply and compared with isField, so no String is made
+	 * for it. Numbers are read with the same exact fast path as readDouble.
+	 */
+	private static class Reader {
+
+		private byte[] in;
+		private int pos;
+		private int end;
+		private int nameStart;
+		private int nameEnd;
+		private boolean first;
+
+		private Reader begin(byte[] body, int length) {
+			in = body;
+			pos = 0;
+			end = length;
+			return this;
+		}
+
+		/**
+		 * Enters the object that is the next value, or skips the value if it
+		 * is something else.
+		 *
+		 * @return true if an object was entered
+		 */
+		private boolean beginObject() throws IOException {
+			if (peek() != '{') {
+				skipValue();
+				return false;
+			}
+			pos++;
+			first = true;
+			return true;
+		}
+
+		/**
+		 * Enters the array that is the next value, or skips the value if it
+		 * is something else.
+		 *
+		 * @return true if an array was entered
+		 */
+		private boolean beginArray() throws IOException {
+			if (peek() != '[') {
+				skipValue();
+				return false;
+			}
+			pos++;
+			first = true;
+			return true;
+		}
+
+		/**
+		 * Moves to the next field of the object entered last and reads its
+		 * name.
+		 *
+		 * @return false at the end of the object, which is then left
+		 */
+		private boolean nextField() throws IOException {
+			int c = peek();
+			if (c == '}') {
+				pos++;
+				first = false;
+				return false;
+			}
+			if (!first) {
+				expect(',');
+				c = peek();
+			}
+			first = false;
+			if (c != '"') {
+				throw error("Expected a field name");
+			}
+			nameStart = pos + 1;
+			skipString();
+			nameEnd = pos - 1;
+			expect(':');
+			return true;
+		}
+
+		/**
+		 * Moves to the next element of the array entered last.
+		 *
+		 * @return false at the end of the array, which is then left
+		 */
+		private boolean nextElement() throws IOException {
+			if (peek() == ']') {
+				pos++;
+				first = false;
+				return false;
+			}
+			if (!first) {
+				expect(',');
+			}
+			first = false;
+			return true;
+		}
+
+		/**
+		 * @return true if the field name last read is the name, which must be
+		 *         plain ASCII
+		 */
+		private boolean isField(String name) {
+			if (nameEnd - nameStart != name.length()) {
+				return false;
+			}
+			for (int i = 0; i < name.length(); i++) {
+				if (in[nameStart + i] != name.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Reads a number value. It is converted by Decimals, and anything
+		 * Decimals does not handle is left to Double.parseDouble.
+		 *
+		 * @return the number
+		 */
+		private double readNumber() throws IOException {
+			peek();
+			int start = pos;
+			int i = start;
+			boolean negative = i < end && in[i] == '-';
+			if (negative) {
+				i++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean fraction = false;
+			boolean exact = true;
+			for (; i < end; i++) {
+				int c = in[i];
+				if (c >= '0' && c <= '9') {
+					if (mantissa != 0 || c != '0') {
+						digits++;
+					}
+					if (digits > Decimals.MAX_DIGITS) {
+						exact = false;
+					}
+					mantissa = mantissa * 10 + (c - '0');
+					if (fraction) {
+						exponent--;
+					}
+				} else if (c == '.' && !fraction) {
+					fraction = true;
+				} else {
+					break;
+				}
+			}
+			if (i < end && (in[i] == 'e' || in[i] == 'E')) {
+				i++;
+				boolean negativeExponent = i < end && in[i] == '-';
+				if (i < end && (in[i] == '-' || in[i] == '+')) {
+					i++;
+				}
+				int e = 0;
+				for (; i < end && in[i] >= '0' && in[i] <= '9'; i++) {
+					if (e < 1000) {
+						e = e * 10 + (in[i] - '0');
+					}
+				}
+				exponent += negativeExponent ? -e : e;
+			}
+			pos = i;
+			if (i == start || in[i - 1] < '0' || in[i - 1] > '9') {
+				throw error("Expected a number");
+			}
+			double value = exact ? Decimals.toDouble(mantissa, digits,
+					exponent, negative) : Double.NaN;
+			if (Double.isNaN(value)) {
+				return Double.parseDouble(new String(in, start, i - start,
+						ASCII));
+			}
+			return value;
+		}
+
+		/**
+		 * Skips the next value, with everything in it.
+		 */
+		private void skipValue() throws IOException {
+			int depth = 0;
+			do {
+				int c = peek();
+				switch (c) {
+				case '{':
+				case '[':
+					if (++depth > MAX_DEPTH) {
+						throw error("Nested too deep");
+					}
+					pos++;
+					continue;
+				case '}':
+				case ']':
+					pos++;
+					depth--;
+					break;
+				case '"':
+					skipString();
+					break;
+				case -1:
+					throw error("Unexpected end of reply");
+				default:
+					// A number or true, false or null.
+					while (pos < end && in[pos] > ' ' && in[pos] != ','
+							&& in[pos] != '}' && in[pos] != ']') {
+						pos++;
+					}
+					break;
+				}
+				if (depth > 0) {
+					// Inside a container the separators and the names of
+					// its fields are passed over as well.
+					c = peek();
+					if (c == ',' || c == ':') {
+						pos++;
+					}
+				}
+			} while (depth > 0);
+		}
+
+		/**
+		 * Skips the string starting at the current position, escapes
+		 * included.
+		 */
+		private void skipString() throws IOException {
+			pos++;
+			while (pos < end) {
+				byte c = in[pos++];
+				if (c == '"') {
+					return;
+				}
+				if (c == '\\') {
+					pos++;
+				}
+			}
+			throw error("Unterminated string");
+		}
+
+		private void expect(char c) throws IOException {
+			if (peek() != c) {
+				throw error("Expected '" + c + "'");
+			}
+			pos++;
+		}
+
+		/**
+		 * Skips white space.
+		 *
+		 * @return the next byte, or -1 at the end of the reply
+		 */
+		private int peek() {
+			while (pos < end && in[pos] <= ' ' && in[pos] >= 0) {
+				pos++;
+			}
+			return pos < end ? in[pos] : -1;
+		}
+
+		private JsonParseException error(String message) {
+			return new JsonParseException(message + " at byte " + pos,
+					null);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package robot.comm;
+
+import suppliedFiles.Request;
+import suppliedFiles.Response;
+
+/**
+ * RobotLink interface The Request/Response contract the controller uses to
+ * talk to a robot. RobotCommunication implements it over HTTP and JSON to a
+ * Lokarria/MRDS web server, while in-process links hand typed values
+ * straight to a robot running in the same JVM. The controller does not know
+ * which one it runs on.
+ *
+ * Implementations must allow getResponse to be called from two threads at
+ * once, since SensorFetcher fetches the pose and the laser concurrently.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public interface RobotLink {
+
+	/**
+	 * Sends a request to the robot.
+	 *
+	 * @param r
+	 *            request to send
+	 * @return response code, as from the web server
+	 * @throws Exception
+	 */
+	public int putRequest(Request r) throws Exception;
+
+	/**
+	 * Gets a response from the robot.
+	 *
+	 * @param r
+	 *            response to fill in
+	 * @return response same as parameter
+	 * @throws Exception
+	 */
+	public Response getResponse(Response r) throws Exception;
+
+	/**
+	 * Releases the connection to the robot.
+	 */
+	public void close();
+}
@@ -0,0 +1,229 @@
+package robot.comm;
+
+import robot.control.Clock;
+import robot.control.SystemClock;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+
+/**
+ * SensorFetcher class Fetches the localization and the laser echoes of one
+ * tick concurrently so the controller waits for a single round trip instead
+ * of two. The laser request runs on a helper thread of its own while the
+ * calling thread fetches the pose. The two threads meet through fields of
+ * the fetcher, so a fetch allocates nothing, and a fetch does not return
+ * before the helper is done with the snapshot, not even when it fails. The
+ * time between the two samples is tracked so it is possible to see how well
+ * the pose and the scan match.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class SensorFetcher {
+
+	private final RobotLink robotComm;
+	private final Clock clock;
+	private final Thread thread;
+	private SensorSnapshot laserSnapshot;
+	private boolean laserPending;
+	private boolean running = true;
+	private long laserTime;
+	private Throwable laserFailure;
+	private long fetches;
+	private long skewSum;
+	private long maxSkew;
+	private long lastSkew;
+	private Histogram localizationFetches;
+	private Histogram laserFetches;
+
+	/**
+	 * Constructor for SensorFetcher on the system clock.
+	 *
+	 * @param robotComm
+	 *            the link to the robot, it must allow concurrent requests
+	 */
+	public SensorFetcher(RobotLink robotComm) {
+		this(robotComm, SystemClock.INSTANCE);
+	}
+
+	/**
+	 * Constructor for SensorFetcher.
+	 *
+	 * @param robotComm
+	 *            the link to the robot, it must allow concurrent requests
+	 * @param clock
+	 *            the clock the sample times are taken from
+	 */
+	public SensorFetcher(RobotLink robotComm, Clock clock) {
+		this.robotComm = robotComm;
+		this.clock = clock;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				fetchLasers();
+			}
+		}, "laser-fetch");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * SetMetrics makes the fetcher record how long every request takes into
+	 * fetch.localization and fetch.laser. It must be called before the
+	 * first fetch.
+	 *
+	 * @param metrics
+	 *            the registry to record into
+	 */
+	public void setMetrics(Metrics metrics) {
+		localizationFetches = metrics.histogram("fetch.localization");
+		laserFetches = metrics.histogram("fetch.laser");
+	}
+
+	/**
+	 * Fetches a new pose and laser scan into the snapshot.
+	 *
+	 * @param snapshot
+	 *            the snapshot to fill in
+	 * @return the same snapshot as the parameter
+	 * @throws Exception
+	 *             if any of the requests fail
+	 */
+	public SensorSnapshot fetch(SensorSnapshot snapshot) throws Exception {
+		synchronized (this) {
+			if (!running) {
+				throw new IllegalStateException("SensorFetcher is shut down");
+			}
+			laserSnapshot = snapshot;
+			laserFailure = null;
+			laserPending = true;
+			notifyAll();
+		}
+
+		long start = clock.nanoTime();
+		try {
+			robotComm.getResponse(snapshot.getLocalization());
+		} catch (Exception e) {
+			// The laser request must not go on writing into the snapshot
+			// after the caller has seen the failure.
+			awaitLaser();
+			throw e;
+		}
+		long end = clock.nanoTime();
+		long localizationTime = start + (end - start) / 2;
+		if (localizationFetches != null) {
+			localizationFetches.record(end - start);
+		}
+
+		Throwable failure = awaitLaser();
+		if (failure instanceof Exception) {
+			throw (Exception) failure;
+		} else if (failure != null) {
+			throw (Error) failure;
+		}
+		snapshot.setTimes(localizationTime, laserTime);
+
+		lastSkew = snapshot.getSkew();
+		skewSum += lastSkew;
+		maxSkew = Math.max(maxSkew, lastSkew);
+		fetches++;
+		return snapshot;
+	}
+
+	/**
+	 * @return time between pose and scan in the latest snapshot, in
+	 *         nanoseconds
+	 */
+	public long getLastSkew() {
+		return lastSkew;
+	}
+
+	/**
+	 * @return mean time between pose and scan over all snapshots, in
+	 *         nanoseconds
+	 */
+	public long getMeanSkew() {
+		return fetches == 0 ? 0 : skewSum / fetches;
+	}
+
+	/**
+	 * @return largest time between pose and scan seen, in nanoseconds
+	 */
+	public long getMaxSkew() {
+		return maxSkew;
+	}
+
+	/**
+	 * @return number of snapshots fetched
+	 */
+	public long getFetches() {
+		return fetches;
+	}
+
+	/**
+	 * Stops the helper thread once the request in progress, if any, is done.
+	 */
+	public void shutdown() {
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until the helper is done with the laser request of the current
+	 * fetch.
+	 *
+	 * @return what the laser request threw, or null if it succeeded
+	 * @throws InterruptedException
+	 */
+	private synchronized Throwable awaitLaser() throws InterruptedException {
+		while (laserPending) {
+			wait();
+		}
+		laserSnapshot = null;
+		return laserFailure;
+	}
+
+	/**
+	 * Runs on the helper thread: fetches the laser echoes of every snapshot
+	 * handed over and stores the sample time.
+	 */
+	private void fetchLasers() {
+		while (true) {
+			SensorSnapshot snapshot;
+			synchronized (this) {
+				while (!laserPending && running) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						running = false;
+					}
+				}
+				if (!laserPending) {
+					return;
+				}
+				snapshot = laserSnapshot;
+			}
+
+			long start = clock.nanoTime();
+			Throwable failure = null;
+			try {
+				robotComm.getResponse(snapshot.getLaser());
+			} catch (Throwable t) {
+				failure = t;
+			}
+			long end = clock.nanoTime();
+			if (failure == null && laserFetches != null) {
+				laserFetches.record(end - start);
+			}
+
+			synchronized (this) {
+				laserTime = start + (end - start) / 2;
+				laserFailure = failure;
+				laserPending = false;
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package robot.comm;
+
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+
+/**
+ * SensorSnapshot class A localization response and a laser response fetched
+ * together in one tick, with the local time each of them was sampled. The
+ * sample time of a response is taken as the midpoint of its request, which is
+ * the best estimate of when the server produced it.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class SensorSnapshot {
+
+	private final LocalizationResponse localization;
+	private final LaserEchoesResponse laser;
+	private long localizationTime;
+	private long laserTime;
+
+	/**
+	 * Constructor for SensorSnapshot. The responses are refilled on every
+	 * fetch so the same snapshot can be used for the whole run.
+	 *
+	 * @param localization
+	 *            response to fill with the robot pose
+	 * @param laser
+	 *            response to fill with the laser echoes
+	 */
+	public SensorSnapshot(LocalizationResponse localization,
+			LaserEchoesResponse laser) {
+		this.localization = localization;
+		this.laser = laser;
+	}
+
+	/**
+	 * @return the robot pose of this snapshot
+	 */
+	public LocalizationResponse getLocalization() {
+		return localization;
+	}
+
+	/**
+	 * @return the laser echoes of this snapshot
+	 */
+	public LaserEchoesResponse getLaser() {
+		return laser;
+	}
+
+	/**
+	 * @return System.nanoTime when the pose was sampled
+	 */
+	public long getLocalizationTime() {
+		return localizationTime;
+	}
+
+	/**
+	 * @return System.nanoTime when the laser scan was sampled
+	 */
+	public long getLaserTime() {
+		return laserTime;
+	}
+
+	/**
+	 * @return how far apart in time the pose and the scan are, in nanoseconds
+	 */
+	public long getSkew() {
+		return Math.abs(localizationTime - laserTime);
+	}
+
+	void setTimes(long localizationTime, long laserTime) {
+		this.localizationTime = localizationTime;
+		this.laserTime = laserTime;
+	}
+}
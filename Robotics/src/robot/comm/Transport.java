@@ -0,0 +1,52 @@
+package robot.comm;
+
+import java.io.IOException;
+
+/**
+ * Transport interface The byte level connection used by RobotCommunication to
+ * reach the Lokarria/MRDS web server. Implementations decide how connections
+ * are opened and whether they are kept alive between requests, while
+ * RobotCommunication only deals with encoding and decoding JSON.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public interface Transport {
+
+	/**
+	 * Sends a GET request to the given path and reads the whole response body.
+	 *
+	 * @param path
+	 *            the path on the server, for example /lokarria/localization
+	 * @param body
+	 *            buffer that is emptied and filled with the complete
+	 *            response body
+	 * @throws IOException
+	 *             if the request fails or the server answers with an error
+	 */
+	public void get(String path, ReplyBuffer body) throws IOException;
+
+	/**
+	 * Sends a POST request with a JSON body to the given path.
+	 *
+	 * @param path
+	 *            the path on the server
+	 * @param body
+	 *            buffer holding the JSON body
+	 * @param offset
+	 *            start of the body in the buffer
+	 * @param length
+	 *            number of bytes to send
+	 * @return response code from the web server
+	 * @throws IOException
+	 *             if the request fails
+	 */
+	public int post(String path, byte[] body, int offset, int length)
+			throws IOException;
+
+	/**
+	 * Releases any connections held by the transport.
+	 */
+	public void close();
+}
@@ -0,0 +1,76 @@
+package robot.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * UrlConnectionTransport class Opens a new HttpURLConnection for every request
+ * the same way the original RobotCommunication did. It is kept as a fallback
+ * for servers that do not handle persistent connections and as the baseline
+ * in TransportBenchmark.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class UrlConnectionTransport implements Transport {
+
+	private final String baseUrl;
+
+	/**
+	 * Constructor for UrlConnectionTransport.
+	 *
+	 * @param host
+	 *            communication IP-address or URL to MRDS
+	 * @param port
+	 *            communication port to MRDS
+	 */
+	public UrlConnectionTransport(String host, int port) {
+		baseUrl = host + ":" + port;
+	}
+
+	@Override
+	public void get(String path, ReplyBuffer body) throws IOException {
+		URL url = new URL(baseUrl + path);
+		HttpURLConnection connection = (HttpURLConnection) url
+				.openConnection();
+		InputStream in = connection.getInputStream();
+		try {
+			body.reset();
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				body.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public int post(String path, byte[] body, int offset, int length)
+			throws IOException {
+		URL url = new URL(baseUrl + path);
+		HttpURLConnection connection = (HttpURLConnection) url
+				.openConnection();
+
+		connection.setDoOutput(true);
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", "application/json");
+		connection.setUseCaches(false);
+
+		OutputStream out = connection.getOutputStream();
+		out.write(body, offset, length);
+		out.close();
+
+		return connection.getResponseCode();
+	}
+
+	@Override
+	public void close() {
+		// Nothing is kept open between requests.
+	}
+}
@@ -0,0 +1,28 @@
+package robot.control;
+
+/**
+ * Clock interface The time source of the control loop. The system clock is
+ * used on the robot while simulations and replays can run on a virtual clock
+ * that jumps forward instead of sleeping.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public interface Clock {
+
+	/**
+	 * @return current time in nanoseconds, only differences are meaningful
+	 */
+	public long nanoTime();
+
+	/**
+	 * Waits until the clock reaches the given time. Returns at once if that
+	 * time has already passed.
+	 *
+	 * @param deadline
+	 *            time to wait for in nanoseconds
+	 * @throws InterruptedException
+	 */
+	public void sleepUntil(long deadline) throws InterruptedException;
+}
@@ -0,0 +1,269 @@
+package robot.control;
+
+import robot.metrics.Counter;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+
+/**
+ * FixedRateScheduler class Runs a control loop task at a fixed rate. Ticks
+ * start on a fixed grid of deadlines so the phase stays stable, and a tick
+ * that runs past the next deadline counts as an overrun and is handled by
+ * the OverrunPolicy. The scheduler keeps track of how late each tick starts
+ * (jitter) and of overruns and skipped periods. With metrics on, the time,
+ * jitter and allocation of every tick are recorded as well.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class FixedRateScheduler {
+
+	/**
+	 * What to do when a tick runs past the next deadline.
+	 */
+	public enum OverrunPolicy {
+		/**
+		 * Skip the missed periods and continue on the same deadline grid.
+		 */
+		SKIP,
+		/**
+		 * Double the period, up to MAX_DEGRADE times the configured period,
+		 * and go back towards the configured rate after a run of ticks on
+		 * time.
+		 */
+		DEGRADE,
+		/**
+		 * End the run so the robot can be stopped.
+		 */
+		STOP
+	}
+
+	/**
+	 * Task interface One tick of a control loop.
+	 */
+	public interface Task {
+
+		/**
+		 * Runs one tick.
+		 *
+		 * @return false when the task is finished
+		 * @throws Exception
+		 */
+		public boolean tick() throws Exception;
+	}
+
+	public static final int MAX_DEGRADE = 8;
+	private static final int RECOVER_TICKS = 50;
+
+	private final Clock clock;
+	private final long basePeriod;
+	private final OverrunPolicy policy;
+	private volatile boolean stopped;
+	private long period;
+	private long ticks;
+	private long overruns;
+	private long skippedPeriods;
+	private long jitterSum;
+	private long maxJitter;
+	private long maxTickTime;
+	private Histogram tickTimes;
+	private Histogram jitters;
+	private Histogram allocations;
+	private Counter misses;
+	private Counter skips;
+
+	/**
+	 * Constructor for FixedRateScheduler.
+	 *
+	 * @param clock
+	 *            time source
+	 * @param rate
+	 *            ticks per second, for example 20, 50 or 100
+	 * @param policy
+	 *            what to do on overrun
+	 */
+	public FixedRateScheduler(Clock clock, double rate, OverrunPolicy policy) {
+		if (!(rate > 0)) {
+			throw new IllegalArgumentException("Rate must be positive: "
+					+ rate);
+		}
+		this.clock = clock;
+		this.policy = policy;
+		basePeriod = Math.round(1e9 / rate);
+		period = basePeriod;
+	}
+
+	/**
+	 * SetMetrics makes the scheduler record into tick, tick.jitter and
+	 * tick.allocated.bytes, which is what the thread running the ticks
+	 * allocated, and count overruns in deadline.misses and the periods they
+	 * skipped in deadline.skipped. It must be called before run.
+	 *
+	 * @param metrics
+	 *            the registry to record into
+	 */
+	public void setMetrics(Metrics metrics) {
+		tickTimes = metrics.histogram("tick");
+		jitters = metrics.histogram("tick.jitter");
+		allocations = metrics.histogram("tick.allocated.bytes");
+		misses = metrics.counter("deadline.misses");
+		skips = metrics.counter("deadline.skipped");
+	}
+
+	/**
+	 * Runs the task until it is finished, the scheduler is stopped or an
+	 * overrun happens with the STOP policy.
+	 *
+	 * @param task
+	 *            the task to run
+	 * @return true if the task finished, false if the run was cut short
+	 * @throws Exception
+	 *             any exception thrown by the task
+	 */
+	public boolean run(Task task) throws Exception {
+		int onTime = 0;
+		long deadline = clock.nanoTime();
+		while (!stopped) {
+			clock.sleepUntil(deadline);
+			long start = clock.nanoTime();
+			long jitter = start - deadline;
+			jitterSum += jitter;
+			maxJitter = Math.max(maxJitter, jitter);
+			ticks++;
+
+			long allocated = tickTimes != null ? Metrics.allocatedBytes() : 0;
+			boolean more = task.tick();
+			long end = clock.nanoTime();
+			if (tickTimes != null) {
+				allocations.record(Metrics.allocatedBytes() - allocated);
+				tickTimes.record(end - start);
+				jitters.record(jitter);
+			}
+			if (!more) {
+				return true;
+			}
+
+			maxTickTime = Math.max(maxTickTime, end - start);
+			deadline += period;
+			if (end - deadline <= 0) {
+				if (policy == OverrunPolicy.DEGRADE && period > basePeriod
+						&& ++onTime >= RECOVER_TICKS) {
+					period = Math.max(basePeriod, period / 2);
+					onTime = 0;
+				}
+				continue;
+			}
+
+			overruns++;
+			onTime = 0;
+			if (misses != null) {
+				misses.increment();
+			}
+			switch (policy) {
+			case STOP:
+				return false;
+			case DEGRADE:
+				period = Math.min(period * 2, basePeriod * MAX_DEGRADE);
+				deadline = skip(deadline, end);
+				break;
+			case SKIP:
+				deadline = skip(deadline, end);
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skips the periods an overrun has run into, so the next tick is back on
+	 * the grid of deadlines.
+	 *
+	 * @param deadline
+	 *            the deadline the tick ran past
+	 * @param end
+	 *            the time the tick ended
+	 * @return the first deadline after end
+	 */
+	private long skip(long deadline, long end) {
+		long missed = (end - deadline) / period + 1;
+		skippedPeriods += missed;
+		if (skips != null) {
+			skips.add(missed);
+		}
+		return deadline + missed * period;
+	}
+
+	/**
+	 * Makes run return before the next tick. May be called from any thread.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * @return the configured period in nanoseconds
+	 */
+	public long getBasePeriod() {
+		return basePeriod;
+	}
+
+	/**
+	 * @return the period currently used, longer than the configured one while
+	 *         degraded
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	/**
+	 * @return number of ticks run
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return number of ticks that ran past the next deadline
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * @return number of periods skipped because of overruns
+	 */
+	public long getSkippedPeriods() {
+		return skippedPeriods;
+	}
+
+	/**
+	 * @return mean time between deadline and tick start in nanoseconds
+	 */
+	public long getMeanJitter() {
+		return ticks == 0 ? 0 : jitterSum / ticks;
+	}
+
+	/**
+	 * @return largest time between deadline and tick start in nanoseconds
+	 */
+	public long getMaxJitter() {
+		return maxJitter;
+	}
+
+	/**
+	 * @return longest time a tick took in nanoseconds
+	 */
+	public long getMaxTickTime() {
+		return maxTickTime;
+	}
+
+	/**
+	 * @return the statistics on one line
+	 */
+	public String summary() {
+		return String.format("%d ticks at %.1f Hz, jitter mean %dus max %dus,"
+				+ " longest tick %dus, %d overruns, %d periods skipped", ticks,
+				1e9 / basePeriod, getMeanJitter() / 1000, maxJitter / 1000,
+				maxTickTime / 1000, overruns, skippedPeriods);
+	}
+}
@@ -0,0 +1,37 @@
+package robot.control;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SystemClock class A Clock on System.nanoTime. Sleeping parks the thread
+ * until shortly before the deadline and spins for the last part, since parking
+ * alone can overshoot by tens of microseconds.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class SystemClock implements Clock {
+
+	public static final SystemClock INSTANCE = new SystemClock();
+	private static final long SPIN_NANOS = 50000;
+
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void sleepUntil(long deadline) throws InterruptedException {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+		while (deadline - System.nanoTime() > 0) {
+			// Spin the last few microseconds for a precise start.
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package robot.control;
+
+/**
+ * VirtualClock class A Clock that only moves when it is slept on. Sleeping
+ * jumps the time straight to the deadline, so a control loop on it runs as
+ * fast as the ticks can be computed and every tick takes no time at all,
+ * which makes runs repeatable. With a speed factor the clock also keeps
+ * pace with the system clock, running that many times faster than real
+ * time.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class VirtualClock implements Clock {
+
+	private final double speedFactor;
+	private final long realStart;
+	private volatile long now;
+
+	/**
+	 * Constructor for VirtualClock. The clock starts at 0.
+	 *
+	 * @param speedFactor
+	 *            virtual seconds per real second, or 0 to run as fast as
+	 *            possible
+	 */
+	public VirtualClock(double speedFactor) {
+		if (!(speedFactor >= 0)) {
+			throw new IllegalArgumentException(
+					"Speed factor must not be negative");
+		}
+		this.speedFactor = speedFactor;
+		realStart = System.nanoTime();
+	}
+
+	@Override
+	public long nanoTime() {
+		return now;
+	}
+
+	@Override
+	public void sleepUntil(long deadline) throws InterruptedException {
+		if (deadline - now <= 0) {
+			return;
+		}
+		if (speedFactor > 0) {
+			SystemClock.INSTANCE.sleepUntil(realStart
+					+ (long) (deadline / speedFactor));
+		}
+		now = deadline;
+	}
+}
@@ -0,0 +1,243 @@
+package robot.estimate;
+
+import robot.map.OccupancyGrid;
+import robot.sim.ObstacleMap;
+
+/**
+ * LikelihoodField class The likelihood field model of a laser scanner over a
+ * known map. Every cell holds the log-likelihood of a beam ending in it,
+ * which only depends on the distance from the cell to the closest obstacle:
+ * a Gaussian of that distance, as the measured range has Gaussian noise,
+ * plus a floor for echoes of things that are not in the map. The distances
+ * are found once with the exact Euclidean distance transform of Felzenszwalb
+ * and Huttenlocher, so weighing a beam costs a single array lookup.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class LikelihoodField {
+
+	private static final double HIT = 0.95;
+	private static final double RANDOM = 0.05;
+	private static final double MARGIN = 1;
+	private static final double FAR = 1e20;
+	private final double originX;
+	private final double originY;
+	private final double resolution;
+	private final double scale;
+	private final int width;
+	private final int height;
+	private final float[] field;
+	private final float outside;
+
+	/**
+	 * Constructor for LikelihoodField over a grid of obstacles.
+	 *
+	 * @param originX
+	 *            x coordinate of the corner of cell 0, 0
+	 * @param originY
+	 *            y coordinate of the corner of cell 0, 0
+	 * @param resolution
+	 *            side of a cell in meters
+	 * @param width
+	 *            number of columns
+	 * @param height
+	 *            number of rows
+	 * @param occupied
+	 *            true for the cells with an obstacle, row by row
+	 * @param sigma
+	 *            standard deviation of the range noise in meters
+	 */
+	public LikelihoodField(double originX, double originY, double resolution,
+			int width, int height, boolean[] occupied, double sigma) {
+		if (width <= 0 || height <= 0 || !(resolution > 0) || !(sigma > 0)) {
+			throw new IllegalArgumentException("Bad likelihood field: "
+					+ width + " x " + height + " cells of " + resolution
+					+ " m, sigma " + sigma);
+		}
+		this.originX = originX;
+		this.originY = originY;
+		this.resolution = resolution;
+		this.width = width;
+		this.height = height;
+		scale = 1 / resolution;
+		field = new float[width * height];
+		outside = (float) Math.log(RANDOM);
+
+		double[] distances = squaredDistances(occupied, width, height);
+		double factor = resolution * resolution / (2 * sigma * sigma);
+		for (int i = 0; i < field.length; i++) {
+			field[i] = (float) Math.log(HIT * Math.exp(-distances[i] * factor)
+					+ RANDOM);
+		}
+	}
+
+	/**
+	 * Makes the field of a map of walls, with MARGIN meters around it.
+	 *
+	 * @param map
+	 *            the map
+	 * @param resolution
+	 *            side of a cell in meters
+	 * @param sigma
+	 *            standard deviation of the range noise in meters
+	 * @return the field
+	 */
+	public static LikelihoodField of(ObstacleMap map, double resolution,
+			double sigma) {
+		double[] bounds = new double[4];
+		map.getBounds(bounds);
+		double originX = bounds[0] - MARGIN;
+		double originY = bounds[1] - MARGIN;
+		int width = (int) Math.ceil((bounds[2] + MARGIN - originX)
+				/ resolution);
+		int height = (int) Math.ceil((bounds[3] + MARGIN - originY)
+				/ resolution);
+		// A wall passes through a cell if it is closer to the center than
+		// the corners are.
+		double reach = resolution * Math.sqrt(0.5);
+		boolean[] occupied = new boolean[width * height];
+		for (int cy = 0; cy < height; cy++) {
+			double y = originY + (cy + 0.5) * resolution;
+			for (int cx = 0; cx < width; cx++) {
+				double x = originX + (cx + 0.5) * resolution;
+				occupied[cy * width + cx] = map.distanceTo(x, y) <= reach;
+			}
+		}
+		return new LikelihoodField(originX, originY, resolution, width,
+				height, occupied, sigma);
+	}
+
+	/**
+	 * Makes the field of the occupied cells of an occupancy grid, with the
+	 * same cells as the grid.
+	 *
+	 * @param grid
+	 *            the grid
+	 * @param sigma
+	 *            standard deviation of the range noise in meters
+	 * @return the field
+	 */
+	public static LikelihoodField of(OccupancyGrid grid, double sigma) {
+		int[] bounds = new int[4];
+		grid.getBounds(bounds);
+		int width = bounds[2];
+		int height = bounds[3];
+		boolean[] occupied = new boolean[width * height];
+		for (int cy = 0; cy < height; cy++) {
+			for (int cx = 0; cx < width; cx++) {
+				occupied[cy * width + cx] = grid.isOccupied(bounds[0] + cx,
+						bounds[1] + cy);
+			}
+		}
+		double resolution = grid.getResolution();
+		return new LikelihoodField(bounds[0] * resolution, bounds[1]
+				* resolution, resolution, width, height, occupied, sigma);
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate of the end of a beam
+	 * @param y
+	 *            y coordinate of the end of a beam
+	 * @return log-likelihood of a beam ending at the point
+	 */
+	public float logLikelihood(double x, double y) {
+		double fx = (x - originX) * scale;
+		double fy = (y - originY) * scale;
+		if (!(fx >= 0 && fy >= 0 && fx < width && fy < height)) {
+			return outside;
+		}
+		return field[(int) fy * width + (int) fx];
+	}
+
+	/**
+	 * @return side of a cell in meters
+	 */
+	public double getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @return number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Squared distance in cells from every cell to the closest occupied
+	 * one, by a 1D transform of every column and then of every row.
+	 */
+	private static double[] squaredDistances(boolean[] occupied, int width,
+			int height) {
+		double[] d = new double[width * height];
+		for (int i = 0; i < d.length; i++) {
+			d[i] = occupied[i] ? 0 : FAR;
+		}
+		int n = Math.max(width, height);
+		double[] f = new double[n];
+		double[] result = new double[n];
+		int[] v = new int[n];
+		double[] z = new double[n + 1];
+		for (int cx = 0; cx < width; cx++) {
+			for (int cy = 0; cy < height; cy++) {
+				f[cy] = d[cy * width + cx];
+			}
+			transform(f, height, result, v, z);
+			for (int cy = 0; cy < height; cy++) {
+				d[cy * width + cx] = result[cy];
+			}
+		}
+		for (int cy = 0; cy < height; cy++) {
+			System.arraycopy(d, cy * width, f, 0, width);
+			transform(f, width, result, v, z);
+			System.arraycopy(result, 0, d, cy * width, width);
+		}
+		return d;
+	}
+
+	/**
+	 * The 1D squared distance transform: the lower envelope of the parabolas
+	 * rooted at each sample.
+	 */
+	private static void transform(double[] f, int n, double[] result,
+			int[] v, double[] z) {
+		int k = 0;
+		v[0] = 0;
+		z[0] = Double.NEGATIVE_INFINITY;
+		z[1] = Double.POSITIVE_INFINITY;
+		for (int q = 1; q < n; q++) {
+			double s;
+			while (true) {
+				int p = v[k];
+				s = ((f[q] + (double) q * q) - (f[p] + (double) p * p))
+						/ (2.0 * (q - p));
+				if (s > z[k]) {
+					break;
+				}
+				k--;
+			}
+			k++;
+			v[k] = q;
+			z[k] = s;
+			z[k + 1] = Double.POSITIVE_INFINITY;
+		}
+		k = 0;
+		for (int q = 0; q < n; q++) {
+			while (z[k + 1] < q) {
+				k++;
+			}
+			double dq = q - v[k];
+			result[q] = dq * dq + f[v[k]];
+		}
+	}
+}
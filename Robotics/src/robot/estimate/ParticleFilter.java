@@ -0,0 +1,489 @@
+package robot.estimate;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import robot.laser.LaserGeometry;
+
+/**
+ * ParticleFilter class Monte Carlo localization against a LikelihoodField.
+ * Each particle is a guess of the pose. An update moves every particle by
+ * the odometry of the robot plus noise, weighs it by how well the scan fits
+ * the map seen from it, and takes the weighted mean of the particles as the
+ * pose. When the weight has gathered on too few particles they are drawn
+ * again in proportion to their weights, with the low variance sampler.
+ *
+ * The particles are kept as a structure of arrays, one array of x, y,
+ * heading and weight each, so the work on them runs through memory in
+ * order. Every stage of an update splits the particles into chunks of CHUNK
+ * that run as a fork-join task each. Sums over the particles are made per
+ * chunk and added up after the stage, and the resampling finds where each
+ * chunk of new particles starts in the cumulative weights with a binary
+ * search, so the chunks never wait for each other. Only one update may run
+ * at a time. Every chunk draws its noise from a Random of its own, seeded
+ * from the seed of the filter, the number of the update and the chunk, so a
+ * run with the same seed gives the same particles however the chunks are
+ * spread over the threads.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ParticleFilter {
+
+	private static final int CHUNK = 512;
+	private static final double RESAMPLE_THRESHOLD = 0.5;
+	private static final double MIN_RANGE = 0.05;
+	private static final double TRANSLATION_NOISE = 0.1;
+	private static final double ROTATION_NOISE = 0.1;
+	private static final double DRIFT_PER_METER = 0.05;
+	private static final double MIN_POSITION_NOISE = 0.005;
+	private static final double MIN_HEADING_NOISE = 0.005;
+	private static final int MOVE = 0;
+	private static final int WEIGH = 1;
+	private static final int NORMALIZE = 2;
+	private static final int CUMULATE = 3;
+	private static final int RESAMPLE = 4;
+	private final LikelihoodField field;
+	private final LaserGeometry geometry;
+	private final int beamStride;
+	private final ForkJoinPool pool;
+	private final long seed;
+	private final Random random;
+	private final Random[] chunkRandom;
+	private final int size;
+	private final int chunks;
+	private double[] x;
+	private double[] y;
+	private double[] heading;
+	private double[] nextX;
+	private double[] nextY;
+	private double[] nextHeading;
+	private final double[] logWeight;
+	private final double[] weight;
+	private final double[] chunkMax;
+	private final double[] chunkSum;
+	private final double[] chunkSquares;
+	private final double[] chunkX;
+	private final double[] chunkY;
+	private final double[] chunkCos;
+	private final double[] chunkSin;
+	private final double[] beamX;
+	private final double[] beamY;
+	private int beamCount;
+	private double forward;
+	private double lateral;
+	private double turn;
+	private double maxLog;
+	private double total;
+	private double sampleStart;
+	private double estimateX;
+	private double estimateY;
+	private double estimateHeading;
+	private double effectiveSize;
+	private long resamples;
+	private long updates;
+
+	/**
+	 * Constructor for ParticleFilter. The particles are spread by reset.
+	 *
+	 * @param field
+	 *            likelihood field of the map
+	 * @param geometry
+	 *            beams of the scanner
+	 * @param particles
+	 *            number of particles
+	 * @param beamStride
+	 *            only every beamStride beam of a scan is weighed, as
+	 *            neighbouring beams say much the same
+	 * @param pool
+	 *            the pool the stages run on
+	 * @param seed
+	 *            seed of the initial spread, the noise of the moves and the
+	 *            resampling
+	 */
+	public ParticleFilter(LikelihoodField field, LaserGeometry geometry,
+			int particles, int beamStride, ForkJoinPool pool, long seed) {
+		if (particles < 1 || beamStride < 1) {
+			throw new IllegalArgumentException("Bad particle filter: "
+					+ particles + " particles, beam stride " + beamStride);
+		}
+		this.field = field;
+		this.geometry = geometry;
+		this.beamStride = beamStride;
+		this.pool = pool;
+		this.seed = seed;
+		random = new Random(seed);
+		size = particles;
+		chunks = (particles + CHUNK - 1) / CHUNK;
+		chunkRandom = new Random[chunks];
+		for (int c = 0; c < chunks; c++) {
+			chunkRandom[c] = new Random();
+		}
+		x = new double[size];
+		y = new double[size];
+		heading = new double[size];
+		nextX = new double[size];
+		nextY = new double[size];
+		nextHeading = new double[size];
+		logWeight = new double[size];
+		weight = new double[size];
+		chunkMax = new double[chunks];
+		chunkSum = new double[chunks];
+		chunkSquares = new double[chunks];
+		chunkX = new double[chunks];
+		chunkY = new double[chunks];
+		chunkCos = new double[chunks];
+		chunkSin = new double[chunks];
+		int beams = (geometry.getBeams() + beamStride - 1) / beamStride;
+		beamX = new double[beams];
+		beamY = new double[beams];
+	}
+
+	/**
+	 * Spreads the particles around a pose with Gaussian noise and gives
+	 * them all the same weight.
+	 *
+	 * @param x
+	 *            x coordinate
+	 * @param y
+	 *            y coordinate
+	 * @param heading
+	 *            heading in radians
+	 * @param positionSigma
+	 *            standard deviation of x and y in meters
+	 * @param headingSigma
+	 *            standard deviation of the heading in radians
+	 */
+	public void reset(double x, double y, double heading,
+			double positionSigma, double headingSigma) {
+		for (int i = 0; i < size; i++) {
+			this.x[i] = x + random.nextGaussian() * positionSigma;
+			this.y[i] = y + random.nextGaussian() * positionSigma;
+			this.heading[i] = heading + random.nextGaussian() * headingSigma;
+			logWeight[i] = 0;
+		}
+		estimateX = x;
+		estimateY = y;
+		estimateHeading = heading;
+		effectiveSize = size;
+	}
+
+	/**
+	 * Moves the particles and weighs them against a scan, then updates the
+	 * estimate and resamples if needed.
+	 *
+	 * @param forward
+	 *            distance moved straight ahead since the last update, in the
+	 *            frame of the robot at the last update
+	 * @param lateral
+	 *            distance moved to the left in the same frame
+	 * @param turn
+	 *            change of heading in radians
+	 * @param ranges
+	 *            distance of each beam, beam 0 first
+	 * @param count
+	 *            number of beams in ranges
+	 * @param maxRange
+	 *            range of the scanner, beams at or beyond it are not weighed
+	 */
+	public void update(double forward, double lateral, double turn,
+			double[] ranges, int count, double maxRange) {
+		this.forward = forward;
+		this.lateral = lateral;
+		this.turn = turn;
+		updates++;
+		for (int c = 0; c < chunks; c++) {
+			chunkRandom[c].setSeed(chunkSeed(c));
+		}
+		run(MOVE);
+
+		beamCount = 0;
+		int n = Math.min(count, geometry.getBeams());
+		for (int i = 0; i < n; i += beamStride) {
+			double range = ranges[i];
+			if (range > MIN_RANGE && range < maxRange) {
+				beamX[beamCount] = range * geometry.getCos(i);
+				beamY[beamCount] = range * geometry.getSin(i);
+				beamCount++;
+			}
+		}
+		run(WEIGH);
+		maxLog = Double.NEGATIVE_INFINITY;
+		for (int c = 0; c < chunks; c++) {
+			maxLog = Math.max(maxLog, chunkMax[c]);
+		}
+
+		run(NORMALIZE);
+		double squares = 0;
+		double sumX = 0;
+		double sumY = 0;
+		double sumCos = 0;
+		double sumSin = 0;
+		total = 0;
+		for (int c = 0; c < chunks; c++) {
+			total += chunkSum[c];
+			squares += chunkSquares[c];
+			sumX += chunkX[c];
+			sumY += chunkY[c];
+			sumCos += chunkCos[c];
+			sumSin += chunkSin[c];
+		}
+		estimateX = sumX / total;
+		estimateY = sumY / total;
+		estimateHeading = Math.atan2(sumSin, sumCos);
+		effectiveSize = total * total / squares;
+
+		if (effectiveSize < size * RESAMPLE_THRESHOLD) {
+			// The cumulative weights of a chunk start at the sum of the
+			// chunks before it, kept in chunkSum from here on.
+			double offset = 0;
+			for (int c = 0; c < chunks; c++) {
+				double sum = chunkSum[c];
+				chunkSum[c] = offset;
+				offset += sum;
+			}
+			run(CUMULATE);
+			sampleStart = random.nextDouble();
+			run(RESAMPLE);
+			double[] swap = x;
+			x = nextX;
+			nextX = swap;
+			swap = y;
+			y = nextY;
+			nextY = swap;
+			swap = heading;
+			heading = nextHeading;
+			nextHeading = swap;
+			resamples++;
+		}
+	}
+
+	/**
+	 * @return x coordinate of the estimated pose
+	 */
+	public double getX() {
+		return estimateX;
+	}
+
+	/**
+	 * @return y coordinate of the estimated pose
+	 */
+	public double getY() {
+		return estimateY;
+	}
+
+	/**
+	 * @return heading of the estimated pose in radians
+	 */
+	public double getHeading() {
+		return estimateHeading;
+	}
+
+	/**
+	 * @return effective number of particles after the last weighing, the
+	 *         number the weights are as good as if they were equal
+	 */
+	public double getEffectiveSize() {
+		return effectiveSize;
+	}
+
+	/**
+	 * @return number of particles
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return number of times the particles have been resampled
+	 */
+	public long getResamples() {
+		return resamples;
+	}
+
+	private void run(int stage) {
+		pool.invoke(new Stage(stage, 0, chunks));
+	}
+
+	/**
+	 * Runs one stage on the particles of a chunk.
+	 */
+	private void runChunk(int stage, int chunk) {
+		int from = chunk * CHUNK;
+		int to = Math.min(size, from + CHUNK);
+		switch (stage) {
+		case MOVE:
+			move(chunkRandom[chunk], from, to);
+			break;
+		case WEIGH:
+			chunkMax[chunk] = weigh(from, to);
+			break;
+		case NORMALIZE:
+			normalize(chunk, from, to);
+			break;
+		case CUMULATE:
+			double sum = chunkSum[chunk];
+			for (int i = from; i < to; i++) {
+				sum += weight[i];
+				weight[i] = sum;
+			}
+			break;
+		case RESAMPLE:
+			resample(from, to);
+			break;
+		default:
+			throw new IllegalStateException("Unknown stage " + stage);
+		}
+	}
+
+	/**
+	 * Mixes the seed, the number of the update and a chunk into the seed of
+	 * the chunk with the finalizer of SplitMix64, so neighbouring chunks and
+	 * updates do not get related sequences.
+	 */
+	private long chunkSeed(int chunk) {
+		long z = seed + updates * 0x9E3779B97F4A7C15L + chunk
+				* 0xC2B2AE3D27D4EB4FL;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Moves the particles by the odometry with noise that grows with the
+	 * distance and the turn.
+	 */
+	private void move(Random r, int from, int to) {
+		double distance = Math.hypot(forward, lateral);
+		double positionSigma = TRANSLATION_NOISE * distance
+				+ MIN_POSITION_NOISE;
+		double headingSigma = ROTATION_NOISE * Math.abs(turn)
+				+ DRIFT_PER_METER * distance + MIN_HEADING_NOISE;
+		for (int i = from; i < to; i++) {
+			double f = forward + r.nextGaussian() * positionSigma;
+			double l = lateral + r.nextGaussian() * positionSigma;
+			double cos = Math.cos(heading[i]);
+			double sin = Math.sin(heading[i]);
+			x[i] += cos * f - sin * l;
+			y[i] += sin * f + cos * l;
+			heading[i] += turn + r.nextGaussian() * headingSigma;
+		}
+	}
+
+	/**
+	 * Adds the log-likelihood of the beams to the log-weights.
+	 *
+	 * @return the largest log-weight of the chunk
+	 */
+	private double weigh(int from, int to) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			double cos = Math.cos(heading[i]);
+			double sin = Math.sin(heading[i]);
+			double px = x[i];
+			double py = y[i];
+			double sum = 0;
+			for (int k = 0; k < beamCount; k++) {
+				sum += field.logLikelihood(px + cos * beamX[k] - sin
+						* beamY[k], py + sin * beamX[k] + cos * beamY[k]);
+			}
+			double w = logWeight[i] + sum;
+			logWeight[i] = w;
+			max = Math.max(max, w);
+		}
+		return max;
+	}
+
+	/**
+	 * Turns the log-weights into weights relative to the largest and sums
+	 * up what the estimate is made from. The log-weights are moved down by
+	 * the same amount so they stay small between resamplings.
+	 */
+	private void normalize(int chunk, int from, int to) {
+		double sum = 0;
+		double squares = 0;
+		double sumX = 0;
+		double sumY = 0;
+		double sumCos = 0;
+		double sumSin = 0;
+		for (int i = from; i < to; i++) {
+			double lw = logWeight[i] - maxLog;
+			logWeight[i] = lw;
+			double w = Math.exp(lw);
+			weight[i] = w;
+			sum += w;
+			squares += w * w;
+			sumX += w * x[i];
+			sumY += w * y[i];
+			sumCos += w * Math.cos(heading[i]);
+			sumSin += w * Math.sin(heading[i]);
+		}
+		chunkSum[chunk] = sum;
+		chunkSquares[chunk] = squares;
+		chunkX[chunk] = sumX;
+		chunkY[chunk] = sumY;
+		chunkCos[chunk] = sumCos;
+		chunkSin[chunk] = sumSin;
+	}
+
+	/**
+	 * Draws the new particles from to to with the low variance sampler: new
+	 * particle j is the old one whose cumulative weight first passes
+	 * (sampleStart + j) / size of the total.
+	 */
+	private void resample(int from, int to) {
+		double step = total / size;
+		int low = 0;
+		int high = size - 1;
+		double first = (sampleStart + from) * step;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (weight[mid] > first) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		int i = low;
+		for (int j = from; j < to; j++) {
+			double u = (sampleStart + j) * step;
+			while (i < size - 1 && weight[i] <= u) {
+				i++;
+			}
+			nextX[j] = x[i];
+			nextY[j] = y[i];
+			nextHeading[j] = heading[i];
+			logWeight[j] = 0;
+		}
+	}
+
+	/**
+	 * Stage class Splits the chunks of a stage in halves until one is left.
+	 */
+	private class Stage extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final int stage;
+		private final int from;
+		private final int to;
+
+		private Stage(int stage, int from, int to) {
+			this.stage = stage;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				runChunk(stage, from);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Stage(stage, from, mid), new Stage(stage, mid,
+						to));
+			}
+		}
+	}
+}
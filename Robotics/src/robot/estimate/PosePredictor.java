@@ -0,0 +1,201 @@
+package robot.estimate;
+
+import robot.Pose;
+import robot.comm.DriveCommand;
+
+/**
+ * PosePredictor class Compensates for the latency between the robot and the
+ * controller. The pose of a tick was taken by the robot some time before it
+ * arrived, and the command computed from it is applied some time after it is
+ * sent, so steering on the measured pose steers on where the robot was, not
+ * on where it will be when the command takes effect. The predictor keeps a
+ * short history of poses and of the commands sent, and moves the latest pose
+ * forward with the unicycle model, one arc per command that was in effect,
+ * to the time the next command is expected to be applied.
+ *
+ * The time a pose was valid is found from the robot timestamp. The smallest
+ * difference between local arrival time and robot time in the history is
+ * taken as the offset between the clocks, which is the same minimum filter
+ * as NTP uses, so a pose that was delayed on the way gets an earlier time. A
+ * command is taken to be applied at the middle of its request plus a fixed
+ * actuation delay. Nothing is allocated, so this can run every tick.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class PosePredictor {
+
+	private static final double NANOS = 1e-9;
+	private static final double MIN_TURN = 1e-9;
+	private static final double DELAY_WEIGHT = 0.1;
+	private final long actuationDelay;
+	private final long maxLead;
+	private final long[] offsets;
+	private final long[] applied;
+	private final double[] linear;
+	private final double[] angular;
+	private int poses;
+	private int commands;
+	private long poseTime;
+	private double sendDelay;
+	private long lead;
+	private double x;
+	private double y;
+	private double heading;
+
+	/**
+	 * Constructor for PosePredictor.
+	 *
+	 * @param history
+	 *            number of poses and commands to keep, enough to cover the
+	 *            latency
+	 * @param actuationDelay
+	 *            time from a drive request reaching the robot until the
+	 *            wheels follow it, in nanoseconds
+	 * @param maxLead
+	 *            longest time a pose is predicted ahead, in nanoseconds, so
+	 *            a stalled link does not move the robot off into the
+	 *            distance
+	 */
+	public PosePredictor(int history, long actuationDelay, long maxLead) {
+		if (history < 1) {
+			throw new IllegalArgumentException("History must be positive: "
+					+ history);
+		}
+		this.actuationDelay = actuationDelay;
+		this.maxLead = maxLead;
+		offsets = new long[history];
+		applied = new long[history];
+		linear = new double[history];
+		angular = new double[history];
+	}
+
+	/**
+	 * Forgets all poses and commands, for example at the start of a new run.
+	 */
+	public void reset() {
+		poses = 0;
+		commands = 0;
+		sendDelay = 0;
+		lead = 0;
+	}
+
+	/**
+	 * Adds a measured pose.
+	 *
+	 * @param pose
+	 *            the pose, with the local time it arrived
+	 * @param timestamp
+	 *            robot timestamp of the pose in milliseconds, 0 if unknown
+	 */
+	public void update(Pose pose, long timestamp) {
+		long arrival = pose.getTime();
+		if (timestamp <= 0) {
+			poseTime = arrival;
+			return;
+		}
+		offsets[poses % offsets.length] = arrival - timestamp * 1000000;
+		poses++;
+		long offset = Long.MAX_VALUE;
+		for (int i = Math.min(poses, offsets.length) - 1; i >= 0; i--) {
+			offset = Math.min(offset, offsets[i]);
+		}
+		poseTime = timestamp * 1000000 + offset;
+	}
+
+	/**
+	 * Adds a command that has been sent.
+	 *
+	 * @param command
+	 *            the command
+	 * @param start
+	 *            local time the request was started in nanoseconds
+	 * @param end
+	 *            local time the request returned in nanoseconds
+	 */
+	public void sent(DriveCommand command, long start, long end) {
+		long half = (end - start) / 2;
+		sendDelay = commands == 0 ? half : sendDelay + DELAY_WEIGHT
+				* (half - sendDelay);
+		int i = commands % applied.length;
+		applied[i] = start + half + actuationDelay;
+		linear[i] = command.getLinearSpeed();
+		angular[i] = command.getAngularSpeed();
+		commands++;
+	}
+
+	/**
+	 * Predicts where the robot will be when a command sent now is applied.
+	 *
+	 * @param pose
+	 *            the latest measured pose, given to update
+	 * @param now
+	 *            local time in nanoseconds
+	 * @param predicted
+	 *            pose to fill in, with the time it is predicted for
+	 * @return the predicted pose
+	 */
+	public Pose predict(Pose pose, long now, Pose predicted) {
+		long target = now + Math.round(sendDelay) + actuationDelay;
+		long time = Math.max(poseTime, target - maxLead);
+		target = Math.max(time, target);
+		lead = target - time;
+		x = pose.getX();
+		y = pose.getY();
+		heading = pose.getHeading();
+
+		// The command in effect at the time of the pose is the last one
+		// applied before it, the ones after it each start a new arc.
+		int n = Math.min(commands, applied.length);
+		double v = 0;
+		double w = 0;
+		for (int k = commands - n; k < commands; k++) {
+			int i = k % applied.length;
+			if (applied[i] > time && applied[i] < target) {
+				move(v, w, applied[i] - time);
+				time = applied[i];
+			}
+			if (applied[i] <= time) {
+				v = linear[i];
+				w = angular[i];
+			}
+		}
+		move(v, w, target - time);
+		predicted.set(x, y, Math.atan2(Math.sin(heading), Math.cos(heading)),
+				target);
+		return predicted;
+	}
+
+	/**
+	 * @return how far ahead of the pose the last prediction was, in
+	 *         nanoseconds
+	 */
+	public long getLead() {
+		return lead;
+	}
+
+	/**
+	 * @return mean time from sending a command until it reaches the robot,
+	 *         in nanoseconds
+	 */
+	public long getSendDelay() {
+		return Math.round(sendDelay);
+	}
+
+	/**
+	 * Moves the prediction along the arc of a constant command.
+	 */
+	private void move(double v, double w, long nanos) {
+		double dt = nanos * NANOS;
+		double next = heading + w * dt;
+		if (Math.abs(w) < MIN_TURN) {
+			x += v * Math.cos(heading) * dt;
+			y += v * Math.sin(heading) * dt;
+		} else {
+			x += v / w * (Math.sin(next) - Math.sin(heading));
+			y -= v / w * (Math.cos(next) - Math.cos(heading));
+		}
+		heading = next;
+	}
+}
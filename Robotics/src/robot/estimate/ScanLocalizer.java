@@ -0,0 +1,116 @@
+package robot.estimate;
+
+import robot.Pose;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+import suppliedFiles.LaserEchoesResponse;
+
+/**
+ * ScanLocalizer class Corrects the pose from the localization service with a
+ * ParticleFilter. The service integrates the wheels and drifts, but over a
+ * single tick the change of its pose is close to how the robot really moved,
+ * so that change is taken as odometry for the particles, and the laser scan
+ * of the tick decides where on the map the robot is. The particles start
+ * around the first pose.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ScanLocalizer {
+
+	private static final double START_POSITION_SIGMA = 0.2;
+	private static final double START_HEADING_SIGMA = 0.1;
+	private final ParticleFilter filter;
+	private final double maxRange;
+	private final double[] ranges;
+	private boolean started;
+	private double lastX;
+	private double lastY;
+	private double lastHeading;
+	private Histogram updates;
+
+	/**
+	 * Constructor for ScanLocalizer.
+	 *
+	 * @param filter
+	 *            the filter to run
+	 * @param beams
+	 *            number of beams in a scan
+	 * @param maxRange
+	 *            range of the scanner, beams at or beyond it have no echo
+	 */
+	public ScanLocalizer(ParticleFilter filter, int beams, double maxRange) {
+		this.filter = filter;
+		this.maxRange = maxRange;
+		ranges = new double[beams];
+	}
+
+	/**
+	 * Records the time of every update of the filter into localize. Must be
+	 * called before the first correct.
+	 *
+	 * @param metrics
+	 *            the registry to record into
+	 */
+	public void setMetrics(Metrics metrics) {
+		updates = metrics.histogram("localize");
+	}
+
+	/**
+	 * Makes the next correct start the particles over around its pose.
+	 */
+	public void reset() {
+		started = false;
+	}
+
+	/**
+	 * Replaces a pose from the localization service with the pose the
+	 * particle filter finds from it and the scan taken with it. The time of
+	 * the pose is kept.
+	 *
+	 * @param pose
+	 *            the measured pose, set to the corrected pose
+	 * @param ler
+	 *            the scan taken at the pose
+	 */
+	public void correct(Pose pose, LaserEchoesResponse ler) {
+		double x = pose.getX();
+		double y = pose.getY();
+		double heading = pose.getHeading();
+		if (!started) {
+			filter.reset(x, y, heading, START_POSITION_SIGMA,
+					START_HEADING_SIGMA);
+			lastX = x;
+			lastY = y;
+			lastHeading = heading;
+			started = true;
+		}
+		double dx = x - lastX;
+		double dy = y - lastY;
+		double cos = Math.cos(lastHeading);
+		double sin = Math.sin(lastHeading);
+		double turn = Math.atan2(Math.sin(heading - lastHeading),
+				Math.cos(heading - lastHeading));
+		int count = Math.min(ler.getEchoes(ranges), ranges.length);
+
+		long start = System.nanoTime();
+		filter.update(cos * dx + sin * dy, cos * dy - sin * dx, turn, ranges,
+				count, maxRange);
+		if (updates != null) {
+			updates.record(System.nanoTime() - start);
+		}
+		lastX = x;
+		lastY = y;
+		lastHeading = heading;
+		pose.set(filter.getX(), filter.getY(), filter.getHeading(),
+				pose.getTime());
+	}
+
+	/**
+	 * @return the filter
+	 */
+	public ParticleFilter getFilter() {
+		return filter;
+	}
+}
@@ -0,0 +1,294 @@
+package robot.eval;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import robot.RobotController;
+import robot.RobotController.Tracking;
+import robot.Tuning;
+import robot.path.Path;
+import robot.path.PathLoader;
+import robot.sim.ObstacleMap;
+import robot.sim.SimulatorServer;
+
+/**
+ * Sweep class Runs a Trial for every combination of paths and tuning values
+ * on a fork-join pool and prints one row per tuning, with the results of all
+ * paths taken together: how many runs finished, the mean time of those that
+ * did, the mean and largest cross-track error and the number of near and
+ * real collisions. The rows are sorted with the tunings that finished every
+ * path first and the fastest of them on top.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Sweep {
+
+	private static final double MIN_TIME_LIMIT = 60;
+	private static final double TIME_LIMIT_FACTOR = 3;
+	private final ForkJoinPool pool;
+	private final List<Trial> trials = new ArrayList<Trial>();
+	private final List<Tuning> tunings = new ArrayList<Tuning>();
+
+	/**
+	 * Constructor for Sweep.
+	 *
+	 * @param parallelism
+	 *            number of trials run at once
+	 */
+	public Sweep(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Adds a trial of every path with a tuning. The time limit of a path is
+	 * TIME_LIMIT_FACTOR times the time it took to record it, and at least
+	 * MIN_TIME_LIMIT seconds.
+	 *
+	 * @param paths
+	 *            the path files
+	 * @param loaded
+	 *            the same paths, loaded
+	 * @param maps
+	 *            the obstacles around each path
+	 * @param tuning
+	 *            the tuning to try
+	 * @param tracking
+	 *            how the controller follows the paths
+	 * @param rate
+	 *            control loop rate in Hz
+	 */
+	public void add(String[] paths, Path[] loaded, ObstacleMap[] maps,
+			Tuning tuning, Tracking tracking, double rate) {
+		tunings.add(tuning);
+		for (int i = 0; i < paths.length; i++) {
+			Path path = loaded[i];
+			double recorded = path.size() < 2 ? 0 : (path.getTimestamp(path
+					.size() - 1) - path.getTimestamp(0)) / 1000.0;
+			long limit = (long) (Math.max(MIN_TIME_LIMIT, TIME_LIMIT_FACTOR
+					* recorded) * 1e9);
+			trials.add(new Trial(paths[i], path, maps[i], tuning, tracking,
+					rate, limit));
+		}
+	}
+
+	/**
+	 * Runs all trials and waits for them.
+	 *
+	 * @return the results, in the order the trials were added
+	 */
+	public List<Trial.Result> run() {
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(trials);
+			}
+		});
+		pool.shutdown();
+		List<Trial.Result> results = new ArrayList<Trial.Result>();
+		for (Trial trial : trials) {
+			results.add(trial.join());
+		}
+		return results;
+	}
+
+	/**
+	 * Sums up the results of each tuning over all paths.
+	 *
+	 * @param results
+	 *            the results of run
+	 * @return one row per tuning, best first
+	 */
+	public List<Row> table(List<Trial.Result> results) {
+		List<Row> rows = new ArrayList<Row>();
+		for (Tuning tuning : tunings) {
+			Row row = new Row(tuning);
+			for (Trial.Result result : results) {
+				if (result.getTuning() == tuning) {
+					row.add(result);
+				}
+			}
+			rows.add(row);
+		}
+		Collections.sort(rows, new Comparator<Row>() {
+			@Override
+			public int compare(Row a, Row b) {
+				if (a.finished != b.finished) {
+					return b.finished - a.finished;
+				}
+				return Double.compare(a.getMeanTime(), b.getMeanTime());
+			}
+		});
+		return rows;
+	}
+
+	/**
+	 * Row class The results of one tuning over all paths.
+	 */
+	public static class Row {
+
+		private final Tuning tuning;
+		private int runs;
+		private int finished;
+		private double timeSum;
+		private double crossTrackSum;
+		private double maxCrossTrack;
+		private long nearCollisions;
+		private long collisions;
+
+		private Row(Tuning tuning) {
+			this.tuning = tuning;
+		}
+
+		private void add(Trial.Result result) {
+			runs++;
+			if (result.isFinished()) {
+				finished++;
+				timeSum += result.getTime();
+			}
+			crossTrackSum += result.getMeanCrossTrack();
+			maxCrossTrack = Math.max(maxCrossTrack, result.getMaxCrossTrack());
+			nearCollisions += result.getNearCollisions();
+			collisions += result.getCollisions();
+		}
+
+		/**
+		 * @return mean time of the runs that finished, infinite if none did
+		 */
+		public double getMeanTime() {
+			return finished == 0 ? Double.POSITIVE_INFINITY : timeSum
+					/ finished;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT,
+					"%12.4g %6.2f %5.0f %5.2f | %3d/%-3d %8.2f %7.3f %7.3f"
+							+ " %6d %6d", tuning.getSpeedConstant(),
+					tuning.getMinDistToTarget(), tuning.getMaxAngleToNextCP(),
+					tuning.getLaserDist(), finished, runs, getMeanTime(),
+					runs == 0 ? 0 : crossTrackSum / runs, maxCrossTrack,
+					nearCollisions, collisions);
+		}
+	}
+
+	/**
+	 * Main runs a sweep. Every list of values is comma separated, and - or
+	 * a missing list means the default value only. Each path is driven in an
+	 * empty room around it unless a map is given.
+	 *
+	 * @param args
+	 *            the path files, followed optionally by the speed
+	 *            constants, target distances, carrot angles and laser
+	 *            distances to try, the number of threads (all processors by
+	 *            default), a CSV file to write every trial to or -, and an
+	 *            obstacle map for all paths
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: Sweep <paths> [speedConstants]"
+					+ " [targetDists] [angles] [laserDists] [threads] [csv|-]"
+					+ " [map]");
+			System.exit(1);
+		}
+		Tuning d = Tuning.DEFAULT;
+		double[] speeds = values(args, 1, d.getSpeedConstant());
+		double[] targets = values(args, 2, d.getMinDistToTarget());
+		double[] angles = values(args, 3, d.getMaxAngleToNextCP());
+		double[] lasers = values(args, 4, d.getLaserDist());
+		int threads = args.length > 5 && !args[5].equals("-") ? Integer
+				.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+		String csv = args.length > 6 && !args[6].equals("-") ? args[6] : null;
+
+		try {
+			String[] paths = args[0].split(",");
+			Path[] loaded = new Path[paths.length];
+			ObstacleMap[] maps = new ObstacleMap[paths.length];
+			ObstacleMap shared = args.length > 7 ? ObstacleMap.read(new File(
+					args[7])) : null;
+			for (int i = 0; i < paths.length; i++) {
+				loaded[i] = PathLoader.read(new File(paths[i]));
+				maps[i] = shared != null ? shared : ObstacleMap.room(
+						loaded[i], SimulatorServer.ROOM_MARGIN);
+			}
+
+			Sweep sweep = new Sweep(threads);
+			for (double speed : speeds) {
+				for (double target : targets) {
+					for (double angle : angles) {
+						for (double laser : lasers) {
+							sweep.add(paths, loaded, maps, new Tuning(speed,
+									target, angle, laser), Tracking.CARROT,
+									RobotController.DEFAULT_RATE);
+						}
+					}
+				}
+			}
+
+			long start = System.nanoTime();
+			List<Trial.Result> results = sweep.run();
+			long elapsed = System.nanoTime() - start;
+			System.out.println("       speed target angle laser |  done"
+					+ "     time    xte   max xte   near  coll");
+			for (Row row : sweep.table(results)) {
+				System.out.println(row);
+			}
+			System.out.println(String.format(Locale.ROOT,
+					"%d trials on %d threads in %.1f s", results.size(),
+					threads, elapsed / 1e9));
+			if (csv != null) {
+				writeCsv(results, new File(csv));
+			}
+		} catch (Exception e) {
+			System.err.println("An error has occurred with message:"
+					+ e.getMessage());
+		}
+	}
+
+	private static double[] values(String[] args, int i, double fallback) {
+		if (args.length <= i || args[i].equals("-")) {
+			return new double[] { fallback };
+		}
+		String[] fields = args[i].split(",");
+		double[] values = new double[fields.length];
+		for (int k = 0; k < fields.length; k++) {
+			values[k] = Double.parseDouble(fields[k]);
+		}
+		return values;
+	}
+
+	private static void writeCsv(List<Trial.Result> results, File file)
+			throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("path,speedConstant,minDistToTarget,maxAngleToNextCP,"
+					+ "laserDist,outcome,time,meanCrossTrack,maxCrossTrack,"
+					+ "nearCollisions,collisions,goalDistance");
+			for (Trial.Result r : results) {
+				Tuning t = r.getTuning();
+				out.println(String.format(Locale.ROOT,
+						"%s,%s,%s,%s,%s,%s,%.3f,%.4f,%.4f,%d,%d,%.3f",
+						r.getPathFile(), t.getSpeedConstant(),
+						t.getMinDistToTarget(), t.getMaxAngleToNextCP(),
+						t.getLaserDist(), r.getOutcome(), r.getTime(),
+						r.getMeanCrossTrack(), r.getMaxCrossTrack(),
+						r.getNearCollisions(), r.getCollisions(),
+						r.getGoalDistance()));
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
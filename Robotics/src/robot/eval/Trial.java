@@ -0,0 +1,211 @@
+package robot.eval;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeoutException;
+
+import robot.RobotController;
+import robot.RobotController.Tracking;
+import robot.Tuning;
+import robot.control.FixedRateScheduler.OverrunPolicy;
+import robot.control.VirtualClock;
+import robot.path.Path;
+import robot.sim.ObstacleMap;
+import robot.sim.Simulator;
+
+/**
+ * Trial class One run of RobotController along one path with one tuning,
+ * against a Simulator on a VirtualClock, so the run takes simulated time
+ * only and needs no web server. Trials share nothing but the path and the
+ * obstacle map, which are only read, so any number of them can run at once
+ * on a fork-join pool.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Trial extends RecursiveTask<Trial.Result> {
+
+	private static final long serialVersionUID = 1L;
+	private final String pathFile;
+	private final Path path;
+	private final ObstacleMap map;
+	private final Tuning tuning;
+	private final Tracking tracking;
+	private final double rate;
+	private final long timeLimit;
+
+	/**
+	 * Constructor for Trial.
+	 *
+	 * @param pathFile
+	 *            the path file the controller reads
+	 * @param path
+	 *            the same path, to start the robot on and score it against
+	 * @param map
+	 *            the obstacles around the path
+	 * @param tuning
+	 *            constants of the controller
+	 * @param tracking
+	 *            how the controller follows the path
+	 * @param rate
+	 *            control loop rate in Hz
+	 * @param timeLimit
+	 *            simulated time in nanoseconds after which the run counts as
+	 *            not finished
+	 */
+	public Trial(String pathFile, Path path, ObstacleMap map, Tuning tuning,
+			Tracking tracking, double rate, long timeLimit) {
+		this.pathFile = pathFile;
+		this.path = path;
+		this.map = map;
+		this.tuning = tuning;
+		this.tracking = tracking;
+		this.rate = rate;
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Runs the trial.
+	 *
+	 * @return the result
+	 */
+	@Override
+	protected Result compute() {
+		Simulator simulator = new Simulator(map, 1);
+		if (path.size() > 0) {
+			simulator.setPose(path.getX(0), path.getY(0), path.getHeading(0));
+		}
+		VirtualClock clock = new VirtualClock(0);
+		TrialLink link = new TrialLink(simulator, clock, path, timeLimit);
+		RobotController robot = new RobotController(link, clock, pathFile,
+				rate, OverrunPolicy.SKIP);
+		robot.setTuning(tuning);
+		robot.setTracking(tracking);
+
+		String outcome = "finished";
+		try {
+			robot.run();
+		} catch (TimeoutException e) {
+			outcome = "timeout";
+		} catch (Exception e) {
+			outcome = "failed (" + e.getMessage() + ")";
+		}
+		int goal = path.size() - 1;
+		return new Result(pathFile, tuning, tracking, outcome,
+				simulator.getTime() / 1e9, link.getMeanCrossTrack(),
+				link.getMaxCrossTrack(), link.getNearCollisions(),
+				simulator.getCollisions(), goal < 0 ? 0 : Math.hypot(
+						simulator.getX() - path.getX(goal),
+						simulator.getY() - path.getY(goal)));
+	}
+
+	/**
+	 * Result class The outcome and the scores of one trial.
+	 */
+	public static class Result {
+
+		private final String pathFile;
+		private final Tuning tuning;
+		private final Tracking tracking;
+		private final String outcome;
+		private final double time;
+		private final double meanCrossTrack;
+		private final double maxCrossTrack;
+		private final long nearCollisions;
+		private final long collisions;
+		private final double goalDistance;
+
+		private Result(String pathFile, Tuning tuning, Tracking tracking,
+				String outcome, double time, double meanCrossTrack,
+				double maxCrossTrack, long nearCollisions, long collisions,
+				double goalDistance) {
+			this.pathFile = pathFile;
+			this.tuning = tuning;
+			this.tracking = tracking;
+			this.outcome = outcome;
+			this.time = time;
+			this.meanCrossTrack = meanCrossTrack;
+			this.maxCrossTrack = maxCrossTrack;
+			this.nearCollisions = nearCollisions;
+			this.collisions = collisions;
+			this.goalDistance = goalDistance;
+		}
+
+		/**
+		 * @return the path file of the trial
+		 */
+		public String getPathFile() {
+			return pathFile;
+		}
+
+		/**
+		 * @return the tuning of the trial
+		 */
+		public Tuning getTuning() {
+			return tuning;
+		}
+
+		/**
+		 * @return the tracking of the trial
+		 */
+		public Tracking getTracking() {
+			return tracking;
+		}
+
+		/**
+		 * @return true if the robot reached the goal within the time limit
+		 */
+		public boolean isFinished() {
+			return outcome.equals("finished");
+		}
+
+		/**
+		 * @return finished, timeout or failed with the message
+		 */
+		public String getOutcome() {
+			return outcome;
+		}
+
+		/**
+		 * @return simulated time of the run in seconds
+		 */
+		public double getTime() {
+			return time;
+		}
+
+		/**
+		 * @return mean distance from the robot to the path
+		 */
+		public double getMeanCrossTrack() {
+			return meanCrossTrack;
+		}
+
+		/**
+		 * @return largest distance from the robot to the path
+		 */
+		public double getMaxCrossTrack() {
+			return maxCrossTrack;
+		}
+
+		/**
+		 * @return number of times the robot came close to a wall
+		 */
+		public long getNearCollisions() {
+			return nearCollisions;
+		}
+
+		/**
+		 * @return number of times the robot was stopped by a wall
+		 */
+		public long getCollisions() {
+			return collisions;
+		}
+
+		/**
+		 * @return distance from the robot to the goal at the end
+		 */
+		public double getGoalDistance() {
+			return goalDistance;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package robot.eval;
+
+import java.util.concurrent.TimeoutException;
+
+import robot.comm.RobotLink;
+import robot.control.Clock;
+import robot.path.Path;
+import robot.sim.Simulator;
+import robot.sim.SimulatorLink;
+import suppliedFiles.Request;
+import suppliedFiles.Response;
+
+/**
+ * TrialLink class A SimulatorLink that also scores the run. Every drive
+ * command, which the controller sends once per tick, takes a sample of the
+ * true pose of the simulated robot: its distance to the path, the
+ * cross-track error, and whether it has come closer to a wall than
+ * NEAR_MARGIN outside its radius, which counts as a near collision each time
+ * it happens. The cross-track error is measured to the closest segment of
+ * the path within SEARCH_AHEAD of the last one, so a path that passes close
+ * to itself is not mistaken for its other part. Once the clock has passed
+ * the time limit every request fails, which ends a run that would otherwise
+ * never reach its goal.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class TrialLink implements RobotLink {
+
+	public static final double NEAR_MARGIN = 0.1;
+	private static final double SEARCH_AHEAD = 2;
+	private static final int SEARCH_BEHIND = 5;
+	private final SimulatorLink link;
+	private final Simulator simulator;
+	private final Clock clock;
+	private final long timeLimit;
+	private final Path path;
+	private final double[] along;
+	private int segment;
+	private boolean near;
+	private long samples;
+	private double crossTrackSum;
+	private double maxCrossTrack;
+	private long nearCollisions;
+
+	/**
+	 * Constructor for TrialLink.
+	 *
+	 * @param simulator
+	 *            the simulated robot
+	 * @param clock
+	 *            the clock the controller runs on
+	 * @param path
+	 *            the path the robot should follow
+	 * @param timeLimit
+	 *            clock time in nanoseconds after which requests fail
+	 */
+	public TrialLink(Simulator simulator, Clock clock, Path path,
+			long timeLimit) {
+		link = new SimulatorLink(simulator, clock, 1);
+		this.simulator = simulator;
+		this.clock = clock;
+		this.path = path;
+		this.timeLimit = clock.nanoTime() + timeLimit;
+		along = new double[path.size()];
+		for (int i = 1; i < path.size(); i++) {
+			along[i] = along[i - 1]
+					+ path.distanceTo(i - 1, path.getX(i), path.getY(i));
+		}
+	}
+
+	/**
+	 * Applies the drive command and samples the pose of the robot.
+	 *
+	 * @throws TimeoutException
+	 *             if the time limit has passed
+	 */
+	@Override
+	public int putRequest(Request r) throws TimeoutException {
+		checkTime();
+		int status = link.putRequest(r);
+		double x;
+		double y;
+		double clearance;
+		synchronized (simulator) {
+			x = simulator.getX();
+			y = simulator.getY();
+			clearance = simulator.getClearance();
+		}
+		double crossTrack = crossTrack(x, y);
+		crossTrackSum += crossTrack;
+		maxCrossTrack = Math.max(maxCrossTrack, crossTrack);
+		samples++;
+
+		boolean close = clearance < Simulator.ROBOT_RADIUS + NEAR_MARGIN;
+		if (close && !near) {
+			nearCollisions++;
+		}
+		near = close;
+		return status;
+	}
+
+	/**
+	 * Fills in a response from the simulator.
+	 *
+	 * @throws TimeoutException
+	 *             if the time limit has passed
+	 */
+	@Override
+	public Response getResponse(Response r) throws TimeoutException {
+		checkTime();
+		return link.getResponse(r);
+	}
+
+	/**
+	 * Nothing to release for an in-process link.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * @return mean distance from the robot to the path over the ticks
+	 */
+	public double getMeanCrossTrack() {
+		return samples == 0 ? 0 : crossTrackSum / samples;
+	}
+
+	/**
+	 * @return largest distance from the robot to the path
+	 */
+	public double getMaxCrossTrack() {
+		return maxCrossTrack;
+	}
+
+	/**
+	 * @return number of times the robot came within NEAR_MARGIN of a wall
+	 */
+	public long getNearCollisions() {
+		return nearCollisions;
+	}
+
+	private void checkTime() throws TimeoutException {
+		if (clock.nanoTime() - timeLimit > 0) {
+			throw new TimeoutException("Time limit reached");
+		}
+	}
+
+	/**
+	 * Finds the distance to the closest segment near the last one and moves
+	 * the last segment there.
+	 */
+	private double crossTrack(double x, double y) {
+		int n = path.size();
+		if (n < 2) {
+			return n == 0 ? 0 : path.distanceTo(0, x, y);
+		}
+		double best = Double.POSITIVE_INFINITY;
+		int bestSegment = segment;
+		double limit = along[segment] + SEARCH_AHEAD;
+		for (int i = Math.max(0, segment - SEARCH_BEHIND); i < n - 1
+				&& along[i] <= limit; i++) {
+			double d = segmentDistance(i, x, y);
+			if (d < best) {
+				best = d;
+				bestSegment = i;
+			}
+		}
+		segment = bestSegment;
+		return best;
+	}
+
+	private double segmentDistance(int i, double x, double y) {
+		double ax = path.getX(i);
+		double ay = path.getY(i);
+		double dx = path.getX(i + 1) - ax;
+		double dy = path.getY(i + 1) - ay;
+		double length2 = dx * dx + dy * dy;
+		double t = length2 == 0 ? 0 : ((x - ax) * dx + (y - ay) * dy)
+				/ length2;
+		t = Math.max(0, Math.min(1, t));
+		double px = ax + t * dx - x;
+		double py = ay + t * dy - y;
+		return Math.sqrt(px * px + py * py);
+	}
+}
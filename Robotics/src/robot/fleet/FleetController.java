@@ -0,0 +1,313 @@
+package robot.fleet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import robot.RobotController;
+import robot.RobotController.Tracking;
+import robot.control.FixedRateScheduler.OverrunPolicy;
+import robot.metrics.Counter;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+import suppliedFiles.RobotCommunication;
+
+/**
+ * FleetController class Drives many robots from one JVM. Every robot has its
+ * own RobotController, and the ticks of all of them run on one shared
+ * scheduled thread pool instead of a thread per robot sleeping in run.
+ * Each robot schedules its next tick only when the current one is done, on
+ * its own grid of deadlines, and skips the periods it has missed the same
+ * way as the SKIP overrun policy. A robot therefore never has more than one
+ * tick in flight, and a slow or hanging robot only holds up itself as long
+ * as the pool has a thread per robot. A robot whose tick throws is stopped
+ * and taken out of the fleet while the others keep going.
+ *
+ * Ticks are recorded in a Metrics registry under the names FixedRateScheduler
+ * uses: tick, tick.jitter, deadline.misses and deadline.skipped. The names
+ * are prefixed with the name of the robot, such as r1.tick, and the whole
+ * fleet is recorded again as fleet.tick and so on.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class FleetController {
+
+	private final ScheduledExecutorService executor;
+	private final long period;
+	private final List<Member> members = new ArrayList<Member>();
+	private final Metrics metrics = new Metrics();
+	private final Histogram fleetTicks = metrics.histogram("fleet.tick");
+	private final Histogram fleetJitters = metrics
+			.histogram("fleet.tick.jitter");
+	private final Counter fleetMisses = metrics
+			.counter("fleet.deadline.misses");
+	private final Counter fleetSkips = metrics
+			.counter("fleet.deadline.skipped");
+	private CountDownLatch remaining;
+	private long startTime;
+	private long endTime;
+
+	/**
+	 * Constructor for FleetController.
+	 *
+	 * @param threads
+	 *            size of the shared pool, one per robot keeps a hanging
+	 *            robot from delaying the others
+	 * @param rate
+	 *            control loop rate of every robot in Hz
+	 */
+	public FleetController(int threads, double rate) {
+		if (!(rate > 0)) {
+			throw new IllegalArgumentException("Rate must be positive: "
+					+ rate);
+		}
+		period = Math.round(1e9 / rate);
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ScheduledThreadPoolExecutor(threads,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "fleet-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Adds a robot to the fleet. All robots must be added before run.
+	 *
+	 * @param name
+	 *            name of the robot in the summaries
+	 * @param controller
+	 *            the controller of the robot
+	 */
+	public void add(String name, RobotController controller) {
+		members.add(new Member(name, controller));
+	}
+
+	/**
+	 * Starts every robot and waits until all of them have reached their
+	 * goals or failed.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void run() throws InterruptedException {
+		remaining = new CountDownLatch(members.size());
+		startTime = System.nanoTime();
+		for (Member member : members) {
+			member.controller.start();
+			member.deadline = startTime;
+			executor.execute(member);
+		}
+		remaining.await();
+		endTime = System.nanoTime();
+		executor.shutdown();
+	}
+
+	/**
+	 * @return the registry the ticks of every robot are recorded in
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return one line per robot and one for the whole fleet
+	 */
+	public String summary() {
+		long elapsed = (endTime > 0 ? endTime : System.nanoTime()) - startTime;
+		StringBuilder sb = new StringBuilder();
+		for (Member member : members) {
+			sb.append(member.name).append(": ").append(member.state())
+					.append(", ").append(summary(member.name + ".", elapsed))
+					.append('\n');
+		}
+		sb.append("fleet of ").append(members.size()).append(": ")
+				.append(summary("fleet.", elapsed));
+		return sb.toString();
+	}
+
+	/**
+	 * @param prefix
+	 *            prefix of the metrics to summarize
+	 * @param elapsed
+	 *            wall time the ticks were spread over in nanoseconds
+	 * @return a one line summary
+	 */
+	private String summary(String prefix, long elapsed) {
+		Histogram ticks = metrics.histogram(prefix + "tick");
+		Histogram late = metrics.histogram(prefix + "tick.jitter");
+		long n = ticks.getCount();
+		if (n == 0) {
+			return "no ticks";
+		}
+		return String.format("%d ticks, %.1f/s, tick mean %.0fus p50 %.0fus"
+				+ " p99 %.0fus max %.0fus, late p99 %.0fus max %.0fus,"
+				+ " %d overruns, %d periods skipped", n, n * 1e9 / elapsed,
+				ticks.getMean() / 1000.0, ticks.percentile(0.5) / 1000.0,
+				ticks.percentile(0.99) / 1000.0, ticks.getMax() / 1000.0,
+				late.percentile(0.99) / 1000.0, late.getMax() / 1000.0,
+				metrics.counter(prefix + "deadline.misses").get(), metrics
+						.counter(prefix + "deadline.skipped").get());
+	}
+
+	/**
+	 * One robot of the fleet and the task that runs its ticks.
+	 */
+	private class Member implements Runnable {
+
+		private final String name;
+		private final RobotController controller;
+		private final Histogram tickTimes;
+		private final Histogram jitters;
+		private final Counter misses;
+		private final Counter skips;
+		private long deadline;
+		private volatile boolean finished;
+		private volatile Exception failure;
+
+		private Member(String name, RobotController controller) {
+			this.name = name;
+			this.controller = controller;
+			tickTimes = metrics.histogram(name + ".tick");
+			jitters = metrics.histogram(name + ".tick.jitter");
+			misses = metrics.counter(name + ".deadline.misses");
+			skips = metrics.counter(name + ".deadline.skipped");
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			boolean more;
+			try {
+				more = controller.tick();
+			} catch (Exception e) {
+				failure = e;
+				more = false;
+			}
+			long end = System.nanoTime();
+			tickTimes.record(end - start);
+			fleetTicks.record(end - start);
+			jitters.record(start - deadline);
+			fleetJitters.record(start - deadline);
+			if (!more) {
+				finish();
+				return;
+			}
+
+			deadline += period;
+			if (end - deadline > 0) {
+				long missed = (end - deadline) / period + 1;
+				misses.increment();
+				fleetMisses.increment();
+				skips.add(missed);
+				fleetSkips.add(missed);
+				deadline += missed * period;
+			}
+			executor.schedule(this, deadline - System.nanoTime(),
+					TimeUnit.NANOSECONDS);
+		}
+
+		private void finish() {
+			try {
+				controller.shutdown();
+			} catch (Exception e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			finished = failure == null;
+			remaining.countDown();
+		}
+
+		private String state() {
+			if (failure != null) {
+				return "failed (" + failure.getMessage() + ")";
+			}
+			return finished ? "finished" : "running";
+		}
+	}
+
+	/**
+	 * Main runs a fleet from a configuration file with one robot per line:
+	 * a name, the host and port of its MRDS server, the path file it
+	 * follows and optionally its tracking. Lines starting with # are
+	 * skipped.
+	 *
+	 * @param args
+	 *            the configuration file, optionally followed by the rate in
+	 *            Hz and the number of threads, one per robot by default
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: FleetController <config> [rate]"
+					+ " [threads]");
+			System.exit(1);
+		}
+		double rate = args.length > 1 ? Double.parseDouble(args[1])
+				: RobotController.DEFAULT_RATE;
+
+		try {
+			List<String[]> robots = readConfig(new File(args[0]));
+			int threads = args.length > 2 ? Integer.parseInt(args[2])
+					: Math.max(1, robots.size());
+			FleetController fleet = new FleetController(threads, rate);
+			for (String[] robot : robots) {
+				RobotController controller = new RobotController(
+						new RobotCommunication(robot[1],
+								Integer.parseInt(robot[2])), robot[3], rate,
+						OverrunPolicy.SKIP);
+				if (robot.length > 4) {
+					controller.setTracking(Tracking.valueOf(robot[4]));
+				}
+				fleet.add(robot[0], controller);
+			}
+			fleet.getMetrics().register();
+			try {
+				fleet.run();
+			} finally {
+				fleet.getMetrics().unregister();
+			}
+			System.out.println(fleet.summary());
+		} catch (Exception e) {
+			System.err.println("An error has occurred with message:"
+					+ e.getMessage());
+		}
+	}
+
+	private static List<String[]> readConfig(File file) throws IOException {
+		List<String[]> robots = new ArrayList<String[]>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if (fields.length < 4) {
+					throw new IOException("Expected name, host, port and path: "
+							+ line);
+				}
+				robots.add(fields);
+			}
+		} finally {
+			in.close();
+		}
+		return robots;
+	}
+}
@@ -0,0 +1,135 @@
+package robot.laser;
+
+/**
+ * LaserGeometry class Describes the beams of a laser scanner: how many there
+ * are, the angle of the first one and the angle between two neighbours. The
+ * angle, sine and cosine of every beam are computed once so scan processing
+ * never has to call the trigonometric functions. Angles are in radians
+ * relative to the robot heading, positive to the left.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class LaserGeometry {
+
+	/**
+	 * The scanner of the Robulab robot in MRDS, 271 beams one degree apart
+	 * from -135 to +135 degrees.
+	 */
+	public static final LaserGeometry ROBULAB = new LaserGeometry(271,
+			Math.toRadians(-135), Math.toRadians(1));
+
+	private final int beams;
+	private final double firstAngle;
+	private final double step;
+	private final double[] angles;
+	private final double[] cos;
+	private final double[] sin;
+
+	/**
+	 * Constructor for LaserGeometry.
+	 *
+	 * @param beams
+	 *            number of beams in a scan
+	 * @param firstAngle
+	 *            angle of beam 0 in radians
+	 * @param step
+	 *            angle between two neighbouring beams in radians
+	 */
+	public LaserGeometry(int beams, double firstAngle, double step) {
+		if (beams <= 0 || !(step > 0)) {
+			throw new IllegalArgumentException("Bad laser geometry: "
+					+ beams + " beams, step " + step);
+		}
+		this.beams = beams;
+		this.firstAngle = firstAngle;
+		this.step = step;
+		angles = new double[beams];
+		cos = new double[beams];
+		sin = new double[beams];
+		for (int i = 0; i < beams; i++) {
+			angles[i] = firstAngle + i * step;
+			cos[i] = Math.cos(angles[i]);
+			sin[i] = Math.sin(angles[i]);
+		}
+	}
+
+	/**
+	 * @return number of beams in a scan
+	 */
+	public int getBeams() {
+		return beams;
+	}
+
+	/**
+	 * @return angle of beam 0 in radians
+	 */
+	public double getFirstAngle() {
+		return firstAngle;
+	}
+
+	/**
+	 * @return angle between two neighbouring beams in radians
+	 */
+	public double getStep() {
+		return step;
+	}
+
+	/**
+	 * @param beam
+	 *            beam index
+	 * @return angle of the beam in radians
+	 */
+	public double getAngle(int beam) {
+		return angles[beam];
+	}
+
+	/**
+	 * @param beam
+	 *            beam index
+	 * @return cosine of the beam angle
+	 */
+	public double getCos(int beam) {
+		return cos[beam];
+	}
+
+	/**
+	 * @param beam
+	 *            beam index
+	 * @return sine of the beam angle
+	 */
+	public double getSin(int beam) {
+		return sin[beam];
+	}
+
+	/**
+	 * Finds the beam closest to an angle. Angles outside the scan give the
+	 * first or the last beam.
+	 *
+	 * @param angle
+	 *            angle in radians
+	 * @return index of the closest beam
+	 */
+	public int indexOf(double angle) {
+		long index = Math.round((angle - firstAngle) / step);
+		return (int) Math.max(0, Math.min(beams - 1, index));
+	}
+
+	/**
+	 * Creates a sector covering the beams between two angles, both included.
+	 *
+	 * @param fromAngle
+	 *            angle of the right edge in radians
+	 * @param toAngle
+	 *            angle of the left edge in radians
+	 * @return the sector
+	 */
+	public Sector sector(double fromAngle, double toAngle) {
+		if (toAngle < fromAngle) {
+			throw new IllegalArgumentException("Sector " + fromAngle + " to "
+					+ toAngle + " is empty");
+		}
+		return new Sector(indexOf(fromAngle), indexOf(toAngle));
+	}
+}
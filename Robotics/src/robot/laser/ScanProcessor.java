@@ -0,0 +1,267 @@
+package robot.laser;
+
+import suppliedFiles.LaserEchoesResponse;
+
+/**
+ * ScanProcessor class Turns the echoes of a laser response into a cleaned up
+ * scan that can be queried by sector. Echoes are copied into an array that
+ * is reused for every scan. Echoes that are not a number, closer than the
+ * minimum range or further than the maximum range are taken as no echo and
+ * set to the maximum range. A median filter over neighbouring beams then
+ * removes single beam spikes. Nothing is allocated after construction, so a
+ * processor can be updated every tick.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ScanProcessor {
+
+	public static final int MAX_MEDIAN_WINDOW = 15;
+
+	private final LaserGeometry geometry;
+	private final int halfWindow;
+	private final double minRange;
+	private final double maxRange;
+	private final double[] raw;
+	private final double[] ranges;
+	private final double[] window;
+	private int count;
+
+	/**
+	 * Constructor for ScanProcessor.
+	 *
+	 * @param geometry
+	 *            the beams of the scanner
+	 * @param medianWindow
+	 *            number of beams in the median filter, an odd number up to
+	 *            MAX_MEDIAN_WINDOW, 1 turns the filter off
+	 * @param minRange
+	 *            shorter echoes are taken as no echo
+	 * @param maxRange
+	 *            range of the scanner, used for beams without an echo
+	 */
+	public ScanProcessor(LaserGeometry geometry, int medianWindow,
+			double minRange, double maxRange) {
+		if (medianWindow < 1 || medianWindow > MAX_MEDIAN_WINDOW
+				|| medianWindow % 2 == 0) {
+			throw new IllegalArgumentException("Median window must be odd "
+					+ "and at most " + MAX_MEDIAN_WINDOW + ": " + medianWindow);
+		}
+		this.geometry = geometry;
+		this.halfWindow = medianWindow / 2;
+		this.minRange = minRange;
+		this.maxRange = maxRange;
+		raw = new double[geometry.getBeams()];
+		ranges = new double[geometry.getBeams()];
+		window = new double[medianWindow];
+	}
+
+	/**
+	 * @return the beams of the scanner
+	 */
+	public LaserGeometry getGeometry() {
+		return geometry;
+	}
+
+	/**
+	 * Processes the echoes of a laser response.
+	 *
+	 * @param ler
+	 *            the laser response
+	 * @return number of beams in the processed scan
+	 */
+	public int update(LaserEchoesResponse ler) {
+		int echoes = ler.getEchoes(raw);
+		return process(Math.min(echoes, raw.length));
+	}
+
+	/**
+	 * Processes echoes from an array.
+	 *
+	 * @param echoes
+	 *            distances of the echoes, beam 0 first
+	 * @param length
+	 *            number of echoes in the array
+	 * @return number of beams in the processed scan
+	 */
+	public int update(double[] echoes, int length) {
+		int n = Math.min(length, raw.length);
+		System.arraycopy(echoes, 0, raw, 0, n);
+		return process(n);
+	}
+
+	/**
+	 * Cleans the raw echoes and runs the median filter in one pass.
+	 */
+	private int process(int n) {
+		for (int i = 0; i < n; i++) {
+			double r = raw[i];
+			if (!(r >= minRange) || r > maxRange) {
+				raw[i] = maxRange;
+			}
+		}
+		if (halfWindow == 0) {
+			System.arraycopy(raw, 0, ranges, 0, n);
+		} else if (halfWindow == 1 && n > 1) {
+			// The common three beam window without the window buffer.
+			ranges[0] = Math.min(raw[0], raw[1]);
+			for (int i = 1; i < n - 1; i++) {
+				ranges[i] = median(raw[i - 1], raw[i], raw[i + 1]);
+			}
+			ranges[n - 1] = Math.min(raw[n - 2], raw[n - 1]);
+		} else {
+			for (int i = 0; i < n; i++) {
+				ranges[i] = median(Math.max(0, i - halfWindow), Math.min(n - 1,
+						i + halfWindow));
+			}
+		}
+		for (int i = n; i < ranges.length; i++) {
+			ranges[i] = maxRange;
+		}
+		this.count = n;
+		return n;
+	}
+
+	/**
+	 * Median of the raw echoes from first to last, by insertion sort into
+	 * the window buffer. For an even number of values the lower middle one
+	 * is used, so a filtered echo is always one that was measured.
+	 */
+	private double median(int first, int last) {
+		int n = 0;
+		for (int i = first; i <= last; i++) {
+			double v = raw[i];
+			int j = n++;
+			while (j > 0 && window[j - 1] > v) {
+				window[j] = window[j - 1];
+				j--;
+			}
+			window[j] = v;
+		}
+		return window[(n - 1) / 2];
+	}
+
+	/**
+	 * Median of three values. Plain comparisons are used since the values
+	 * are never NaN here and Math.min and Math.max are slower for doubles.
+	 */
+	private static double median(double a, double b, double c) {
+		if (a > b) {
+			double t = a;
+			a = b;
+			b = t;
+		}
+		return c <= a ? a : (c >= b ? b : c);
+	}
+
+	/**
+	 * @return number of beams in the latest scan
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @param beam
+	 *            beam index
+	 * @return filtered distance of the beam
+	 */
+	public double getRange(int beam) {
+		return ranges[beam];
+	}
+
+	/**
+	 * Copies the filtered distances of the latest scan.
+	 *
+	 * @param result
+	 *            array to fill, beams that do not fit are left out
+	 * @return number of beams in the latest scan
+	 */
+	public int copyRanges(double[] result) {
+		System.arraycopy(ranges, 0, result, 0, Math.min(count, result.length));
+		return count;
+	}
+
+	/**
+	 * @return range used for beams without an echo
+	 */
+	public double getMaxRange() {
+		return maxRange;
+	}
+
+	/**
+	 * Gives the filtered distance of the beam closest to an angle.
+	 *
+	 * @param angle
+	 *            angle relative to the heading in radians
+	 * @return filtered distance
+	 */
+	public double rangeAt(double angle) {
+		return ranges[geometry.indexOf(angle)];
+	}
+
+	/**
+	 * @param sector
+	 *            the beams to look at
+	 * @return shortest filtered distance in the sector
+	 */
+	public double minDistance(Sector sector) {
+		double min = maxRange;
+		for (int i = sector.getFirst(); i <= sector.getLast(); i++) {
+			if (ranges[i] < min) {
+				min = ranges[i];
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * @param sector
+	 *            the beams to look at
+	 * @return index of the beam with the shortest distance in the sector, or
+	 *         -1 if no beam in it has an echo
+	 */
+	public int closestBeam(Sector sector) {
+		int closest = -1;
+		double min = maxRange;
+		for (int i = sector.getFirst(); i <= sector.getLast(); i++) {
+			if (ranges[i] < min) {
+				min = ranges[i];
+				closest = i;
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * Finds the shortest distance in several sectors with one pass over the
+	 * scan. The sectors may overlap.
+	 *
+	 * @param sectors
+	 *            the sectors
+	 * @param result
+	 *            array of at least sectors.length elements to fill with the
+	 *            shortest distance of each sector
+	 */
+	public void minDistances(Sector[] sectors, double[] result) {
+		int from = ranges.length;
+		int to = -1;
+		for (int s = 0; s < sectors.length; s++) {
+			result[s] = maxRange;
+			from = Math.min(from, sectors[s].getFirst());
+			to = Math.max(to, sectors[s].getLast());
+		}
+		for (int i = from; i <= to; i++) {
+			double r = ranges[i];
+			if (r >= maxRange) {
+				continue;
+			}
+			for (int s = 0; s < sectors.length; s++) {
+				if (r < result[s] && sectors[s].contains(i)) {
+					result[s] = r;
+				}
+			}
+		}
+	}
+}
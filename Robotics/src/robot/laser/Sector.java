@@ -0,0 +1,44 @@
+package robot.laser;
+
+/**
+ * Sector class A range of neighbouring laser beams, for example the beams
+ * straight ahead of the robot. Sectors are created by LaserGeometry so the
+ * beam indices are worked out once from the angles.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Sector {
+
+	private final int first;
+	private final int last;
+
+	Sector(int first, int last) {
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * @return index of the first beam in the sector
+	 */
+	public int getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return index of the last beam in the sector, included
+	 */
+	public int getLast() {
+		return last;
+	}
+
+	/**
+	 * @param beam
+	 *            beam index
+	 * @return true if the beam is in the sector
+	 */
+	public boolean contains(int beam) {
+		return beam >= first && beam <= last;
+	}
+}
@@ -0,0 +1,179 @@
+package robot.map;
+
+import robot.Pose;
+import robot.laser.LaserGeometry;
+import robot.laser.ScanProcessor;
+
+/**
+ * MapBuilder class Fuses laser scans into an OccupancyGrid on a background
+ * thread so the control loop only pays for copying the scan. The control
+ * loop hands over the pose and scan of each tick with submit. There are
+ * three scan buffers: one the control loop fills, one waiting and one being
+ * fused, so neither side ever waits for the other. If the mapper falls
+ * behind, the waiting scan is replaced by the newest one and counted as
+ * dropped.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class MapBuilder {
+
+	private final OccupancyGrid grid;
+	private final LaserGeometry geometry;
+	private final Thread thread;
+	private Scan filling;
+	private Scan waiting;
+	private Scan fusing;
+	private boolean pending;
+	private boolean running = true;
+	private long submitted;
+	private long dropped;
+	private volatile long fused;
+	private volatile long fuseNanos;
+
+	/**
+	 * Constructor for MapBuilder. The mapping thread starts right away.
+	 *
+	 * @param grid
+	 *            the grid to build, only this builder may write to it
+	 * @param geometry
+	 *            beams of the scanner
+	 */
+	public MapBuilder(OccupancyGrid grid, LaserGeometry geometry) {
+		this.grid = grid;
+		this.geometry = geometry;
+		filling = new Scan(geometry.getBeams());
+		waiting = new Scan(geometry.getBeams());
+		fusing = new Scan(geometry.getBeams());
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				fuseScans();
+			}
+		}, "map-builder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the grid being built
+	 */
+	public OccupancyGrid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Hands over the scan of a tick to be fused into the grid. Nothing is
+	 * allocated and the call never waits for the mapping thread.
+	 *
+	 * @param pose
+	 *            pose of the robot when the scan was taken
+	 * @param scan
+	 *            the processed scan
+	 */
+	public void submit(Pose pose, ScanProcessor scan) {
+		Scan s = filling;
+		s.x = pose.getX();
+		s.y = pose.getY();
+		s.heading = pose.getHeading();
+		s.maxRange = scan.getMaxRange();
+		s.count = scan.copyRanges(s.ranges);
+		synchronized (this) {
+			filling = waiting;
+			waiting = s;
+			if (pending) {
+				dropped++;
+			}
+			pending = true;
+			submitted++;
+			notify();
+		}
+	}
+
+	/**
+	 * Fuses the remaining scan and stops the mapping thread.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void shutdown() throws InterruptedException {
+		synchronized (this) {
+			running = false;
+			notify();
+		}
+		thread.join();
+	}
+
+	/**
+	 * @return number of scans handed over
+	 */
+	public synchronized long getSubmitted() {
+		return submitted;
+	}
+
+	/**
+	 * @return number of scans replaced before they were fused
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return number of scans fused into the grid
+	 */
+	public long getFused() {
+		return fused;
+	}
+
+	/**
+	 * @return mean time to fuse a scan in nanoseconds
+	 */
+	public long getMeanFuseTime() {
+		long n = fused;
+		return n == 0 ? 0 : fuseNanos / n;
+	}
+
+	private void fuseScans() {
+		while (true) {
+			Scan s;
+			synchronized (this) {
+				while (!pending && running) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (!pending) {
+					return;
+				}
+				s = waiting;
+				waiting = fusing;
+				fusing = s;
+				pending = false;
+			}
+			long start = System.nanoTime();
+			grid.integrate(s.x, s.y, s.heading, geometry, s.ranges, s.count,
+					s.maxRange);
+			fuseNanos += System.nanoTime() - start;
+			fused++;
+		}
+	}
+
+	/**
+	 * A pose and the ranges of one scan.
+	 */
+	private static class Scan {
+
+		private final double[] ranges;
+		private double x;
+		private double y;
+		private double heading;
+		private double maxRange;
+		private int count;
+
+		private Scan(int beams) {
+			ranges = new double[beams];
+		}
+	}
+}
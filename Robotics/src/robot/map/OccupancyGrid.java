@@ -0,0 +1,557 @@
+package robot.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import robot.laser.LaserGeometry;
+
+/**
+ * OccupancyGrid class A 2D occupancy grid built from laser scans. Every cell
+ * holds the log-odds that it is occupied, starting at 0 for unknown. A scan
+ * is fused by tracing each beam with Bresenham's line algorithm, lowering
+ * the log-odds of the cells the beam passes and raising it for the cell
+ * where it ends in an echo. Log-odds are clamped so a cell can change its
+ * mind when the world changes.
+ *
+ * Cells are stored in square tiles of float arrays that are created the
+ * first time a beam reaches them, and the table of tiles grows in any
+ * direction when the robot leaves the mapped area. Only the thread that
+ * updates the grid may write to it, other threads may read it at any time.
+ *
+ * Every tile is stamped with the generation in which one of its cells last
+ * became occupied or free, and the generation is raised after each update
+ * that did so. A reader that remembers the generation it has seen finds the
+ * tiles that changed since then by their stamps, without comparing cells.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class OccupancyGrid {
+
+	public static final int MAGIC = 0x44524752; // "RGRD" little-endian
+	public static final int VERSION = 1;
+	public static final int TILE_BITS = 6;
+	public static final int TILE_SIZE = 1 << TILE_BITS;
+	public static final float LOG_ODDS_HIT = 0.85f;
+	public static final float LOG_ODDS_MISS = -0.4f;
+	public static final float LOG_ODDS_LIMIT = 5f;
+	public static final float OCCUPIED = 0.85f;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	private static final int HEADER_SIZE = 24;
+
+	private final double resolution;
+	private volatile Tiles tiles;
+	private volatile int generation;
+	private boolean changed;
+
+	/**
+	 * Constructor for OccupancyGrid.
+	 *
+	 * @param resolution
+	 *            side of a cell in meters
+	 */
+	public OccupancyGrid(double resolution) {
+		if (!(resolution > 0)) {
+			throw new IllegalArgumentException("Resolution must be positive");
+		}
+		this.resolution = resolution;
+		tiles = new Tiles(-1, -1, 2, 2);
+	}
+
+	/**
+	 * @return side of a cell in meters
+	 */
+	public double getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate in meters
+	 * @return column of the cell holding the coordinate
+	 */
+	public int cell(double x) {
+		return (int) Math.floor(x / resolution);
+	}
+
+	/**
+	 * @param cell
+	 *            column or row of a cell
+	 * @return coordinate of the cell center in meters
+	 */
+	public double center(int cell) {
+		return (cell + 0.5) * resolution;
+	}
+
+	/**
+	 * @param cx
+	 *            column of the cell
+	 * @param cy
+	 *            row of the cell
+	 * @return log-odds that the cell is occupied, 0 if it is unknown
+	 */
+	public float getLogOdds(int cx, int cy) {
+		float[] tile = tiles.get(cx >> TILE_BITS, cy >> TILE_BITS);
+		return tile == null ? 0 : tile[index(cx, cy)];
+	}
+
+	/**
+	 * Copies the log-odds of a run of cells in a row, one tile at a time.
+	 *
+	 * @param cx
+	 *            column of the first cell
+	 * @param cy
+	 *            row of the cells
+	 * @param length
+	 *            number of cells
+	 * @param result
+	 *            array to fill, unknown cells get 0
+	 */
+	public void getRow(int cx, int cy, int length, float[] result) {
+		Tiles current = tiles;
+		int ty = cy >> TILE_BITS;
+		int rowStart = (cy & TILE_MASK) << TILE_BITS;
+		int i = 0;
+		while (i < length) {
+			int x = cx + i;
+			int n = Math.min(length - i, TILE_SIZE - (x & TILE_MASK));
+			float[] tile = current.get(x >> TILE_BITS, ty);
+			if (tile == null) {
+				Arrays.fill(result, i, i + n, 0);
+			} else {
+				System.arraycopy(tile, rowStart + (x & TILE_MASK), result, i,
+						n);
+			}
+			i += n;
+		}
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate in meters
+	 * @param y
+	 *            y coordinate in meters
+	 * @return log-odds that the cell at the point is occupied
+	 */
+	public float getLogOdds(double x, double y) {
+		return getLogOdds(cell(x), cell(y));
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate in meters
+	 * @param y
+	 *            y coordinate in meters
+	 * @return probability that the cell at the point is occupied, 0.5 if it
+	 *         is unknown
+	 */
+	public double getProbability(double x, double y) {
+		return 1 - 1 / (1 + Math.exp(getLogOdds(x, y)));
+	}
+
+	/**
+	 * @param cx
+	 *            column of the cell
+	 * @param cy
+	 *            row of the cell
+	 * @return true if the cell is believed to be occupied
+	 */
+	public boolean isOccupied(int cx, int cy) {
+		return getLogOdds(cx, cy) >= OCCUPIED;
+	}
+
+	/**
+	 * Sets the log-odds of a cell.
+	 *
+	 * @param cx
+	 *            column of the cell
+	 * @param cy
+	 *            row of the cell
+	 * @param logOdds
+	 *            the new log-odds
+	 */
+	public void setLogOdds(int cx, int cy, float logOdds) {
+		set(tile(cx, cy), cx, cy, logOdds);
+		publish();
+	}
+
+	/**
+	 * Fuses a laser scan taken from a pose into the grid.
+	 *
+	 * @param x
+	 *            x coordinate of the scanner
+	 * @param y
+	 *            y coordinate of the scanner
+	 * @param heading
+	 *            heading of the scanner in radians
+	 * @param geometry
+	 *            beams of the scanner
+	 * @param ranges
+	 *            distance of each beam, beam 0 first
+	 * @param count
+	 *            number of beams in ranges
+	 * @param maxRange
+	 *            range of the scanner, beams at or beyond it have no echo and
+	 *            only clear cells
+	 */
+	public void integrate(double x, double y, double heading,
+			LaserGeometry geometry, double[] ranges, int count,
+			double maxRange) {
+		double cos = Math.cos(heading);
+		double sin = Math.sin(heading);
+		int x0 = cell(x);
+		int y0 = cell(y);
+		int n = Math.min(count, geometry.getBeams());
+		for (int i = 0; i < n; i++) {
+			double range = Math.min(ranges[i], maxRange);
+			// Rotate the beam direction by the heading.
+			double dx = cos * geometry.getCos(i) - sin * geometry.getSin(i);
+			double dy = sin * geometry.getCos(i) + cos * geometry.getSin(i);
+			int x1 = cell(x + dx * range);
+			int y1 = cell(y + dy * range);
+			trace(x0, y0, x1, y1);
+			if (range < maxRange) {
+				add(x1, y1, LOG_ODDS_HIT);
+			}
+		}
+		publish();
+	}
+
+	/**
+	 * Lowers the log-odds of the cells on the line from one cell up to, but
+	 * not including, another with Bresenham's line algorithm.
+	 */
+	private void trace(int x0, int y0, int x1, int y1) {
+		int dx = Math.abs(x1 - x0);
+		int dy = -Math.abs(y1 - y0);
+		int sx = x0 < x1 ? 1 : -1;
+		int sy = y0 < y1 ? 1 : -1;
+		int error = dx + dy;
+		int x = x0;
+		int y = y0;
+		while (x != x1 || y != y1) {
+			add(x, y, LOG_ODDS_MISS);
+			int e2 = 2 * error;
+			if (e2 >= dy) {
+				error += dy;
+				x += sx;
+			}
+			if (e2 <= dx) {
+				error += dx;
+				y += sy;
+			}
+		}
+	}
+
+	private void add(int cx, int cy, float delta) {
+		float[] tile = tile(cx, cy);
+		float value = tile[index(cx, cy)] + delta;
+		set(tile, cx, cy,
+				Math.max(-LOG_ODDS_LIMIT, Math.min(LOG_ODDS_LIMIT, value)));
+	}
+
+	/**
+	 * Writes a cell of a tile and stamps the tile with the coming generation
+	 * if the cell became occupied or free.
+	 */
+	private void set(float[] tile, int cx, int cy, float logOdds) {
+		int i = index(cx, cy);
+		if (tile[i] >= OCCUPIED != logOdds >= OCCUPIED) {
+			tiles.stamp(cx >> TILE_BITS, cy >> TILE_BITS, generation + 1);
+			changed = true;
+		}
+		tile[i] = logOdds;
+	}
+
+	/**
+	 * Raises the generation if any cell became occupied or free, so the
+	 * stamps written since the last time are seen by readers.
+	 */
+	private void publish() {
+		if (changed) {
+			changed = false;
+			generation++;
+		}
+	}
+
+	/**
+	 * @return the generation of the latest update that made a cell occupied
+	 *         or free, 0 before any
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Gives the generation in which a cell of a tile last became occupied or
+	 * free. A tile changed by an update that is still running has a stamp
+	 * above getGeneration.
+	 *
+	 * @param tx
+	 *            column of the tile
+	 * @param ty
+	 *            row of the tile
+	 * @return the stamp of the tile, 0 if none of its cells has changed
+	 */
+	public int getStamp(int tx, int ty) {
+		return tiles.getStamp(tx, ty);
+	}
+
+	private static int index(int cx, int cy) {
+		return ((cy & TILE_MASK) << TILE_BITS) | (cx & TILE_MASK);
+	}
+
+	/**
+	 * Returns the tile holding a cell, creating it and growing the tile
+	 * table if needed.
+	 */
+	private float[] tile(int cx, int cy) {
+		int tx = cx >> TILE_BITS;
+		int ty = cy >> TILE_BITS;
+		Tiles current = tiles;
+		if (!current.contains(tx, ty)) {
+			current = current.grow(tx, ty);
+			tiles = current;
+		}
+		float[] tile = current.get(tx, ty);
+		if (tile == null) {
+			tile = new float[TILE_SIZE * TILE_SIZE];
+			current.set(tx, ty, tile);
+		}
+		return tile;
+	}
+
+	/**
+	 * Gives the cells covered by the table of tiles, which hold every cell
+	 * that has been written.
+	 *
+	 * @param bounds
+	 *            at least four values, filled with the first column, the
+	 *            first row and the number of columns and rows
+	 */
+	public void getBounds(int[] bounds) {
+		Tiles current = tiles;
+		bounds[0] = current.minX << TILE_BITS;
+		bounds[1] = current.minY << TILE_BITS;
+		bounds[2] = current.width << TILE_BITS;
+		bounds[3] = current.height << TILE_BITS;
+	}
+
+	/**
+	 * @return number of tiles that have been created
+	 */
+	public int getTileCount() {
+		Tiles current = tiles;
+		int n = 0;
+		for (float[] tile : current.table) {
+			if (tile != null) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Writes a snapshot of the grid to a file, replacing the file if it
+	 * exists. The snapshot is written to a temporary file next to it first so
+	 * a reader never sees half a snapshot. The file starts with the magic
+	 * bytes RGRD, a format version, the resolution and the number of tiles,
+	 * followed by the tile coordinates and cells of each tile. All values are
+	 * little-endian.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		Tiles current = tiles;
+		File temp = new File(file.getPath() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(8 + TILE_SIZE * TILE_SIZE
+					* 4);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putDouble(resolution);
+			buffer.putInt(TILE_BITS);
+			buffer.putInt(getTileCount());
+			flush(buffer, channel);
+			for (int ty = 0; ty < current.height; ty++) {
+				for (int tx = 0; tx < current.width; tx++) {
+					float[] tile = current.table[ty * current.width + tx];
+					if (tile == null) {
+						continue;
+					}
+					buffer.putInt(current.minX + tx);
+					buffer.putInt(current.minY + ty);
+					for (int i = 0; i < tile.length; i++) {
+						buffer.putFloat(tile[i]);
+					}
+					flush(buffer, channel);
+				}
+			}
+			channel.force(true);
+		} finally {
+			raf.close();
+		}
+		Files.move(temp.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a snapshot written by write.
+	 *
+	 * @param file
+	 *            the snapshot file
+	 * @return the grid
+	 * @throws IOException
+	 *             if the file can not be read or is not a snapshot
+	 */
+	public static OccupancyGrid read(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(8 + TILE_SIZE * TILE_SIZE
+					* 4);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(HEADER_SIZE);
+			fill(buffer, channel, file);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException(file + " is not an occupancy grid file");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException(file + " has unsupported version "
+						+ version);
+			}
+			OccupancyGrid grid = new OccupancyGrid(buffer.getDouble());
+			if (buffer.getInt() != TILE_BITS) {
+				throw new IOException(file + " has another tile size");
+			}
+			int count = buffer.getInt();
+			for (int t = 0; t < count; t++) {
+				buffer.clear();
+				fill(buffer, channel, file);
+				int tx = buffer.getInt();
+				int ty = buffer.getInt();
+				float[] tile = grid.tile(tx << TILE_BITS, ty << TILE_BITS);
+				for (int i = 0; i < tile.length; i++) {
+					tile[i] = buffer.getFloat();
+				}
+			}
+			return grid;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel)
+			throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static void fill(ByteBuffer buffer, FileChannel channel, File file)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException(file + " is truncated");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * A rectangular table of tiles. A new table is made when the grid grows
+	 * so readers always see a consistent one.
+	 */
+	private static class Tiles {
+
+		private final int minX;
+		private final int minY;
+		private final int width;
+		private final int height;
+		private final float[][] table;
+		private final int[] stamps;
+
+		private Tiles(int minX, int minY, int width, int height) {
+			this.minX = minX;
+			this.minY = minY;
+			this.width = width;
+			this.height = height;
+			table = new float[width * height][];
+			stamps = new int[width * height];
+		}
+
+		private boolean contains(int tx, int ty) {
+			return tx >= minX && tx < minX + width && ty >= minY
+					&& ty < minY + height;
+		}
+
+		private float[] get(int tx, int ty) {
+			if (!contains(tx, ty)) {
+				return null;
+			}
+			return table[(ty - minY) * width + tx - minX];
+		}
+
+		private void set(int tx, int ty, float[] tile) {
+			table[(ty - minY) * width + tx - minX] = tile;
+		}
+
+		private int getStamp(int tx, int ty) {
+			return contains(tx, ty) ? stamps[(ty - minY) * width + tx - minX]
+					: 0;
+		}
+
+		private void stamp(int tx, int ty, int stamp) {
+			stamps[(ty - minY) * width + tx - minX] = stamp;
+		}
+
+		/**
+		 * Returns a table at least twice as large in the directions needed
+		 * to hold the tile, sharing the existing tiles.
+		 */
+		private Tiles grow(int tx, int ty) {
+			int x0 = minX;
+			int y0 = minY;
+			int x1 = minX + width;
+			int y1 = minY + height;
+			while (tx < x0) {
+				x0 -= x1 - x0;
+			}
+			while (tx >= x1) {
+				x1 += x1 - x0;
+			}
+			while (ty < y0) {
+				y0 -= y1 - y0;
+			}
+			while (ty >= y1) {
+				y1 += y1 - y0;
+			}
+			Tiles grown = new Tiles(x0, y0, x1 - x0, y1 - y0);
+			for (int y = 0; y < height; y++) {
+				int to = (minY + y - y0) * grown.width + minX - x0;
+				System.arraycopy(table, y * width, grown.table, to, width);
+				System.arraycopy(stamps, y * width, grown.stamps, to, width);
+			}
+			return grown;
+		}
+	}
+}
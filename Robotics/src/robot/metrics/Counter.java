@@ -0,0 +1,38 @@
+package robot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter class A count that any number of threads may add to without
+ * taking a lock.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Counter {
+
+	private final AtomicLong count = new AtomicLong();
+
+	/**
+	 * Adds one to the count.
+	 */
+	public void increment() {
+		count.incrementAndGet();
+	}
+
+	/**
+	 * @param n
+	 *            amount to add to the count
+	 */
+	public void add(long n) {
+		count.addAndGet(n);
+	}
+
+	/**
+	 * @return the count
+	 */
+	public long get() {
+		return count.get();
+	}
+}
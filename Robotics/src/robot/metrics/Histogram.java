@@ -0,0 +1,124 @@
+package robot.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram class Counts recorded values, usually durations in nanoseconds,
+ * in buckets that grow with the value in the same way as HdrHistogram: eight
+ * buckets per power of two, so a percentile is within 12.5% of the real
+ * value over the whole range of a long with 512 counters. Recording is a
+ * few atomic additions and never takes a lock or allocates, so the control
+ * loop and the laser thread can record into the same histogram while
+ * another thread reads it. A reader may see a value counted in its bucket
+ * before it is in the total, which is fine for monitoring.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Histogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one value. Negative values are counted as 0.
+	 *
+	 * @param value
+	 *            the value to record
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * @return number of values recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return mean of the values recorded, 0 if there are none
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : sum.get() / (double) n;
+	}
+
+	/**
+	 * @return largest value recorded
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param p
+	 *            the percentile, 0.5 for the median
+	 * @return upper bound of the percentile, never more than the largest
+	 *         value recorded
+	 */
+	public long percentile(double p) {
+		long rank = Math.max(1, (long) Math.ceil(p * count.get()));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * @param scale
+	 *            what to divide the values by, 1000 to show nanoseconds as
+	 *            microseconds
+	 * @return count, mean, median, 99th and 99.9th percentile and max
+	 */
+	public String summary(double scale) {
+		return String.format("count %d mean %.1f p50 %.1f p99 %.1f"
+				+ " p99.9 %.1f max %.1f", getCount(), getMean() / scale,
+				percentile(0.5) / scale, percentile(0.99) / scale,
+				percentile(0.999) / scale, getMax() / scale);
+	}
+
+	/**
+	 * Finds the bucket of a value: the position of the highest set bit and
+	 * the SUB_BITS bits below it.
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int high = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (high - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (high - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the largest value that falls in a bucket
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int high = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		int sub = bucket % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (high - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,279 @@
+package robot.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Metrics class A registry of named counters and histograms. The parts of
+ * the controller look up what they record into once, when metrics are
+ * turned on, and keep the objects, so recording costs no map lookups. The
+ * registry can be written to a text file or registered as a JMX MBean, in
+ * which case every counter is an attribute and every histogram gives the
+ * attributes name.count, name.mean, name.p50, name.p99, name.p999 and
+ * name.max.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Metrics {
+
+	public static final String OBJECT_NAME = "robot:type=Metrics";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	// Looked up once, since getThreadMXBean allocates on every call.
+	private static final ThreadMXBean THREADS = ManagementFactory
+			.getThreadMXBean();
+	private static final String[] STATS = { "count", "mean", "p50", "p99",
+			"p999", "max" };
+	private final ConcurrentMap<String, Counter> counters =
+			new ConcurrentSkipListMap<String, Counter>();
+	private final ConcurrentMap<String, Histogram> histograms =
+			new ConcurrentSkipListMap<String, Histogram>();
+	private volatile ObjectName registered;
+
+	/**
+	 * @param name
+	 *            name of the counter
+	 * @return the counter with the name, created if there is none
+	 */
+	public Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			Counter created = new Counter();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * @param name
+	 *            name of the histogram
+	 * @return the histogram with the name, created if there is none
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			Histogram created = new Histogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Writes every counter and histogram as one line of text, sorted by
+	 * name. Histograms hold nanoseconds and are written in microseconds,
+	 * except those whose names end in .iterations or .bytes.
+	 *
+	 * @param out
+	 *            where to write
+	 * @throws IOException
+	 */
+	public void write(Writer out) throws IOException {
+		for (Map.Entry<String, Counter> e : counters.entrySet()) {
+			out.write(e.getKey() + " " + e.getValue().get() + "\n");
+		}
+		for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+			double scale = isDuration(e.getKey()) ? 1000 : 1;
+			out.write(e.getKey() + (scale == 1 ? " " : " (us) ")
+					+ e.getValue().summary(scale) + "\n");
+		}
+	}
+
+	/**
+	 * Writes the metrics to a file. The file is written next to the old one
+	 * and then renamed over it, so a reader never sees half a file.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		Writer out = new OutputStreamWriter(new FileOutputStream(tmp), UTF8);
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				throw new IOException("Could not rename " + tmp + " to "
+						+ file);
+			}
+		}
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server under
+	 * OBJECT_NAME, replacing any metrics registered there before.
+	 *
+	 * @throws JMException
+	 *             if the registration fails
+	 */
+	public void register() throws JMException {
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(),
+				name);
+		registered = name;
+	}
+
+	/**
+	 * Removes the MBean again, if register was called.
+	 */
+	public void unregister() {
+		ObjectName name = registered;
+		registered = null;
+		if (name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			} catch (JMException e) {
+				// Already replaced by another registry.
+			}
+		}
+	}
+
+	/**
+	 * Reads the number of bytes the calling thread has allocated since it
+	 * started, which the difference of two calls turns into the allocation
+	 * of the code in between. The call takes some tens of nanoseconds and
+	 * does not allocate itself.
+	 *
+	 * @return bytes allocated by the current thread, or -1 if the JVM can
+	 *         not tell
+	 */
+	public static long allocatedBytes() {
+		if (THREADS instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) THREADS)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static boolean isDuration(String name) {
+		return !name.endsWith(".iterations") && !name.endsWith(".bytes");
+	}
+
+	/**
+	 * The MBean view of the registry. The attributes are read when asked
+	 * for, so a JMX console sees the metrics as they are now.
+	 */
+	private class Bean implements DynamicMBean {
+
+		@Override
+		public Object getAttribute(String attribute)
+				throws AttributeNotFoundException {
+			Counter counter = counters.get(attribute);
+			if (counter != null) {
+				return counter.get();
+			}
+			int dot = attribute.lastIndexOf('.');
+			Histogram histogram = dot < 0 ? null : histograms.get(attribute
+					.substring(0, dot));
+			if (histogram == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			String stat = attribute.substring(dot + 1);
+			if (stat.equals("count")) {
+				return histogram.getCount();
+			} else if (stat.equals("mean")) {
+				return histogram.getMean();
+			} else if (stat.equals("p50")) {
+				return histogram.percentile(0.5);
+			} else if (stat.equals("p99")) {
+				return histogram.percentile(0.99);
+			} else if (stat.equals("p999")) {
+				return histogram.percentile(0.999);
+			} else if (stat.equals("max")) {
+				return histogram.getMax();
+			}
+			throw new AttributeNotFoundException(attribute);
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes) {
+				try {
+					list.add(new Attribute(attribute, getAttribute(attribute)));
+				} catch (AttributeNotFoundException e) {
+					// Left out, as the interface allows.
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute)
+				throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Metrics are read only");
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		/**
+		 * The bean has no operations, so every action is unknown.
+		 */
+		@Override
+		public Object invoke(String action, Object[] params, String[] signature)
+				throws ReflectionException {
+			throw new ReflectionException(new NoSuchMethodException(action),
+					"No operation " + action);
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> attributes =
+					new ArrayList<MBeanAttributeInfo>();
+			for (String name : counters.keySet()) {
+				attributes.add(new MBeanAttributeInfo(name, "long", name,
+						true, false, false));
+			}
+			for (String name : histograms.keySet()) {
+				for (String stat : STATS) {
+					attributes.add(new MBeanAttributeInfo(name + "." + stat,
+							stat.equals("mean") ? "double" : "long", name + " "
+									+ stat, true, false, false));
+				}
+			}
+			return new MBeanInfo(Metrics.class.getName(),
+					"Control loop metrics",
+					attributes.toArray(new MBeanAttributeInfo[attributes
+							.size()]), null, new MBeanOperationInfo[0], null);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package robot.path;
+
+/**
+ * ArrayPath class A path of poses stored in parallel primitive arrays on the
+ * heap. This is what PathLoader builds from JSON files.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ArrayPath extends Path {
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] heading;
+	private final long[] timestamp;
+	private final int size;
+
+	/**
+	 * Constructor for ArrayPath. The arrays are used as they are and must not
+	 * be changed afterwards.
+	 *
+	 * @param x
+	 *            x coordinates of the waypoints
+	 * @param y
+	 *            y coordinates of the waypoints
+	 * @param heading
+	 *            heading of each waypoint in radians
+	 * @param timestamp
+	 *            recording time of each waypoint in milliseconds
+	 * @param size
+	 *            number of waypoints, the arrays may be longer
+	 */
+	public ArrayPath(double[] x, double[] y, double[] heading, long[] timestamp,
+			int size) {
+		if (x.length < size || y.length < size || heading.length < size
+				|| timestamp.length < size) {
+			throw new IllegalArgumentException("Arrays shorter than " + size);
+		}
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		this.timestamp = timestamp;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int i) {
+		return x[i];
+	}
+
+	@Override
+	public double getY(int i) {
+		return y[i];
+	}
+
+	@Override
+	public double getHeading(int i) {
+		return heading[i];
+	}
+
+	@Override
+	public long getTimestamp(int i) {
+		return timestamp[i];
+	}
+}
@@ -0,0 +1,159 @@
+package robot.path;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * BinaryPathFormat class Reads and writes the binary path format. A file
+ * starts with a 16 byte header, the magic bytes RPTH, a format version and
+ * the number of records, followed by fixed-width 32 byte records holding x,
+ * y, heading and timestamp. All values are little-endian. Files are opened by
+ * memory mapping them, so loading a large path does not parse anything.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class BinaryPathFormat {
+
+	public static final int MAGIC = 0x48545052; // "RPTH" little-endian
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 32;
+	static final int X_OFFSET = 0;
+	static final int Y_OFFSET = 8;
+	static final int HEADING_OFFSET = 16;
+	static final int TIMESTAMP_OFFSET = 24;
+	private static final int WRITE_BUFFER_RECORDS = 2048;
+
+	private BinaryPathFormat() {
+	}
+
+	/**
+	 * Checks whether a file starts with the binary path header.
+	 *
+	 * @param file
+	 *            the file to check
+	 * @return true if the file is a binary path file
+	 * @throws IOException
+	 */
+	public static boolean isBinaryPath(File file) throws IOException {
+		if (file.length() < HEADER_SIZE) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return Integer.reverseBytes(raf.readInt()) == MAGIC;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Opens a binary path file by mapping it into memory. The mapping stays
+	 * valid after the method returns, the file itself is closed.
+	 *
+	 * @param file
+	 *            the binary path file
+	 * @return the mapped path
+	 * @throws IOException
+	 *             if the file can not be read or has a bad header
+	 */
+	public static Path map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+			if (length < HEADER_SIZE) {
+				throw new IOException(file + " is too short for a path file");
+			}
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException(file + " is larger than 2 GB");
+			}
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			int count = readHeader(buffer, file);
+			if (HEADER_SIZE + (long) count * RECORD_SIZE > length) {
+				throw new IOException(file + " is truncated, expected "
+						+ count + " records");
+			}
+			return new MappedPath(buffer, count);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a path to a binary path file, replacing the file if it exists.
+	 * The file is on disk when the method returns.
+	 *
+	 * @param path
+	 *            the path to write
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 */
+	public static void write(Path path, File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE
+					* WRITE_BUFFER_RECORDS);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(path.size());
+			for (int i = 0; i < path.size(); i++) {
+				if (buffer.remaining() < RECORD_SIZE) {
+					flush(buffer, channel);
+				}
+				buffer.putDouble(path.getX(i));
+				buffer.putDouble(path.getY(i));
+				buffer.putDouble(path.getHeading(i));
+				buffer.putLong(path.getTimestamp(i));
+			}
+			flush(buffer, channel);
+			channel.force(true);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Validates the header and returns the number of records.
+	 */
+	private static int readHeader(ByteBuffer buffer, File file)
+			throws IOException {
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a binary path file");
+		}
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IOException(file + " has unsupported version "
+					+ version);
+		}
+		long count = buffer.getLong(8);
+		if (count < 0 || count > (Integer.MAX_VALUE - HEADER_SIZE)
+				/ RECORD_SIZE) {
+			throw new IOException(file + " has a bad record count " + count);
+		}
+		return (int) count;
+	}
+
+	private static void flush(ByteBuffer buffer, FileChannel channel)
+			throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
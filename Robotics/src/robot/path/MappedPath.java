@@ -0,0 +1,65 @@
+package robot.path;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MappedPath class A path read straight from a memory mapped binary path
+ * file. The waypoints stay in the file mapping and are decoded on access, so
+ * opening a path costs the same no matter how long it is and the poses do not
+ * take any heap.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class MappedPath extends Path {
+
+	private final ByteBuffer buffer;
+	private final int size;
+
+	/**
+	 * Constructor for MappedPath.
+	 *
+	 * @param buffer
+	 *            the mapped file in little-endian order, header included
+	 * @param size
+	 *            number of records in the file
+	 */
+	MappedPath(ByteBuffer buffer, int size) {
+		this.buffer = buffer;
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int i) {
+		return buffer.getDouble(offset(i) + BinaryPathFormat.X_OFFSET);
+	}
+
+	@Override
+	public double getY(int i) {
+		return buffer.getDouble(offset(i) + BinaryPathFormat.Y_OFFSET);
+	}
+
+	@Override
+	public double getHeading(int i) {
+		return buffer.getDouble(offset(i) + BinaryPathFormat.HEADING_OFFSET);
+	}
+
+	@Override
+	public long getTimestamp(int i) {
+		return buffer.getLong(offset(i) + BinaryPathFormat.TIMESTAMP_OFFSET);
+	}
+
+	private int offset(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Waypoint " + i + " of "
+					+ size);
+		}
+		return BinaryPathFormat.HEADER_SIZE + i * BinaryPathFormat.RECORD_SIZE;
+	}
+}
@@ -0,0 +1,81 @@
+package robot.path;
+
+/**
+ * Path class A path of poses for the robot to follow. Every waypoint has a
+ * position, a heading and the timestamp it was recorded at. Waypoints are
+ * read by index as primitives, so stepping along a path in the control loop
+ * does not create any objects whether the poses are kept in arrays or in a
+ * memory mapped file.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public abstract class Path {
+
+	/**
+	 * @return number of waypoints
+	 */
+	public abstract int size();
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return x coordinate of the waypoint
+	 */
+	public abstract double getX(int i);
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return y coordinate of the waypoint
+	 */
+	public abstract double getY(int i);
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return heading of the waypoint in radians
+	 */
+	public abstract double getHeading(int i);
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return recording time of the waypoint in milliseconds
+	 */
+	public abstract long getTimestamp(int i);
+
+	/**
+	 * Calculates the distance from a point to a waypoint.
+	 *
+	 * @param i
+	 *            waypoint index
+	 * @param fromX
+	 *            x coordinate of the point
+	 * @param fromY
+	 *            y coordinate of the point
+	 * @return the distance
+	 */
+	public double distanceTo(int i, double fromX, double fromY) {
+		double dx = getX(i) - fromX;
+		double dy = getY(i) - fromY;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Calculates the bearing from a point to a waypoint, measured the same way
+	 * as Position.getBearingTo.
+	 *
+	 * @param i
+	 *            waypoint index
+	 * @param fromX
+	 *            x coordinate of the point
+	 * @param fromY
+	 *            y coordinate of the point
+	 * @return the bearing in radians
+	 */
+	public double bearingTo(int i, double fromX, double fromY) {
+		return Math.atan2(getY(i) - fromY, getX(i) - fromX);
+	}
+}
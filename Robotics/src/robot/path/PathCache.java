@@ -0,0 +1,200 @@
+package robot.path;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+/**
+ * PathCache class A directory of paths that have already been loaded and
+ * preprocessed, kept in the binary path format. An entry is named by the
+ * cache version, the binary format version and checksums of the settings of
+ * the preprocessing and of the bytes of the source file, so any change to
+ * either gives a new name and an old entry is simply never asked for again.
+ * An entry is written to a temporary file in the directory and moved into
+ * place, so a reader never sees half an entry, and several processes may
+ * fill the same cache at once. Entries are memory mapped, so a path that is
+ * in the cache costs reading and hashing its source and nothing more.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class PathCache {
+
+	/**
+	 * Version of what is cached. It must be raised when the loading or the
+	 * preprocessing changes in a way that is not in the settings.
+	 */
+	public static final int VERSION = 1;
+	public static final String PROPERTY = "robot.pathcache";
+	public static final String SUFFIX = ".rpth";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private final File directory;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Preprocessor interface What is done to a path before it is cached.
+	 */
+	public interface Preprocessor {
+
+		/**
+		 * @param path
+		 *            the path as loaded from the source
+		 * @return the path to cache
+		 */
+		Path preprocess(Path path);
+	}
+
+	/**
+	 * Constructor for PathCache. The directory is created when the first
+	 * entry is written.
+	 *
+	 * @param directory
+	 *            the directory of the entries
+	 */
+	public PathCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gives the cache in the directory named by the system property
+	 * robot.pathcache, or in .robot/pathcache in the home directory if it
+	 * is not set.
+	 *
+	 * @return the cache, or null if the property is off
+	 */
+	public static PathCache getDefault() {
+		String name = System.getProperty(PROPERTY);
+		if (name == null) {
+			return new PathCache(new File(System.getProperty("user.home"),
+					".robot" + File.separator + "pathcache"));
+		}
+		return name.equals("off") ? null : new PathCache(new File(name));
+	}
+
+	/**
+	 * Gives the preprocessed path of a source file from the cache, or loads
+	 * and preprocesses it with PathLoader and adds it to the cache. A path
+	 * is returned even if the cache can not be written.
+	 *
+	 * @param source
+	 *            a path file of any format PathLoader reads
+	 * @param settings
+	 *            everything the preprocessing depends on, as text
+	 * @param preprocessor
+	 *            the preprocessing
+	 * @return the path
+	 * @throws IOException
+	 *             if the source can not be read
+	 */
+	public Path read(File source, String settings, Preprocessor preprocessor)
+			throws IOException {
+		File entry = new File(directory, key(source, settings) + SUFFIX);
+		if (entry.isFile()) {
+			try {
+				Path path = BinaryPathFormat.map(entry);
+				synchronized (this) {
+					hits++;
+				}
+				return path;
+			} catch (IOException e) {
+				// A damaged entry is replaced below.
+			}
+		}
+		synchronized (this) {
+			misses++;
+		}
+		Path path = preprocessor.preprocess(PathLoader.read(source));
+		try {
+			write(path, entry);
+		} catch (IOException e) {
+			System.err.println("Path cache not written: " + e.getMessage());
+		}
+		return path;
+	}
+
+	/**
+	 * @return the directory of the entries
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return number of reads served from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of reads that had to load the source
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Names the entry of a source file and settings: the versions, the
+	 * length of the source and the CRC-32 and Adler-32 of the settings and
+	 * of the source, in hex. The checksums are computed by zlib, which is
+	 * fast from the first call, where a message digest would run in the
+	 * interpreter and cost more than loading the path.
+	 *
+	 * @param source
+	 *            the source file
+	 * @param settings
+	 *            the settings of the preprocessing
+	 * @return the name of the entry, without SUFFIX
+	 * @throws IOException
+	 */
+	public static String key(File source, String settings) throws IOException {
+		byte[] text = settings.getBytes(UTF8);
+		CRC32 settingsCrc = new CRC32();
+		settingsCrc.update(text, 0, text.length);
+
+		byte[] content = Files.readAllBytes(source.toPath());
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		Adler32 adler = new Adler32();
+		adler.update(content, 0, content.length);
+
+		// Formatter is slow to load, and this is on the start-up path.
+		return "v" + VERSION + "." + BinaryPathFormat.VERSION + "-"
+				+ hex(settingsCrc.getValue()) + "-"
+				+ Integer.toHexString(content.length) + "-"
+				+ hex(crc.getValue()) + hex(adler.getValue());
+	}
+
+	/**
+	 * @return a 32 bit checksum as eight hex digits
+	 */
+	private static String hex(long checksum) {
+		return Long.toHexString(checksum | 1L << 32).substring(1);
+	}
+
+	/**
+	 * Writes an entry to a temporary file of its own and moves it into
+	 * place.
+	 */
+	private void write(Path path, File entry) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()
+				&& !directory.isDirectory()) {
+			throw new IOException("Can not create " + directory);
+		}
+		File temp = File.createTempFile(entry.getName(), ".tmp", directory);
+		try {
+			BinaryPathFormat.write(path, temp);
+			Files.move(temp.toPath(), entry.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+}
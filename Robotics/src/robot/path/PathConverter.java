@@ -0,0 +1,99 @@
+package robot.path;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * PathConverter class Converts path files between JSON and the binary path
+ * format. JSON files such as Path-around-table-and-back.json and log.json
+ * become binary files, and binary files are written back as JSON in the same
+ * shape as the localization responses. The binary format only keeps x, y,
+ * heading and timestamp, so JSON written from it has a pure yaw orientation,
+ * Z = 0 and Status 4.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class PathConverter {
+
+	private static final int STATUS_OK = 4;
+
+	private PathConverter() {
+	}
+
+	/**
+	 * Writes a path as a JSON array of localization responses.
+	 *
+	 * @param path
+	 *            the path to write
+	 * @param file
+	 *            the JSON file to write
+	 * @throws IOException
+	 */
+	public static void writeJson(Path path, File file) throws IOException {
+		JsonGenerator gen = new JsonFactory().createJsonGenerator(file,
+				JsonEncoding.UTF8);
+		try {
+			gen.writeStartArray();
+			for (int i = 0; i < path.size(); i++) {
+				double halfHeading = path.getHeading(i) / 2;
+				gen.writeStartObject();
+				gen.writeObjectFieldStart("Pose");
+				gen.writeObjectFieldStart("Orientation");
+				gen.writeNumberField("W", Math.cos(halfHeading));
+				gen.writeNumberField("X", 0.0);
+				gen.writeNumberField("Y", 0.0);
+				gen.writeNumberField("Z", Math.sin(halfHeading));
+				gen.writeEndObject();
+				gen.writeObjectFieldStart("Position");
+				gen.writeNumberField("X", path.getX(i));
+				gen.writeNumberField("Y", path.getY(i));
+				gen.writeNumberField("Z", 0.0);
+				gen.writeEndObject();
+				gen.writeEndObject();
+				gen.writeNumberField("Status", STATUS_OK);
+				gen.writeNumberField("Timestamp", path.getTimestamp(i));
+				gen.writeEndObject();
+			}
+			gen.writeEndArray();
+		} finally {
+			gen.close();
+		}
+	}
+
+	/**
+	 * Main converts one file. A binary input file is written as JSON and any
+	 * other input file is read as JSON and written in the binary format.
+	 *
+	 * @param args
+	 *            input file and output file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: PathConverter <input> <output>");
+			System.exit(1);
+		}
+		File in = new File(args[0]);
+		File out = new File(args[1]);
+
+		try {
+			long start = System.nanoTime();
+			if (BinaryPathFormat.isBinaryPath(in)) {
+				writeJson(BinaryPathFormat.map(in), out);
+			} else {
+				BinaryPathFormat.write(PathLoader.readJson(in), out);
+			}
+			System.out.println("Converted " + in + " to " + out + " in "
+					+ (System.nanoTime() - start) / 1000000 + " ms");
+		} catch (IOException e) {
+			System.err.println("An error has occurred with message:"
+					+ e.getMessage());
+			System.exit(1);
+		}
+	}
+}
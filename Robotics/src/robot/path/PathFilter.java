@@ -0,0 +1,322 @@
+package robot.path;
+
+/**
+ * PathFilter class Cleans up recorded paths when they are loaded. Recordings
+ * have many poses from when the robot stood still and far more points than
+ * needed on the straights. Near-duplicates are removed first. The path is
+ * then simplified with Ramer-Douglas-Peucker, and it can be resampled at an
+ * even spacing along a centripetal Catmull-Rom spline through what is left.
+ * Every step returns a new ArrayPath and leaves its input as it is.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class PathFilter {
+
+	private static final double MIN_KNOT_STEP = 1e-6;
+
+	private PathFilter() {
+	}
+
+	/**
+	 * Runs the whole pipeline: removeDuplicates, simplify and, if spacing is
+	 * positive, smooth.
+	 *
+	 * @param path
+	 *            the recorded path
+	 * @param minSpacing
+	 *            waypoints closer than this to the one before are dropped
+	 * @param tolerance
+	 *            largest distance the simplified path may be from the
+	 *            recorded one
+	 * @param spacing
+	 *            distance between waypoints on the spline, 0 to not smooth
+	 * @return the preprocessed path
+	 */
+	public static Path preprocess(Path path, double minSpacing,
+			double tolerance, double spacing) {
+		Path result = simplify(removeDuplicates(path, minSpacing), tolerance);
+		if (spacing > 0) {
+			result = smooth(result, spacing);
+		}
+		return result;
+	}
+
+	/**
+	 * Drops every waypoint closer than minSpacing to the last one kept. The
+	 * first and the last waypoint are always kept.
+	 *
+	 * @param path
+	 *            the path
+	 * @param minSpacing
+	 *            smallest distance between kept waypoints
+	 * @return the path without near-duplicates
+	 */
+	public static Path removeDuplicates(Path path, double minSpacing) {
+		int n = path.size();
+		boolean[] keep = new boolean[n];
+		int last = -1;
+		for (int i = 0; i < n; i++) {
+			if (last < 0
+					|| path.distanceTo(i, path.getX(last), path.getY(last))
+						>= minSpacing) {
+				keep[i] = true;
+				last = i;
+			}
+		}
+		if (n > 1 && last != n - 1) {
+			// The goal replaces the last kept waypoint unless that is the
+			// start.
+			keep[last] = last == 0;
+			keep[n - 1] = true;
+		}
+		return select(path, keep);
+	}
+
+	/**
+	 * Simplifies a path with Ramer-Douglas-Peucker. A waypoint is only kept if
+	 * leaving it out would move the path more than the tolerance. The
+	 * recursion is done with an explicit stack so long paths cannot overflow
+	 * the call stack.
+	 *
+	 * @param path
+	 *            the path
+	 * @param tolerance
+	 *            largest distance from a dropped waypoint to the segment that
+	 *            replaces it
+	 * @return the simplified path
+	 */
+	public static Path simplify(Path path, double tolerance) {
+		int n = path.size();
+		if (n < 3) {
+			return select(path, filled(n));
+		}
+		boolean[] keep = new boolean[n];
+		keep[0] = true;
+		keep[n - 1] = true;
+		// The open ranges on the stack never overlap, so there are at most
+		// n / 2 of them.
+		int[] stack = new int[n + 2];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = n - 1;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			int farthest = -1;
+			double max = tolerance;
+			for (int i = first + 1; i < last; i++) {
+				double d = segmentDistance(path, i, first, last);
+				if (d > max) {
+					max = d;
+					farthest = i;
+				}
+			}
+			if (farthest >= 0) {
+				keep[farthest] = true;
+				if (farthest - first > 1) {
+					stack[top++] = first;
+					stack[top++] = farthest;
+				}
+				if (last - farthest > 1) {
+					stack[top++] = farthest;
+					stack[top++] = last;
+				}
+			}
+		}
+		return select(path, keep);
+	}
+
+	/**
+	 * Resamples a path at an even spacing along a centripetal Catmull-Rom
+	 * spline through its waypoints. The spline passes through every waypoint
+	 * and, being centripetal, does not overshoot or loop where the
+	 * waypoints are unevenly spaced, as they are after simplify. Headings
+	 * follow the direction of the spline and timestamps are interpolated.
+	 *
+	 * @param path
+	 *            the path, without duplicate consecutive waypoints
+	 * @param spacing
+	 *            distance between the new waypoints
+	 * @return the smoothed path
+	 */
+	public static Path smooth(Path path, double spacing) {
+		int n = path.size();
+		if (n < 2) {
+			return select(path, filled(n));
+		}
+		int size = 1;
+		for (int i = 0; i < n - 1; i++) {
+			size += samples(path, i, spacing);
+		}
+		double[] x = new double[size];
+		double[] y = new double[size];
+		double[] heading = new double[size];
+		long[] timestamp = new long[size];
+		double[] p = new double[8];
+		double[] point = new double[2];
+
+		int k = 0;
+		for (int i = 0; i < n - 1; i++) {
+			controlPoints(path, i, p);
+			int count = samples(path, i, spacing);
+			long t1 = path.getTimestamp(i);
+			long t2 = path.getTimestamp(i + 1);
+			for (int j = 0; j < count; j++) {
+				double u = (double) j / count;
+				catmullRom(p, u, point);
+				x[k] = point[0];
+				y[k] = point[1];
+				timestamp[k] = t1 + Math.round((t2 - t1) * u);
+				k++;
+			}
+		}
+		x[k] = path.getX(n - 1);
+		y[k] = path.getY(n - 1);
+		timestamp[k] = path.getTimestamp(n - 1);
+
+		for (int i = 0; i < size - 1; i++) {
+			heading[i] = Math.atan2(y[i + 1] - y[i], x[i + 1] - x[i]);
+		}
+		heading[size - 1] = size > 1 ? heading[size - 2] : path.getHeading(0);
+		return new ArrayPath(x, y, heading, timestamp, size);
+	}
+
+	/**
+	 * @return number of spline samples from waypoint i up to, but not
+	 *         including, waypoint i + 1
+	 */
+	private static int samples(Path path, int i, double spacing) {
+		double length = path.distanceTo(i + 1, path.getX(i), path.getY(i));
+		return Math.max(1, (int) Math.ceil(length / spacing));
+	}
+
+	/**
+	 * Fills p with the four control points of the spline segment from
+	 * waypoint i to i + 1. At the ends of the path the missing neighbour is
+	 * mirrored through the end point.
+	 */
+	private static void controlPoints(Path path, int i, double[] p) {
+		int n = path.size();
+		double x1 = path.getX(i);
+		double y1 = path.getY(i);
+		double x2 = path.getX(i + 1);
+		double y2 = path.getY(i + 1);
+		p[2] = x1;
+		p[3] = y1;
+		p[4] = x2;
+		p[5] = y2;
+		if (i > 0) {
+			p[0] = path.getX(i - 1);
+			p[1] = path.getY(i - 1);
+		} else {
+			p[0] = 2 * x1 - x2;
+			p[1] = 2 * y1 - y2;
+		}
+		if (i + 2 < n) {
+			p[6] = path.getX(i + 2);
+			p[7] = path.getY(i + 2);
+		} else {
+			p[6] = 2 * x2 - x1;
+			p[7] = 2 * y2 - y1;
+		}
+	}
+
+	/**
+	 * Evaluates a centripetal Catmull-Rom segment with the Barry-Goldman
+	 * pyramid.
+	 *
+	 * @param p
+	 *            the four control points as x0, y0, ..., x3, y3
+	 * @param u
+	 *            0 at the second control point and 1 at the third
+	 * @param point
+	 *            filled with x and y of the point on the spline
+	 */
+	private static void catmullRom(double[] p, double u, double[] point) {
+		double t0 = 0;
+		double t1 = t0 + knotStep(p, 0);
+		double t2 = t1 + knotStep(p, 2);
+		double t3 = t2 + knotStep(p, 4);
+		double t = t1 + (t2 - t1) * u;
+		for (int c = 0; c < 2; c++) {
+			double p0 = p[c];
+			double p1 = p[2 + c];
+			double p2 = p[4 + c];
+			double p3 = p[6 + c];
+			double a1 = lerp(p0, p1, t0, t1, t);
+			double a2 = lerp(p1, p2, t1, t2, t);
+			double a3 = lerp(p2, p3, t2, t3, t);
+			double b1 = lerp(a1, a2, t0, t2, t);
+			double b2 = lerp(a2, a3, t1, t3, t);
+			point[c] = lerp(b1, b2, t1, t2, t);
+		}
+	}
+
+	private static double knotStep(double[] p, int offset) {
+		double dx = p[offset + 2] - p[offset];
+		double dy = p[offset + 3] - p[offset + 1];
+		return Math.max(MIN_KNOT_STEP, Math.sqrt(Math.sqrt(dx * dx + dy * dy)));
+	}
+
+	private static double lerp(double a, double b, double ta, double tb,
+			double t) {
+		return (a * (tb - t) + b * (t - ta)) / (tb - ta);
+	}
+
+	/**
+	 * @return distance from waypoint i to the segment between waypoints first
+	 *         and last
+	 */
+	private static double segmentDistance(Path path, int i, int first,
+			int last) {
+		double ax = path.getX(first);
+		double ay = path.getY(first);
+		double dx = path.getX(last) - ax;
+		double dy = path.getY(last) - ay;
+		double px = path.getX(i) - ax;
+		double py = path.getY(i) - ay;
+		double lengthSq = dx * dx + dy * dy;
+		double t = lengthSq > 0 ? (px * dx + py * dy) / lengthSq : 0;
+		t = Math.max(0, Math.min(1, t));
+		double ex = px - t * dx;
+		double ey = py - t * dy;
+		return Math.sqrt(ex * ex + ey * ey);
+	}
+
+	private static boolean[] filled(int n) {
+		boolean[] keep = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			keep[i] = true;
+		}
+		return keep;
+	}
+
+	/**
+	 * Copies the waypoints marked in keep to a new ArrayPath.
+	 */
+	private static Path select(Path path, boolean[] keep) {
+		int size = 0;
+		for (int i = 0; i < keep.length; i++) {
+			if (keep[i]) {
+				size++;
+			}
+		}
+		double[] x = new double[size];
+		double[] y = new double[size];
+		double[] heading = new double[size];
+		long[] timestamp = new long[size];
+		int k = 0;
+		for (int i = 0; i < keep.length; i++) {
+			if (keep[i]) {
+				x[k] = path.getX(i);
+				y[k] = path.getY(i);
+				heading[k] = path.getHeading(i);
+				timestamp[k] = path.getTimestamp(i);
+				k++;
+			}
+		}
+		return new ArrayPath(x, y, heading, timestamp, size);
+	}
+}
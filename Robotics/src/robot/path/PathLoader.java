@@ -0,0 +1,139 @@
+package robot.path;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import robot.Geometry;
+import robot.comm.ResponseDecoder;
+import robot.record.RecordingFormat;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * PathLoader class Reads path files recorded from the localization service
+ * with the Jackson streaming parser, or maps them if they are already in the
+ * binary path format or are recordings made by Recorder. The records are
+ * read by ResponseDecoder, the same way as live localization replies, so no
+ * Map objects are built for the poses.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class PathLoader {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private PathLoader() {
+	}
+
+	/**
+	 * Opens a path file of any format. Binary path files and recordings are
+	 * memory mapped and anything else is read as JSON.
+	 *
+	 * @param file
+	 *            a binary path file, a recording or a JSON path file
+	 * @return the path
+	 * @throws JsonParseException
+	 *             if a JSON file is not valid JSON
+	 * @throws IOException
+	 */
+	public static Path read(File file) throws JsonParseException,
+			IOException {
+		if (BinaryPathFormat.isBinaryPath(file)) {
+			return BinaryPathFormat.map(file);
+		}
+		if (RecordingFormat.isRecording(file)) {
+			return RecordingFormat.open(file);
+		}
+		return readJson(file);
+	}
+
+	/**
+	 * Reads a JSON path file.
+	 *
+	 * @param file
+	 *            the JSON file, an array of localization responses
+	 * @return the path
+	 * @throws JsonParseException
+	 *             if the file is not valid JSON
+	 * @throws IOException
+	 */
+	public static Path readJson(File file) throws JsonParseException,
+			IOException {
+		JsonParser parser = FACTORY.createJsonParser(file);
+		try {
+			return readJson(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Reads a JSON path from a stream. The stream is not closed.
+	 *
+	 * @param in
+	 *            stream with an array of localization responses
+	 * @return the path
+	 * @throws JsonParseException
+	 *             if the stream is not valid JSON
+	 * @throws IOException
+	 */
+	public static Path readJson(InputStream in) throws JsonParseException,
+			IOException {
+		JsonParser parser = FACTORY.createJsonParser(in);
+		parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		try {
+			return readJson(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
+	private static Path readJson(JsonParser parser) throws IOException {
+		if (parser.nextToken() != JsonToken.START_ARRAY) {
+			throw new JsonParseException("Expected an array of poses",
+					parser.getCurrentLocation());
+		}
+
+		double[] x = new double[INITIAL_CAPACITY];
+		double[] y = new double[INITIAL_CAPACITY];
+		double[] heading = new double[INITIAL_CAPACITY];
+		long[] timestamp = new long[INITIAL_CAPACITY];
+		double[] pose = new double[ResponseDecoder.POSE_VALUES];
+		int size = 0;
+
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			if (size == x.length) {
+				int capacity = size * 2;
+				x = Arrays.copyOf(x, capacity);
+				y = Arrays.copyOf(y, capacity);
+				heading = Arrays.copyOf(heading, capacity);
+				timestamp = Arrays.copyOf(timestamp, capacity);
+			}
+			timestamp[size] = ResponseDecoder.readLocalization(parser, pose);
+			x[size] = pose[0];
+			y[size] = pose[1];
+			heading[size] = Geometry.heading(pose[3], pose[4], pose[5],
+					pose[6]);
+			size++;
+		}
+		if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+			throw new JsonParseException("Expected a pose object",
+					parser.getCurrentLocation());
+		}
+		if (size < x.length) {
+			x = Arrays.copyOf(x, size);
+			y = Arrays.copyOf(y, size);
+			heading = Arrays.copyOf(heading, size);
+			timestamp = Arrays.copyOf(timestamp, size);
+		}
+		return new ArrayPath(x, y, heading, timestamp, size);
+	}
+}
@@ -0,0 +1,158 @@
+package robot.path;
+
+/**
+ * SpeedProfile class The curvature of a path and the highest speed the robot
+ * should have at each waypoint, worked out once when the path is loaded. The
+ * speed is limited by the lateral acceleration allowed in curves, and by the
+ * braking distance to slower waypoints further on, so the robot has slowed
+ * down by the time it reaches a curve. The control loop then only has to
+ * look the speed up.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class SpeedProfile {
+
+	private final double[] distance;
+	private final double[] curvature;
+	private final double[] speed;
+
+	/**
+	 * Constructor for SpeedProfile.
+	 *
+	 * @param path
+	 *            the path, preferably smoothed by PathFilter so the
+	 *            curvature is not dominated by recording noise
+	 * @param maxSpeed
+	 *            speed on straights in m/s
+	 * @param maxLateralAcceleration
+	 *            largest acceleration sideways in curves in m/s^2
+	 * @param maxDeceleration
+	 *            how hard the robot may brake before a curve in m/s^2
+	 * @param baseline
+	 *            the curvature at a waypoint is that of the circle through
+	 *            it and the waypoints about this far before and after it.
+	 *            A controller that steers towards a point ahead cuts
+	 *            corners, so this should be about its lookahead distance.
+	 */
+	public SpeedProfile(Path path, double maxSpeed,
+			double maxLateralAcceleration, double maxDeceleration,
+			double baseline) {
+		int n = path.size();
+		distance = new double[n];
+		curvature = new double[n];
+		speed = new double[n];
+
+		for (int i = 1; i < n; i++) {
+			distance[i] = distance[i - 1]
+					+ path.distanceTo(i, path.getX(i - 1), path.getY(i - 1));
+		}
+		int before = 0;
+		int after = 0;
+		for (int i = 1; i < n - 1; i++) {
+			while (distance[i] - distance[before + 1] >= baseline) {
+				before++;
+			}
+			after = Math.max(after, i + 1);
+			while (after < n - 1 && distance[after] - distance[i] < baseline) {
+				after++;
+			}
+			curvature[i] = curvature(path, before, i, after);
+		}
+		for (int i = 0; i < n; i++) {
+			double k = Math.abs(curvature[i]);
+			speed[i] = k > 0 ? Math.min(maxSpeed,
+					Math.sqrt(maxLateralAcceleration / k)) : maxSpeed;
+		}
+		for (int i = n - 2; i >= 0; i--) {
+			double ds = distance[i + 1] - distance[i];
+			speed[i] = Math.min(speed[i], Math.sqrt(speed[i + 1]
+					* speed[i + 1] + 2 * maxDeceleration * ds));
+		}
+	}
+
+	/**
+	 * @return number of waypoints
+	 */
+	public int size() {
+		return speed.length;
+	}
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return distance along the path from the first waypoint
+	 */
+	public double getDistance(int i) {
+		return distance[i];
+	}
+
+	/**
+	 * @return length of the whole path
+	 */
+	public double getLength() {
+		return distance.length > 0 ? distance[distance.length - 1] : 0;
+	}
+
+	/**
+	 * Finds the waypoint at or just before a distance along the path with a
+	 * binary search of the cumulative distances.
+	 *
+	 * @param s
+	 *            distance along the path
+	 * @return index of the last waypoint at most s along the path, 0 if s is
+	 *         negative
+	 */
+	public int indexAt(double s) {
+		int low = 0;
+		int high = distance.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (distance[mid] <= s) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return signed curvature at the waypoint in 1/m, positive in left
+	 *         turns
+	 */
+	public double getCurvature(int i) {
+		return curvature[i];
+	}
+
+	/**
+	 * @param i
+	 *            waypoint index
+	 * @return highest speed at the waypoint in m/s
+	 */
+	public double getSpeed(int i) {
+		return speed[i];
+	}
+
+	/**
+	 * Calculates the signed curvature of the circle through three waypoints,
+	 * four times the triangle area over the product of its sides.
+	 */
+	private static double curvature(Path path, int a, int b, int c) {
+		double abx = path.getX(b) - path.getX(a);
+		double aby = path.getY(b) - path.getY(a);
+		double bcx = path.getX(c) - path.getX(b);
+		double bcy = path.getY(c) - path.getY(b);
+		double acx = path.getX(c) - path.getX(a);
+		double acy = path.getY(c) - path.getY(a);
+		double sides = Math.sqrt((abx * abx + aby * aby)
+				* (bcx * bcx + bcy * bcy) * (acx * acx + acy * acy));
+		if (sides == 0) {
+			return 0;
+		}
+		return 2 * (abx * bcy - aby * bcx) / sides;
+	}
+}
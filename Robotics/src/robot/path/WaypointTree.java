@@ -0,0 +1,318 @@
+package robot.path;
+
+/**
+ * WaypointTree class A spatial index over the waypoints of a path used to
+ * find the waypoints near a point without scanning the path. The path is cut
+ * into blocks of consecutive waypoints and a binary tree of bounding boxes is
+ * built over the blocks in path order. Queries are limited to a window of
+ * path indices, which keeps a lookup on the right part of the path when the
+ * path passes the same place more than once, as when going around the table
+ * and back. A query only visits the blocks that overlap the window and whose
+ * box is close enough to matter, so the work per query does not grow with
+ * the length of the path. What does grow is the chance that the boxes and
+ * waypoints of the window are not in the cache: a query near where the last
+ * one was takes a few hundred nanoseconds over a million waypoints, while a
+ * query at a random place on such a path is bound by memory latency and
+ * takes about a microsecond.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class WaypointTree {
+
+	private static final int LEAF_SIZE = 16;
+
+	private final Path path;
+	private final int leaves;
+	// The box of a node is minX, minY, maxX and maxY at 4 * node, so the
+	// whole box is in one cache line.
+	private final double[] boxes;
+
+	/**
+	 * Constructor for WaypointTree.
+	 *
+	 * @param path
+	 *            the path to index
+	 */
+	public WaypointTree(Path path) {
+		this.path = path;
+		int blocks = Math.max(1, (path.size() + LEAF_SIZE - 1) / LEAF_SIZE);
+		int leaves = 1;
+		while (leaves < blocks) {
+			leaves *= 2;
+		}
+		this.leaves = leaves;
+		boxes = new double[4 * 2 * leaves];
+
+		for (int leaf = 0; leaf < leaves; leaf++) {
+			int b = 4 * (leaves + leaf);
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			int end = Math.min(path.size(), (leaf + 1) * LEAF_SIZE);
+			for (int i = leaf * LEAF_SIZE; i < end; i++) {
+				minX = Math.min(minX, path.getX(i));
+				minY = Math.min(minY, path.getY(i));
+				maxX = Math.max(maxX, path.getX(i));
+				maxY = Math.max(maxY, path.getY(i));
+			}
+			boxes[b] = minX;
+			boxes[b + 1] = minY;
+			boxes[b + 2] = maxX;
+			boxes[b + 3] = maxY;
+		}
+		for (int node = leaves - 1; node >= 1; node--) {
+			int b = 4 * node;
+			int l = 8 * node;
+			int r = l + 4;
+			boxes[b] = Math.min(boxes[l], boxes[r]);
+			boxes[b + 1] = Math.min(boxes[l + 1], boxes[r + 1]);
+			boxes[b + 2] = Math.max(boxes[l + 2], boxes[r + 2]);
+			boxes[b + 3] = Math.max(boxes[l + 3], boxes[r + 3]);
+		}
+	}
+
+	/**
+	 * @return the path this tree indexes
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Finds the waypoint closest to a point on the whole path.
+	 *
+	 * @param x
+	 *            x coordinate of the point
+	 * @param y
+	 *            y coordinate of the point
+	 * @return index of the nearest waypoint or -1 if the path is empty
+	 */
+	public int nearest(double x, double y) {
+		return nearest(x, y, 0, path.size() - 1, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Finds the waypoint closest to a point among the waypoints with index
+	 * from..to. The window is covered by the few subtrees that hold exactly
+	 * its blocks, the way a segment tree splits a range, so a query never
+	 * starts higher in the tree than the window is long.
+	 *
+	 * @param x
+	 *            x coordinate of the point
+	 * @param y
+	 *            y coordinate of the point
+	 * @param from
+	 *            first path index to consider
+	 * @param to
+	 *            last path index to consider
+	 * @param maxDistance
+	 *            waypoints further away than this are ignored
+	 * @return index of the nearest waypoint or -1 if there is none within
+	 *         maxDistance
+	 */
+	public int nearest(double x, double y, int from, int to,
+			double maxDistance) {
+		from = Math.max(from, 0);
+		to = Math.min(to, path.size() - 1);
+		if (from > to) {
+			return -1;
+		}
+		int best = -1;
+		double bestDistSq = maxDistance * maxDistance;
+		int first = leaves + from / LEAF_SIZE;
+		int last = leaves + to / LEAF_SIZE;
+		for (int height = 0; first <= last; height++) {
+			if ((first & 1) == 1) {
+				if (boxDistanceSq(first, x, y) < bestDistSq) {
+					int found = nearest(first, height, x, y, from, to, best,
+							bestDistSq);
+					if (found != best) {
+						best = found;
+						bestDistSq = distanceSq(best, x, y);
+					}
+				}
+				first++;
+			}
+			if ((last & 1) == 0 && first <= last) {
+				if (boxDistanceSq(last, x, y) < bestDistSq) {
+					int found = nearest(last, height, x, y, from, to, best,
+							bestDistSq);
+					if (found != best) {
+						best = found;
+						bestDistSq = distanceSq(best, x, y);
+					}
+				}
+				last--;
+			}
+			first >>>= 1;
+			last >>>= 1;
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the waypoints with index from..to within a radius of a point. The
+	 * indices are written to the result array in path order. The array is not
+	 * resized, so the caller can keep reusing the same array.
+	 *
+	 * @param x
+	 *            x coordinate of the point
+	 * @param y
+	 *            y coordinate of the point
+	 * @param radius
+	 *            search radius in meters
+	 * @param from
+	 *            first path index to consider
+	 * @param to
+	 *            last path index to consider
+	 * @param result
+	 *            array receiving the indices found
+	 * @return number of waypoints found, may be larger than result.length if
+	 *         the array was too small
+	 */
+	public int withinRadius(double x, double y, double radius, int from,
+			int to, int[] result) {
+		from = Math.max(from, 0);
+		to = Math.min(to, path.size() - 1);
+		if (from > to) {
+			return 0;
+		}
+		int node = windowRoot(from, to);
+		int height = 0;
+		for (int n = node; n < leaves; n *= 2) {
+			height++;
+		}
+		return withinRadius(node, height, x, y, radius * radius, from, to,
+				result, 0);
+	}
+
+	/**
+	 * Finds the smallest subtree holding all waypoints from..to. Results
+	 * within a radius are wanted in path order, so that search runs down
+	 * from here instead of over the subtrees nearest uses.
+	 */
+	private int windowRoot(int from, int to) {
+		int first = leaves + from / LEAF_SIZE;
+		int last = leaves + to / LEAF_SIZE;
+		while (first != last) {
+			first >>>= 1;
+			last >>>= 1;
+		}
+		return first;
+	}
+
+	/**
+	 * Searches the subtree of a node. The best waypoint so far is passed down
+	 * and the possibly better one is returned, which keeps the search free of
+	 * any objects.
+	 *
+	 * @param node
+	 *            the tree node
+	 * @param height
+	 *            levels of nodes below the node, 0 for a leaf block
+	 * @param best
+	 *            index of the best waypoint so far or -1
+	 * @param bestDistSq
+	 *            squared distance to the best waypoint or to the search limit
+	 * @return index of the best waypoint
+	 */
+	private int nearest(int node, int height, double x, double y, int from,
+			int to, int best, double bestDistSq) {
+		if (height == 0) {
+			int start = (node - leaves) * LEAF_SIZE;
+			int end = Math.min(to, start + LEAF_SIZE - 1);
+			for (int i = Math.max(from, start); i <= end; i++) {
+				double dx = path.getX(i) - x;
+				double dy = path.getY(i) - y;
+				double distSq = dx * dx + dy * dy;
+				if (distSq < bestDistSq) {
+					bestDistSq = distSq;
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		int left = 2 * node;
+		int right = left + 1;
+		double leftDistSq = boxDistanceSq(left, x, y);
+		double rightDistSq = boxDistanceSq(right, x, y);
+		// Search the closer child first so the other one is more likely to be
+		// pruned. A child is only entered if its box is closer than the best
+		// waypoint, which is checked here so a pruned child costs no call.
+		if (rightDistSq < leftDistSq) {
+			int swap = left;
+			left = right;
+			right = swap;
+			double swapDistSq = leftDistSq;
+			leftDistSq = rightDistSq;
+			rightDistSq = swapDistSq;
+		}
+		if (leftDistSq < bestDistSq) {
+			int found = nearest(left, height - 1, x, y, from, to, best,
+					bestDistSq);
+			if (found != best) {
+				best = found;
+				bestDistSq = distanceSq(best, x, y);
+			}
+		}
+		if (rightDistSq < bestDistSq) {
+			best = nearest(right, height - 1, x, y, from, to, best,
+					bestDistSq);
+		}
+		return best;
+	}
+
+	private int withinRadius(int node, int height, double x, double y,
+			double radiusSq, int from, int to, int[] result, int count) {
+		int firstIndex = ((node << height) - leaves) * LEAF_SIZE;
+		int lastIndex = firstIndex + (LEAF_SIZE << height) - 1;
+		if (lastIndex < from || firstIndex > to
+				|| boxDistanceSq(node, x, y) > radiusSq) {
+			return count;
+		}
+
+		if (height == 0) {
+			int end = Math.min(to, lastIndex);
+			for (int i = Math.max(from, firstIndex); i <= end; i++) {
+				if (distanceSq(i, x, y) <= radiusSq) {
+					if (count < result.length) {
+						result[count] = i;
+					}
+					count++;
+				}
+			}
+			return count;
+		}
+
+		count = withinRadius(2 * node, height - 1, x, y, radiusSq, from, to,
+				result, count);
+		return withinRadius(2 * node + 1, height - 1, x, y, radiusSq, from,
+				to, result, count);
+	}
+
+	/**
+	 * @return squared distance from a point to the bounding box of a node, 0
+	 *         if the point is inside and infinity if the node is empty
+	 */
+	private double boxDistanceSq(int node, double x, double y) {
+		int b = 4 * node;
+		double minX = boxes[b];
+		double maxX = boxes[b + 2];
+		if (minX > maxX) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double dx = Math.max(0, Math.max(minX - x, x - maxX));
+		double dy = Math.max(0, Math.max(boxes[b + 1] - y, y - boxes[b + 3]));
+		return dx * dx + dy * dy;
+	}
+
+	private double distanceSq(int i, double x, double y) {
+		double dx = path.getX(i) - x;
+		double dy = path.getY(i) - y;
+		return dx * dx + dy * dy;
+	}
+}
@@ -0,0 +1,469 @@
+package robot.plan;
+
+import java.util.Arrays;
+
+/**
+ * DStarLite class Incremental shortest paths on an 8-connected grid with D*
+ * Lite (Koenig and Likhachev, 2002). The search runs backwards from the goal,
+ * so when the robot moves or cell costs change only the part of the search
+ * that is affected is repaired instead of planning again from scratch.
+ *
+ * Every cell has a traversal cost of at least 1, or BLOCKED if it can not be
+ * entered. Moving to a neighbour costs STRAIGHT or DIAGONAL times the cost
+ * of the cell entered, so a robot that finds itself in a blocked cell can
+ * still leave it. Path costs are whole numbers so keys compare exactly;
+ * with floating point, keys that tie in theory can come out in the wrong
+ * order and the search stops before the start is consistent. Cells are
+ * numbered by index, and the grid has a blocked border one cell wide around
+ * it so neighbours are found by adding a fixed offset. All state is kept in
+ * primitive arrays allocated by the constructor, and the open list is an
+ * indexed binary heap, so planning allocates nothing.
+ *
+ * A search can be given a budget of expansions and continued later. Between
+ * two expansions every cell on the open list is one whose g and rhs differ,
+ * which is all the search needs, so the start may move and costs change
+ * before it goes on.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class DStarLite {
+
+	public static final int BLOCKED = Integer.MAX_VALUE;
+	public static final int STRAIGHT = 10;
+	public static final int DIAGONAL = 14;
+	public static final long INF = Long.MAX_VALUE / 4;
+
+	private final int width;
+	private final int height;
+	private final int stride;
+	private final int[] offsets;
+	private final int[] steps;
+	private final short[] columns;
+	private final short[] rows;
+	private final boolean[] inside;
+	private final int[] cost;
+	private final long[] g;
+	private final long[] rhs;
+	private final long[] key1;
+	private final long[] key2;
+	private final int[] heap;
+	private final int[] heapIndex;
+	private int heapSize;
+	private int start = -1;
+	private int goal = -1;
+	private int last;
+	private long km;
+	private long expansions;
+
+	/**
+	 * Constructor for DStarLite. All cells start with cost 1.
+	 *
+	 * @param width
+	 *            number of columns, at most 32765
+	 * @param height
+	 *            number of rows, at most 32765
+	 */
+	public DStarLite(int width, int height) {
+		if (width <= 0 || height <= 0 || width > Short.MAX_VALUE - 2
+				|| height > Short.MAX_VALUE - 2) {
+			throw new IllegalArgumentException("Bad grid size " + width
+					+ "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		stride = width + 2;
+		int n = stride * (height + 2);
+		offsets = new int[] { 1, stride + 1, stride, stride - 1, -1,
+				-stride - 1, -stride, -stride + 1 };
+		steps = new int[] { STRAIGHT, DIAGONAL, STRAIGHT, DIAGONAL,
+				STRAIGHT, DIAGONAL, STRAIGHT, DIAGONAL };
+		columns = new short[n];
+		rows = new short[n];
+		inside = new boolean[n];
+		cost = new int[n];
+		g = new long[n];
+		rhs = new long[n];
+		key1 = new long[n];
+		key2 = new long[n];
+		heap = new int[n];
+		heapIndex = new int[n];
+		for (int i = 0; i < n; i++) {
+			columns[i] = (short) (i % stride - 1);
+			rows[i] = (short) (i / stride - 1);
+			inside[i] = columns[i] >= 0 && columns[i] < width
+					&& rows[i] >= 0 && rows[i] < height;
+			cost[i] = inside[i] ? 1 : BLOCKED;
+		}
+		Arrays.fill(heapIndex, -1);
+	}
+
+	/**
+	 * @param column
+	 *            column of a cell, 0 to width - 1
+	 * @param row
+	 *            row of a cell, 0 to height - 1
+	 * @return index of the cell
+	 */
+	public int index(int column, int row) {
+		return (row + 1) * stride + column + 1;
+	}
+
+	/**
+	 * @param cell
+	 *            index of a cell
+	 * @return column of the cell
+	 */
+	public int column(int cell) {
+		return columns[cell];
+	}
+
+	/**
+	 * @param cell
+	 *            index of a cell
+	 * @return row of the cell
+	 */
+	public int row(int cell) {
+		return rows[cell];
+	}
+
+	/**
+	 * @param cell
+	 *            index of a cell
+	 * @return traversal cost of the cell
+	 */
+	public int getCost(int cell) {
+		return cost[cell];
+	}
+
+	/**
+	 * Drops the current search, so later cost changes are only stored.
+	 */
+	public void clear() {
+		for (int i = 0; i < heapSize; i++) {
+			heapIndex[heap[i]] = -1;
+		}
+		heapSize = 0;
+		start = -1;
+		goal = -1;
+	}
+
+	/**
+	 * Starts a new search between two cells, forgetting the previous one.
+	 *
+	 * @param start
+	 *            cell of the robot
+	 * @param goal
+	 *            cell to reach
+	 */
+	public void reset(int start, int goal) {
+		clear();
+		Arrays.fill(g, INF);
+		Arrays.fill(rhs, INF);
+		km = 0;
+		this.start = start;
+		this.last = start;
+		this.goal = goal;
+		rhs[goal] = 0;
+		insert(goal, heuristic(start, goal), 0);
+	}
+
+	/**
+	 * Moves the start of the search to the current cell of the robot.
+	 *
+	 * @param cell
+	 *            new start cell
+	 */
+	public void moveStart(int cell) {
+		if (cell != start) {
+			start = cell;
+			km += heuristic(last, start);
+			last = start;
+		}
+	}
+
+	/**
+	 * Changes the cost of a cell. If a search is running, the cells whose
+	 * best move may go through the cell are updated, and the next compute
+	 * repairs the paths.
+	 *
+	 * @param cell
+	 *            the cell, not on the border
+	 * @param value
+	 *            new cost, at least 1 or BLOCKED
+	 */
+	public void setCost(int cell, int value) {
+		int old = cost[cell];
+		if (old == value) {
+			return;
+		}
+		cost[cell] = value;
+		if (goal < 0) {
+			return;
+		}
+		for (int d = 0; d < 8; d++) {
+			int u = cell + offsets[d];
+			if (u == goal || !inside[u]) {
+				continue;
+			}
+			long through = add(edge(d, old), g[cell]);
+			if (value < old) {
+				long c = add(edge(d, value), g[cell]);
+				if (c < rhs[u]) {
+					rhs[u] = c;
+					updateVertex(u);
+				}
+			} else if (rhs[u] == through && through < INF) {
+				rhs[u] = bestSuccessorCost(u);
+				updateVertex(u);
+			}
+		}
+	}
+
+	/**
+	 * Computes or repairs the shortest path from the start to the goal.
+	 *
+	 * @return true if the goal can be reached from the start
+	 */
+	public boolean compute() {
+		compute(Integer.MAX_VALUE);
+		return isReachable();
+	}
+
+	/**
+	 * Computes or repairs the shortest path from the start to the goal, but
+	 * stops after a number of expansions. A search that is not done is
+	 * continued by the next call.
+	 *
+	 * @param budget
+	 *            most cells to expand in this call
+	 * @return true if the search is done, false if it ran out of expansions
+	 */
+	public boolean compute(int budget) {
+		while (heapSize > 0) {
+			long s1 = Math.min(g[start], rhs[start]);
+			int u = heap[0];
+			if (!less(key1[u], key2[u], s1 + km, s1) && rhs[start] <= g[start]) {
+				return true;
+			}
+			if (budget-- <= 0) {
+				return false;
+			}
+			expansions++;
+			long m = Math.min(g[u], rhs[u]);
+			long newKey1 = m + heuristic(start, u) + km;
+			if (less(key1[u], key2[u], newKey1, m)) {
+				update(u, newKey1, m);
+			} else if (g[u] > rhs[u]) {
+				long gu = rhs[u];
+				g[u] = gu;
+				remove(u);
+				for (int d = 0; d < 8; d++) {
+					int s = u + offsets[d];
+					long c = add(edge(d, cost[u]), gu);
+					if (c < rhs[s] && s != goal && inside[s]) {
+						rhs[s] = c;
+						updateVertex(s);
+					}
+				}
+			} else {
+				long oldG = g[u];
+				g[u] = INF;
+				for (int d = 0; d < 8; d++) {
+					int s = u + offsets[d];
+					if (s != goal && inside[s]
+							&& rhs[s] == add(edge(d, cost[u]), oldG)) {
+						rhs[s] = bestSuccessorCost(s);
+						updateVertex(s);
+					}
+				}
+				// The rhs of u does not depend on its own g.
+				updateVertex(u);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the last finished search found a path from the start
+	 *         to the goal
+	 */
+	public boolean isReachable() {
+		return Math.min(g[start], rhs[start]) < INF;
+	}
+
+	/**
+	 * @param cell
+	 *            a cell
+	 * @return cost of the best known path from the cell to the goal, in
+	 *         tenths of a cell, INF if there is none
+	 */
+	public long getDistance(int cell) {
+		return rhs[cell];
+	}
+
+	/**
+	 * Gives the next cell on the best path from a cell towards the goal.
+	 *
+	 * @param cell
+	 *            current cell
+	 * @return the next cell, or -1 if the goal can not be reached or the cell
+	 *         is the goal
+	 */
+	public int next(int cell) {
+		if (cell == goal) {
+			return -1;
+		}
+		int best = -1;
+		long bestCost = INF;
+		for (int d = 0; d < 8; d++) {
+			int s = cell + offsets[d];
+			long c = edge(d, cost[s]) + g[s];
+			if (c < bestCost) {
+				bestCost = c;
+				best = s;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return number of cells expanded since the planner was created
+	 */
+	public long getExpansions() {
+		return expansions;
+	}
+
+	private long bestSuccessorCost(int u) {
+		long best = INF;
+		for (int d = 0; d < 8; d++) {
+			int s = u + offsets[d];
+			long c = add(edge(d, cost[s]), g[s]);
+			if (c < best) {
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Cost of a step in direction d into a cell with the given cost.
+	 */
+	private long edge(int d, int cellCost) {
+		return cellCost == BLOCKED ? INF : steps[d] * cellCost;
+	}
+
+	/**
+	 * Adds two path costs, keeping anything unreachable at exactly INF so
+	 * unreachable cells count as consistent.
+	 */
+	private static long add(long a, long b) {
+		long c = a + b;
+		return c >= INF ? INF : c;
+	}
+
+	/**
+	 * Octile distance, which never overestimates since costs are at least 1.
+	 */
+	private long heuristic(int a, int b) {
+		int dx = Math.abs(columns[a] - columns[b]);
+		int dy = Math.abs(rows[a] - rows[b]);
+		return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT)
+				* Math.min(dx, dy);
+	}
+
+	private void updateVertex(int u) {
+		boolean queued = heapIndex[u] >= 0;
+		if (g[u] != rhs[u]) {
+			long m = Math.min(g[u], rhs[u]);
+			long k1 = m + heuristic(start, u) + km;
+			if (queued) {
+				update(u, k1, m);
+			} else {
+				insert(u, k1, m);
+			}
+		} else if (queued) {
+			remove(u);
+		}
+	}
+
+	private static boolean less(long a1, long a2, long b1, long b2) {
+		return a1 < b1 || (a1 == b1 && a2 < b2);
+	}
+
+	private boolean less(int a, int b) {
+		return less(key1[a], key2[a], key1[b], key2[b]);
+	}
+
+	private void insert(int u, long k1, long k2) {
+		key1[u] = k1;
+		key2[u] = k2;
+		heap[heapSize] = u;
+		heapIndex[u] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private void update(int u, long k1, long k2) {
+		boolean lower = less(k1, k2, key1[u], key2[u]);
+		key1[u] = k1;
+		key2[u] = k2;
+		if (lower) {
+			siftUp(heapIndex[u]);
+		} else {
+			siftDown(heapIndex[u]);
+		}
+	}
+
+	private void remove(int u) {
+		int i = heapIndex[u];
+		heapIndex[u] = -1;
+		heapSize--;
+		if (i == heapSize) {
+			return;
+		}
+		int moved = heap[heapSize];
+		heap[i] = moved;
+		heapIndex[moved] = i;
+		siftDown(i);
+		siftUp(heapIndex[moved]);
+	}
+
+	private void siftUp(int i) {
+		int u = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			int p = heap[parent];
+			if (!less(u, p)) {
+				break;
+			}
+			heap[i] = p;
+			heapIndex[p] = i;
+			i = parent;
+		}
+		heap[i] = u;
+		heapIndex[u] = i;
+	}
+
+	private void siftDown(int i) {
+		int u = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+				child++;
+			}
+			int c = heap[child];
+			if (!less(c, u)) {
+				break;
+			}
+			heap[i] = c;
+			heapIndex[c] = i;
+			i = child;
+		}
+		heap[i] = u;
+		heapIndex[u] = i;
+	}
+}
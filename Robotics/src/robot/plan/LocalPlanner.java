@@ -0,0 +1,426 @@
+package robot.plan;
+
+import java.util.Arrays;
+
+import robot.map.OccupancyGrid;
+
+/**
+ * LocalPlanner class Plans detours around obstacles in a square window of an
+ * OccupancyGrid. The window is turned into a cost grid where cells closer to
+ * an occupied cell than the robot radius are blocked and cells within the
+ * inflation distance cost more the closer they are, so detours keep their
+ * distance to obstacles when there is room. Distances to obstacles come from
+ * a two pass chamfer distance transform.
+ *
+ * A detour is planned with D* Lite. On every replan the costs are rebuilt
+ * around the tiles of the grid where cells became occupied or free since the
+ * last time, and only the cells whose cost changed are handed to D* Lite,
+ * which repairs the plan incrementally instead of starting over. A plan
+ * from scratch over the whole window can take tens of milliseconds, so with
+ * an expansion budget set each call only searches that far, and the search
+ * goes on with the next replan until the plan is ready.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class LocalPlanner {
+
+	public static final int INFLATION_COST = 10;
+	private static final int STRAIGHT = 3;
+	private static final int DIAGONAL = 4;
+
+	private final OccupancyGrid map;
+	private final int size;
+	private final double resolution;
+	private final double robotRadius;
+	private final double inflation;
+	private final DStarLite search;
+	private final int[] distance;
+	private final int[] costs;
+	private final int reach;
+	private final float[] row;
+	private int originX;
+	private int originY;
+	private int generation;
+	private boolean planning;
+	private boolean ready;
+	private int budget = Integer.MAX_VALUE;
+	private long plans;
+	private long replans;
+	private long lastPlanNanos;
+	private long maxPlanNanos;
+
+	/**
+	 * Constructor for LocalPlanner.
+	 *
+	 * @param map
+	 *            the occupancy grid to plan in
+	 * @param windowSize
+	 *            side of the planning window in meters
+	 * @param robotRadius
+	 *            cells closer than this to an obstacle are blocked
+	 * @param inflation
+	 *            cells closer than this to an obstacle cost extra
+	 */
+	public LocalPlanner(OccupancyGrid map, double windowSize,
+			double robotRadius, double inflation) {
+		this.map = map;
+		this.resolution = map.getResolution();
+		this.size = (int) Math.ceil(windowSize / resolution);
+		this.robotRadius = robotRadius;
+		this.inflation = Math.max(inflation, robotRadius);
+		search = new DStarLite(size, size);
+		distance = new int[(size + 2) * (size + 2)];
+		row = new float[size];
+
+		// Cost for every distance in thirds of a cell up to the inflation.
+		double blocked = robotRadius / resolution * STRAIGHT;
+		double inflated = this.inflation / resolution * STRAIGHT;
+		costs = new int[(int) Math.ceil(inflated) + 1];
+		for (int d = 0; d < costs.length; d++) {
+			if (d < blocked) {
+				costs[d] = DStarLite.BLOCKED;
+			} else if (d < inflated) {
+				costs[d] = 1 + (int) Math.round(INFLATION_COST
+						* (inflated - d) / (inflated - blocked));
+			} else {
+				costs[d] = 1;
+			}
+		}
+		reach = (costs.length + STRAIGHT - 1) / STRAIGHT;
+	}
+
+	/**
+	 * Moves the window so it is centered on a point and builds its costs.
+	 * Any running plan is dropped.
+	 *
+	 * @param x
+	 *            x coordinate of the center
+	 * @param y
+	 *            y coordinate of the center
+	 */
+	public void center(double x, double y) {
+		originX = map.cell(x) - size / 2;
+		originY = map.cell(y) - size / 2;
+		planning = false;
+		ready = false;
+		search.clear();
+		generation = map.getGeneration();
+		updateCosts(0, 0, size, size);
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate
+	 * @param y
+	 *            y coordinate
+	 * @return true if the point is inside the window
+	 */
+	public boolean contains(double x, double y) {
+		int cx = map.cell(x) - originX;
+		int cy = map.cell(y) - originY;
+		return cx >= 0 && cx < size && cy >= 0 && cy < size;
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate
+	 * @param y
+	 *            y coordinate
+	 * @return true if the point is in the window and the robot fits there
+	 */
+	public boolean isFree(double x, double y) {
+		return contains(x, y)
+				&& search.getCost(cellOf(x, y)) != DStarLite.BLOCKED;
+	}
+
+	/**
+	 * Limits how many cells plan and replan may expand in one call. The
+	 * default is no limit, which finishes every plan in the call that
+	 * started it.
+	 *
+	 * @param budget
+	 *            most cells to expand per call
+	 */
+	public void setBudget(int budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * @return true if the search is done and has found a plan
+	 */
+	public boolean isReady() {
+		return planning && ready;
+	}
+
+	/**
+	 * Starts planning a path in the window from the robot to a goal. If the
+	 * search does not finish within the budget, isReady stays false and it
+	 * goes on with replan.
+	 *
+	 * @param x
+	 *            x coordinate of the robot
+	 * @param y
+	 *            y coordinate of the robot
+	 * @param goalX
+	 *            x coordinate of the goal
+	 * @param goalY
+	 *            y coordinate of the goal
+	 * @return false if there is no path, true if one was found or the
+	 *         search is still going
+	 */
+	public boolean plan(double x, double y, double goalX, double goalY) {
+		if (!contains(x, y) || !contains(goalX, goalY)) {
+			planning = false;
+			return false;
+		}
+		long start = System.nanoTime();
+		search.reset(cellOf(x, y), cellOf(goalX, goalY));
+		planning = true;
+		runSearch();
+		recordTime(System.nanoTime() - start);
+		plans++;
+		return planning;
+	}
+
+	/**
+	 * Repairs the plan after the robot has moved, taking in what has been
+	 * added to the occupancy grid since the last plan, or goes on with a
+	 * search that ran out of budget. A repair that runs out of budget leaves
+	 * the plan not ready until a later replan finishes it.
+	 *
+	 * @param x
+	 *            x coordinate of the robot
+	 * @param y
+	 *            y coordinate of the robot
+	 * @return false if the goal can no longer be reached, true if it can or
+	 *         the search is still going
+	 */
+	public boolean replan(double x, double y) {
+		if (!planning || !contains(x, y)) {
+			planning = false;
+			return false;
+		}
+		long start = System.nanoTime();
+		search.moveStart(cellOf(x, y));
+		updateChangedCosts();
+		runSearch();
+		recordTime(System.nanoTime() - start);
+		replans++;
+		return planning;
+	}
+
+	/**
+	 * Finds the point on the plan a given distance from the robot, or the
+	 * goal if the whole plan is closer than that.
+	 *
+	 * @param x
+	 *            x coordinate of the robot
+	 * @param y
+	 *            y coordinate of the robot
+	 * @param lookahead
+	 *            distance from the robot in meters
+	 * @param point
+	 *            array of two elements to fill with the point
+	 * @return false if there is no plan or it is not ready
+	 */
+	public boolean lookahead(double x, double y, double lookahead,
+			double[] point) {
+		if (!isReady() || !contains(x, y)) {
+			return false;
+		}
+		int cell = cellOf(x, y);
+		double limitSq = lookahead * lookahead;
+		for (int steps = 0; steps < size * size; steps++) {
+			point[0] = map.center(search.column(cell) + originX);
+			point[1] = map.center(search.row(cell) + originY);
+			double dx = point[0] - x;
+			double dy = point[1] - y;
+			if (dx * dx + dy * dy >= limitSq) {
+				return true;
+			}
+			int next = search.next(cell);
+			if (next < 0) {
+				return search.getDistance(cell) < DStarLite.INF;
+			}
+			cell = next;
+		}
+		return false;
+	}
+
+	/**
+	 * @param x
+	 *            x coordinate of the robot
+	 * @param y
+	 *            y coordinate of the robot
+	 * @return cost of the plan from the point to the goal in cells, infinity
+	 *         if there is no plan or it is not ready
+	 */
+	public double getPathCost(double x, double y) {
+		long distance = isReady() && contains(x, y) ? search
+				.getDistance(cellOf(x, y)) : DStarLite.INF;
+		return distance >= DStarLite.INF ? Double.POSITIVE_INFINITY
+				: distance / (double) DStarLite.STRAIGHT;
+	}
+
+	/**
+	 * @return number of plans made from scratch
+	 */
+	public long getPlans() {
+		return plans;
+	}
+
+	/**
+	 * @return number of incremental repairs
+	 */
+	public long getReplans() {
+		return replans;
+	}
+
+	/**
+	 * @return time of the latest call to plan or replan in nanoseconds
+	 */
+	public long getLastPlanTime() {
+		return lastPlanNanos;
+	}
+
+	/**
+	 * @return longest call to plan or replan in nanoseconds
+	 */
+	public long getMaxPlanTime() {
+		return maxPlanNanos;
+	}
+
+	/**
+	 * Runs the search for at most the budget. Once the search is done the
+	 * plan is ready if the goal can be reached, and dropped if not.
+	 */
+	private void runSearch() {
+		ready = search.compute(budget);
+		if (ready) {
+			planning = search.isReachable();
+		}
+	}
+
+	private void recordTime(long nanos) {
+		lastPlanNanos = nanos;
+		maxPlanNanos = Math.max(maxPlanNanos, nanos);
+	}
+
+	private int cellOf(double x, double y) {
+		return search.index(map.cell(x) - originX, map.cell(y) - originY);
+	}
+
+	/**
+	 * Rebuilds the costs around every tile in the window that has changed
+	 * since the costs were last built. A cell further than reach from the
+	 * changed cells of a tile is beyond the inflation distance of all of
+	 * them, so its cost stays. Changed tiles next to each other in a row are
+	 * rebuilt together, so the cells between them are only passed once.
+	 */
+	private void updateChangedCosts() {
+		int current = map.getGeneration();
+		int firstX = originX >> OccupancyGrid.TILE_BITS;
+		int lastX = (originX + size - 1) >> OccupancyGrid.TILE_BITS;
+		int firstY = originY >> OccupancyGrid.TILE_BITS;
+		int lastY = (originY + size - 1) >> OccupancyGrid.TILE_BITS;
+		for (int ty = firstY; ty <= lastY; ty++) {
+			int y0 = (ty << OccupancyGrid.TILE_BITS) - originY;
+			int tx = firstX;
+			while (tx <= lastX) {
+				// Stamps after current belong to an update that is still
+				// running, and are looked at again next time.
+				if (map.getStamp(tx, ty) - generation <= 0) {
+					tx++;
+					continue;
+				}
+				int x0 = (tx << OccupancyGrid.TILE_BITS) - originX;
+				while (tx <= lastX && map.getStamp(tx, ty) - generation > 0) {
+					tx++;
+				}
+				int x1 = (tx << OccupancyGrid.TILE_BITS) - originX;
+				updateCosts(x0 - reach, y0 - reach, x1 + reach, y0
+						+ OccupancyGrid.TILE_SIZE + reach);
+			}
+		}
+		generation = current;
+	}
+
+	/**
+	 * Rebuilds the cost of the cells in a rectangle of the window from the
+	 * distance to the closest occupied cell. Distances are in thirds of a
+	 * cell, 3 for a straight step and 4 for a diagonal one, and are found
+	 * with two passes over a distance array with a border one cell wide, so
+	 * no pass needs to check for the edges. Distances are capped just above
+	 * the inflation distance since costs do not change beyond it, so a path
+	 * to the closest occupied cell is at most reach steps long and the
+	 * passes only need to cover the rectangle grown by reach.
+	 *
+	 * @param x0
+	 *            first column of the rectangle, may be outside the window
+	 * @param y0
+	 *            first row of the rectangle, may be outside the window
+	 * @param x1
+	 *            column after the rectangle
+	 * @param y1
+	 *            row after the rectangle
+	 */
+	private void updateCosts(int x0, int y0, int x1, int y1) {
+		x0 = Math.max(0, x0);
+		y0 = Math.max(0, y0);
+		x1 = Math.min(size, x1);
+		y1 = Math.min(size, y1);
+		int left = Math.max(0, x0 - reach);
+		int top = Math.max(0, y0 - reach);
+		int width = Math.min(size, x1 + reach) - left;
+		int height = Math.min(size, y1 + reach) - top;
+		int stride = width + 2;
+		int limit = costs.length;
+		Arrays.fill(distance, 0, stride * (height + 2), limit);
+		for (int cy = 0; cy < height; cy++) {
+			map.getRow(left + originX, cy + top + originY, width, row);
+			int i = (cy + 1) * stride + 1;
+			for (int cx = 0; cx < width; cx++, i++) {
+				distance[i] = row[cx] >= OccupancyGrid.OCCUPIED ? 0 : limit;
+			}
+		}
+		// Within a row the steps from the row before do not depend on each
+		// other, so they are taken first and only the sideways step is
+		// left as a chain through the row.
+		for (int cy = 0; cy < height; cy++) {
+			int first = (cy + 1) * stride + 1;
+			int end = first + width;
+			for (int i = first; i < end; i++) {
+				int d = Math.min(distance[i], distance[i - stride] + STRAIGHT);
+				d = Math.min(d, distance[i - stride - 1] + DIAGONAL);
+				distance[i] = Math.min(d, distance[i - stride + 1] + DIAGONAL);
+			}
+			for (int i = first; i < end; i++) {
+				distance[i] = Math.min(distance[i], distance[i - 1] + STRAIGHT);
+			}
+		}
+		for (int cy = height - 1; cy >= 0; cy--) {
+			int first = (cy + 1) * stride + 1;
+			int last = first + width - 1;
+			for (int i = first; i <= last; i++) {
+				int d = Math.min(distance[i], distance[i + stride] + STRAIGHT);
+				d = Math.min(d, distance[i + stride + 1] + DIAGONAL);
+				distance[i] = Math.min(d, distance[i + stride - 1] + DIAGONAL);
+			}
+			boolean inside = cy + top >= y0 && cy + top < y1;
+			int cell = search.index(left + width - 1, cy + top);
+			int cx = left + width - 1;
+			for (int i = last; i >= first; i--, cx--, cell--) {
+				int d = Math.min(distance[i], distance[i + 1] + STRAIGHT);
+				distance[i] = d;
+
+				// The cost only depends on the final distance, which is
+				// known once this pass reaches the cell.
+				if (inside && cx >= x0 && cx < x1) {
+					search.setCost(cell, d < limit ? costs[d] : 1);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package robot.record;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * ChunkWriter class Appends chunks of records to a recording on a background
+ * thread. There are two chunk buffers: the recorder fills one while the
+ * writer thread writes the other, and the buffers are handed back and forth
+ * through queues with calls that never wait. The file is forced to disk at
+ * most every fsync interval, so a crash loses at most that much of the
+ * recording without every chunk paying for an fsync.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+class ChunkWriter {
+
+	private static final int BUFFERS = 2;
+	private final FileChannel channel;
+	private final long fsyncNanos;
+	private final BlockingQueue<ByteBuffer> free;
+	private final BlockingQueue<ByteBuffer> full;
+	private final ByteBuffer stop;
+	private final CRC32 crc = new CRC32();
+	private final Thread thread;
+	private volatile IOException error;
+	private volatile long chunks;
+	private volatile long bytes;
+	private volatile long fsyncs;
+
+	/**
+	 * Constructor for ChunkWriter. The writer thread starts right away.
+	 *
+	 * @param channel
+	 *            the recording, positioned after the file header
+	 * @param chunkSize
+	 *            size of a chunk buffer in bytes, chunk header included
+	 * @param fsyncNanos
+	 *            shortest time between two fsyncs
+	 */
+	ChunkWriter(FileChannel channel, int chunkSize, long fsyncNanos) {
+		this.channel = channel;
+		this.fsyncNanos = fsyncNanos;
+		free = new ArrayBlockingQueue<ByteBuffer>(BUFFERS);
+		full = new ArrayBlockingQueue<ByteBuffer>(BUFFERS + 1);
+		for (int i = 0; i < BUFFERS; i++) {
+			free.add(ByteBuffer.allocate(chunkSize).order(
+					ByteOrder.LITTLE_ENDIAN));
+		}
+		stop = ByteBuffer.allocate(0);
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeChunks();
+			}
+		}, "chunk-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Takes an empty chunk buffer, positioned after the chunk header.
+	 *
+	 * @return the buffer, or null if the writer still has both buffers
+	 */
+	ByteBuffer take() {
+		ByteBuffer buffer = free.poll();
+		if (buffer != null) {
+			buffer.clear();
+			buffer.position(RecordingFormat.CHUNK_HEADER_SIZE);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Hands a filled chunk buffer to the writer thread.
+	 *
+	 * @param buffer
+	 *            a buffer from take, with whole records up to its position
+	 * @param count
+	 *            number of records in the buffer
+	 */
+	void submit(ByteBuffer buffer, int count) {
+		int payload = buffer.position() - RecordingFormat.CHUNK_HEADER_SIZE;
+		crc.reset();
+		crc.update(buffer.array(), buffer.arrayOffset()
+				+ RecordingFormat.CHUNK_HEADER_SIZE, payload);
+		buffer.putInt(0, RecordingFormat.CHUNK_MAGIC);
+		buffer.putInt(4, count);
+		buffer.putInt(8, (int) crc.getValue());
+		buffer.putInt(12, payload);
+		buffer.flip();
+		full.add(buffer);
+	}
+
+	/**
+	 * Writes the chunks handed over so far, forces the file to disk and
+	 * stops the writer thread. The channel is not closed.
+	 *
+	 * @throws IOException
+	 *             if any write failed
+	 * @throws InterruptedException
+	 */
+	void close() throws IOException, InterruptedException {
+		full.add(stop);
+		thread.join();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * @return the first write error, or null if all writes went well
+	 */
+	IOException getError() {
+		return error;
+	}
+
+	/**
+	 * @return number of chunks written
+	 */
+	long getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return number of bytes written
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return number of times the file was forced to disk
+	 */
+	long getFsyncs() {
+		return fsyncs;
+	}
+
+	private void writeChunks() {
+		long lastSync = System.nanoTime();
+		try {
+			while (true) {
+				ByteBuffer buffer = full.take();
+				if (buffer == stop) {
+					break;
+				}
+				if (error == null) {
+					try {
+						int n = buffer.remaining();
+						while (buffer.hasRemaining()) {
+							channel.write(buffer);
+						}
+						chunks++;
+						bytes += n;
+						long now = System.nanoTime();
+						if (now - lastSync >= fsyncNanos) {
+							channel.force(false);
+							fsyncs++;
+							lastSync = now;
+						}
+					} catch (IOException e) {
+						error = e;
+					}
+				}
+				free.add(buffer);
+			}
+			if (error == null) {
+				channel.force(true);
+				fsyncs++;
+			}
+		} catch (IOException e) {
+			error = e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
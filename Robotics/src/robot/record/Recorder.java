@@ -0,0 +1,268 @@
+package robot.record;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+
+import robot.comm.RobotLink;
+import robot.comm.SensorFetcher;
+import robot.comm.SensorSnapshot;
+import robot.control.FixedRateScheduler;
+import robot.control.FixedRateScheduler.OverrunPolicy;
+import robot.control.SystemClock;
+import robot.laser.LaserGeometry;
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+import suppliedFiles.RobotCommunication;
+
+/**
+ * Recorder class Records the pose and the laser scan of the robot at a fixed
+ * rate to a binary recording, for example while the robot is driven by hand
+ * to teach it a path. Every tick fetches both with a SensorFetcher and
+ * encodes them straight into a chunk buffer, so no objects are created per
+ * sample. Full chunks, or chunks older than CHUNK_NANOS, are handed to a
+ * ChunkWriter which writes them on its own thread. If the writer ever has
+ * both buffers, samples are dropped and counted instead of waiting for it.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Recorder implements FixedRateScheduler.Task {
+
+	public static final double DEFAULT_RATE = 20;
+	private static final long CHUNK_NANOS = 1000000000L;
+	private static final long FSYNC_NANOS = 5000000000L;
+	private static final int CHUNK_RECORDS = 256;
+	private final RobotLink robotComm;
+	private final SensorFetcher sensors;
+	private final FixedRateScheduler scheduler;
+	private final SensorSnapshot snapshot;
+	private final RandomAccessFile file;
+	private final ChunkWriter writer;
+	private final int beams;
+	private final int recordSize;
+	private final double[] echoes;
+	private final long durationNanos;
+	private ByteBuffer chunk;
+	private int chunkCount;
+	private long chunkStart;
+	private long startNanos = -1;
+	private long records;
+	private long dropped;
+	private volatile boolean stopping;
+
+	/**
+	 * Constructor for Recorder. The file is replaced if it exists.
+	 *
+	 * @param link
+	 *            the link to the robot, it must allow concurrent requests
+	 * @param file
+	 *            the recording to write
+	 * @param geometry
+	 *            beams of the laser scanner
+	 * @param rate
+	 *            samples per second
+	 * @param durationNanos
+	 *            length of the recording, 0 to record until stop is called
+	 * @throws IOException
+	 *             if the file can not be created
+	 */
+	public Recorder(RobotLink link, File file, LaserGeometry geometry,
+			double rate, long durationNanos) throws IOException {
+		robotComm = link;
+		sensors = new SensorFetcher(link);
+		scheduler = new FixedRateScheduler(SystemClock.INSTANCE, rate,
+				OverrunPolicy.SKIP);
+		snapshot = new SensorSnapshot(new LocalizationResponse(),
+				new LaserEchoesResponse());
+		beams = geometry.getBeams();
+		recordSize = RecordingFormat.recordSize(beams);
+		echoes = new double[beams];
+		this.durationNanos = durationNanos;
+
+		this.file = new RandomAccessFile(file, "rw");
+		try {
+			this.file.setLength(0);
+			FileChannel channel = this.file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(RecordingFormat.HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(RecordingFormat.MAGIC);
+			header.putInt(RecordingFormat.VERSION);
+			header.putInt(beams);
+			header.putInt((int) Math.round(1000000 / rate));
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			writer = new ChunkWriter(channel, RecordingFormat.CHUNK_HEADER_SIZE
+					+ CHUNK_RECORDS * recordSize, FSYNC_NANOS);
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Records until the duration has passed, stop is called or a write
+	 * fails. The last chunk is written and the file forced to disk before
+	 * the method returns.
+	 *
+	 * @throws Exception
+	 *             if a request to the robot or a write failed
+	 */
+	public void run() throws Exception {
+		try {
+			scheduler.run(this);
+		} finally {
+			if (chunk != null && chunkCount > 0) {
+				writer.submit(chunk, chunkCount);
+				chunk = null;
+			}
+			try {
+				writer.close();
+			} finally {
+				file.close();
+				sensors.shutdown();
+				robotComm.close();
+			}
+		}
+	}
+
+	/**
+	 * Makes run return after the current sample. May be called from any
+	 * thread.
+	 */
+	public void stop() {
+		stopping = true;
+	}
+
+	/**
+	 * Tick fetches one sample and adds it to the current chunk.
+	 *
+	 * @return false when the recording should end
+	 * @throws Exception
+	 */
+	@Override
+	public boolean tick() throws Exception {
+		if (stopping || writer.getError() != null) {
+			return false;
+		}
+		sensors.fetch(snapshot);
+		long now = snapshot.getLocalizationTime();
+		if (startNanos < 0) {
+			startNanos = now;
+		}
+
+		if (chunk == null) {
+			chunk = writer.take();
+			chunkCount = 0;
+			chunkStart = now;
+		}
+		if (chunk == null) {
+			dropped++;
+		} else {
+			append(chunk, now);
+			chunkCount++;
+			records++;
+			if (chunk.remaining() < recordSize
+					|| now - chunkStart >= CHUNK_NANOS) {
+				writer.submit(chunk, chunkCount);
+				chunk = null;
+			}
+		}
+		return durationNanos <= 0 || now - startNanos < durationNanos;
+	}
+
+	/**
+	 * Encodes the pose and scan of the snapshot as one record.
+	 */
+	private void append(ByteBuffer buffer, long now) {
+		LocalizationResponse lr = snapshot.getLocalization();
+		buffer.putLong((now - startNanos) / 1000000);
+		buffer.putDouble(lr.getX());
+		buffer.putDouble(lr.getY());
+		buffer.putDouble(lr.getHeadingAngle());
+		int n = Math.min(snapshot.getLaser().getEchoes(echoes), beams);
+		for (int i = 0; i < n; i++) {
+			buffer.putShort(RecordingFormat.encodeRange(echoes[i]));
+		}
+		for (int i = n; i < beams; i++) {
+			buffer.putShort((short) 0);
+		}
+	}
+
+	/**
+	 * @return number of samples recorded
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * @return number of samples dropped because the writer was behind
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return summary of the recording
+	 */
+	public String summary() {
+		return records + " samples, " + dropped + " dropped, "
+				+ writer.getChunks() + " chunks, " + writer.getBytes() / 1024
+				+ " kB, " + writer.getFsyncs() + " fsyncs; "
+				+ scheduler.summary();
+	}
+
+	/**
+	 * Main records from MRDS on port 50000 until the duration has passed or
+	 * the program is interrupted, for example with Ctrl-C.
+	 *
+	 * @param args
+	 *            the file to record to, optionally followed by the rate in
+	 *            Hz and the duration in seconds
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: Recorder <file> [rate] [seconds]");
+			System.exit(1);
+		}
+		double rate = args.length > 1 ? Double.parseDouble(args[1])
+				: DEFAULT_RATE;
+		long duration = args.length > 2 ? (long) (Double
+				.parseDouble(args[2]) * 1e9) : 0;
+
+		try {
+			final Recorder recorder = new Recorder(new RobotCommunication(
+					"http://127.0.0.1", 50000), new File(args[0]),
+					LaserGeometry.ROBULAB, rate, duration);
+			final CountDownLatch done = new CountDownLatch(1);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					recorder.stop();
+					try {
+						done.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			try {
+				recorder.run();
+				System.out.println(recorder.summary());
+			} finally {
+				done.countDown();
+			}
+		} catch (Exception e) {
+			System.err.println("An error has occurred with message:"
+					+ e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package robot.record;
+
+import java.nio.ByteBuffer;
+
+import robot.path.Path;
+
+/**
+ * Recording class A recording opened by RecordingFormat. The records stay in
+ * the file mapping and are decoded on access, like MappedPath. A recording
+ * is a path of the recorded poses, so it can be given to RobotController
+ * like any path file, and it also gives access to the laser scan of every
+ * record.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Recording extends Path {
+
+	private final ByteBuffer buffer;
+	private final int[] offsets;
+	private final int size;
+	private final int beams;
+	private final int period;
+
+	/**
+	 * Constructor for Recording.
+	 *
+	 * @param buffer
+	 *            the mapped file in little-endian order, header included
+	 * @param offsets
+	 *            position of every record in the file
+	 * @param size
+	 *            number of records
+	 * @param beams
+	 *            number of laser beams per record
+	 * @param period
+	 *            sample period in microseconds
+	 */
+	Recording(ByteBuffer buffer, int[] offsets, int size, int beams,
+			int period) {
+		this.buffer = buffer;
+		this.offsets = offsets;
+		this.size = size;
+		this.beams = beams;
+		this.period = period;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double getX(int i) {
+		return buffer.getDouble(offset(i) + RecordingFormat.X_OFFSET);
+	}
+
+	@Override
+	public double getY(int i) {
+		return buffer.getDouble(offset(i) + RecordingFormat.Y_OFFSET);
+	}
+
+	@Override
+	public double getHeading(int i) {
+		return buffer.getDouble(offset(i) + RecordingFormat.HEADING_OFFSET);
+	}
+
+	/**
+	 * @param i
+	 *            record index
+	 * @return time of the record in milliseconds since the recording started
+	 */
+	@Override
+	public long getTimestamp(int i) {
+		return buffer.getLong(offset(i) + RecordingFormat.TIME_OFFSET);
+	}
+
+	/**
+	 * @return number of laser beams per record
+	 */
+	public int getBeams() {
+		return beams;
+	}
+
+	/**
+	 * @return sample period of the recorder in microseconds
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Decodes the laser scan of a record.
+	 *
+	 * @param i
+	 *            record index
+	 * @param ranges
+	 *            filled with the range of each beam in metres, 0 where the
+	 *            beam had no valid echo
+	 * @return number of beams written to ranges
+	 */
+	public int getRanges(int i, double[] ranges) {
+		int base = offset(i) + RecordingFormat.RANGES_OFFSET;
+		int n = Math.min(beams, ranges.length);
+		for (int b = 0; b < n; b++) {
+			ranges[b] = (buffer.getShort(base + 2 * b) & 0xffff) / 1000.0;
+		}
+		return n;
+	}
+
+	private int offset(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Record " + i + " of " + size);
+		}
+		return offsets[i];
+	}
+}
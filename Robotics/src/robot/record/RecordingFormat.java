@@ -0,0 +1,173 @@
+package robot.record;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * RecordingFormat class Reads the binary recording format written by
+ * Recorder. A file starts with a 16 byte header, the magic bytes RLOG, a
+ * format version, the number of laser beams per record and the sample
+ * period in microseconds. The rest of the file is a sequence of chunks,
+ * each a 16 byte chunk header with the magic bytes RCHK, the number of
+ * records, the CRC-32 of the records and their length in bytes, followed by
+ * the records. A record holds the time in milliseconds since the recording
+ * started, x, y and heading as doubles and one unsigned 16 bit range in
+ * millimetres per beam. All values are little-endian.
+ *
+ * Chunks are only ever appended, so if the recorder is killed the file ends
+ * with at most one torn chunk, which fails its length or CRC check and is
+ * left out when the file is opened.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class RecordingFormat {
+
+	public static final int MAGIC = 0x474f4c52; // "RLOG" little-endian
+	public static final int CHUNK_MAGIC = 0x4b484352; // "RCHK" little-endian
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int CHUNK_HEADER_SIZE = 16;
+	public static final double MAX_RANGE = 65.535;
+	static final int TIME_OFFSET = 0;
+	static final int X_OFFSET = 8;
+	static final int Y_OFFSET = 16;
+	static final int HEADING_OFFSET = 24;
+	static final int RANGES_OFFSET = 32;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private RecordingFormat() {
+	}
+
+	/**
+	 * @param beams
+	 *            number of laser beams per record
+	 * @return size of one record in bytes
+	 */
+	public static int recordSize(int beams) {
+		return RANGES_OFFSET + 2 * beams;
+	}
+
+	/**
+	 * Converts a range to the stored millimetres. Ranges that are not
+	 * numbers or negative are stored as 0, which reads back as an invalid
+	 * echo, and ranges past MAX_RANGE are clamped.
+	 *
+	 * @param range
+	 *            range in metres
+	 * @return the range in millimetres as an unsigned 16 bit value
+	 */
+	public static short encodeRange(double range) {
+		if (!(range > 0)) {
+			return 0;
+		}
+		return (short) Math.min(65535, Math.round(range * 1000));
+	}
+
+	/**
+	 * Checks whether a file starts with the recording header.
+	 *
+	 * @param file
+	 *            the file to check
+	 * @return true if the file is a recording
+	 * @throws IOException
+	 */
+	public static boolean isRecording(File file) throws IOException {
+		if (file.length() < HEADER_SIZE) {
+			return false;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return Integer.reverseBytes(raf.readInt()) == MAGIC;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Opens a recording by mapping it into memory and indexing the records
+	 * of every complete chunk. The mapping stays valid after the method
+	 * returns, the file itself is closed.
+	 *
+	 * @param file
+	 *            the recording
+	 * @return the recording, which can be followed as a path
+	 * @throws IOException
+	 *             if the file can not be read or has a bad header
+	 */
+	public static Recording open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+			if (length < HEADER_SIZE) {
+				throw new IOException(file + " is too short for a recording");
+			}
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException(file + " is larger than 2 GB");
+			}
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException(file + " is not a recording");
+			}
+			int version = buffer.getInt(4);
+			if (version != VERSION) {
+				throw new IOException(file + " has unsupported version "
+						+ version);
+			}
+			int beams = buffer.getInt(8);
+			if (beams < 0 || beams > 65535) {
+				throw new IOException(file + " has a bad beam count " + beams);
+			}
+			int period = buffer.getInt(12);
+			int recordSize = recordSize(beams);
+
+			int[] offsets = new int[INITIAL_CAPACITY];
+			int size = 0;
+			int position = HEADER_SIZE;
+			byte[] bytes = new byte[0];
+			CRC32 crc = new CRC32();
+			while (position + CHUNK_HEADER_SIZE <= length) {
+				int count = buffer.getInt(position + 4);
+				int payload = buffer.getInt(position + 12);
+				int start = position + CHUNK_HEADER_SIZE;
+				if (buffer.getInt(position) != CHUNK_MAGIC || count < 0
+						|| payload != (long) count * recordSize
+						|| start + (long) payload > length) {
+					break;
+				}
+				if (bytes.length < payload) {
+					bytes = new byte[payload];
+				}
+				buffer.position(start);
+				buffer.get(bytes, 0, payload);
+				crc.reset();
+				crc.update(bytes, 0, payload);
+				if ((int) crc.getValue() != buffer.getInt(position + 8)) {
+					break;
+				}
+				if (size + count > offsets.length) {
+					offsets = Arrays.copyOf(offsets,
+							Math.max(offsets.length * 2, size + count));
+				}
+				for (int i = 0; i < count; i++) {
+					offsets[size++] = start + i * recordSize;
+				}
+				position = start + payload;
+			}
+			buffer.position(0);
+			return new Recording(buffer, offsets, size, beams, period);
+		} finally {
+			raf.close();
+		}
+	}
+}
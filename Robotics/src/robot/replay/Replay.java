@@ -0,0 +1,111 @@
+package robot.replay;
+
+import java.io.EOFException;
+import java.io.File;
+
+import robot.RobotController;
+import robot.RobotController.Tracking;
+import robot.control.FixedRateScheduler.OverrunPolicy;
+import robot.control.VirtualClock;
+import robot.laser.LaserGeometry;
+import robot.path.Path;
+import robot.path.PathLoader;
+
+/**
+ * Replay class Runs RobotController against a recorded session on a
+ * VirtualClock, so a change to the controller can be tried on the same
+ * inputs as before and the resulting command streams compared. The replay
+ * ends when the controller reaches its goal or the recording runs out.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public final class Replay {
+
+	private Replay() {
+	}
+
+	/**
+	 * Replays a recording once.
+	 *
+	 * @param log
+	 *            the recorded session
+	 * @param pathFile
+	 *            the path the controller follows
+	 * @param rate
+	 *            control loop rate in Hz
+	 * @param speedFactor
+	 *            virtual seconds per real second, 0 for as fast as possible
+	 * @param tracking
+	 *            how the controller follows the path
+	 * @return the link, holding the command stream of the run
+	 * @throws Exception
+	 *             if the controller failed
+	 */
+	public static ReplayLink run(Path log, String pathFile, double rate,
+			double speedFactor, Tracking tracking) throws Exception {
+		VirtualClock clock = new VirtualClock(speedFactor);
+		ReplayLink link = new ReplayLink(log, clock,
+				LaserGeometry.ROBULAB.getBeams());
+		RobotController robot = new RobotController(link, clock, pathFile,
+				rate, OverrunPolicy.SKIP);
+		robot.setTracking(tracking);
+		try {
+			robot.run();
+		} catch (EOFException e) {
+			// The recording ran out before the goal was reached.
+		}
+		return link;
+	}
+
+	/**
+	 * Main replays a recording, or a JSON log such as log.json, and prints
+	 * the number of commands, the checksum of the command stream and how
+	 * fast the replay ran.
+	 *
+	 * @param args
+	 *            the recording, optionally followed by the path to follow
+	 *            (the recording itself by default), the speed factor (0, as
+	 *            fast as possible, by default), a file to write the command
+	 *            stream to or -, the tracking and the number of runs
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: Replay <recording> [path] [speed]"
+					+ " [commands|-] [tracking] [runs]");
+			System.exit(1);
+		}
+		String pathFile = args.length > 1 ? args[1] : args[0];
+		double speed = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+		String commandFile = args.length > 3 && !args[3].equals("-") ? args[3]
+				: null;
+		Tracking tracking = args.length > 4 ? Tracking.valueOf(args[4])
+				: Tracking.CARROT;
+		int runs = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+		try {
+			Path log = PathLoader.read(new File(args[0]));
+			long ticks = 0;
+			long start = System.nanoTime();
+			ReplayLink link = null;
+			for (int i = 0; i < runs; i++) {
+				link = run(log, pathFile, RobotController.DEFAULT_RATE, speed,
+						tracking);
+				ticks += link.getCommands();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (commandFile != null) {
+				link.writeCommands(new File(commandFile));
+			}
+			System.out.println(link.getCommands() + " commands, checksum "
+					+ Long.toHexString(link.checksum()));
+			System.out.println(runs + " runs, " + ticks + " ticks in "
+					+ elapsed / 1000000 + " ms, " + Math.round(ticks * 6e10
+					/ elapsed) + " ticks per minute");
+		} catch (Exception e) {
+			System.err.println("An error has occurred with message:"
+					+ e.getMessage());
+		}
+	}
+}
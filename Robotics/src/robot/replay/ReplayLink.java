@@ -0,0 +1,230 @@
+package robot.replay;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import robot.comm.DriveCommand;
+import robot.comm.RobotLink;
+import robot.control.Clock;
+import robot.path.Path;
+import robot.record.Recording;
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+import suppliedFiles.Request;
+import suppliedFiles.Response;
+
+/**
+ * ReplayLink class A RobotLink that plays back a recorded session. Every
+ * request for the pose or the laser echoes is answered with the record that
+ * was current at that time of the recording, where the time is taken from a
+ * clock that started with the first record. On a VirtualClock the same
+ * controller and the same recording therefore always see the same inputs.
+ * Recordings made by Recorder have a scan for every record. Paths such as
+ * log.json have none, and then every beam is answered without an echo.
+ *
+ * The drive commands are not applied to anything, the replay is open loop,
+ * but every command is kept with the time it was sent so that the command
+ * streams of two runs can be written out and compared.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ReplayLink implements RobotLink {
+
+	private static final int NO_CONTENT = 204;
+	private static final int INITIAL_CAPACITY = 4096;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final Path log;
+	private final Recording recording;
+	private final Clock clock;
+	private final long startTime;
+	private final long firstTimestamp;
+	private final long lastTimestamp;
+	private final double[] scan;
+	private long[] times = new long[INITIAL_CAPACITY];
+	private double[] linear = new double[INITIAL_CAPACITY];
+	private double[] angular = new double[INITIAL_CAPACITY];
+	private int commands;
+
+	/**
+	 * Constructor for ReplayLink. The replay starts now on the clock.
+	 *
+	 * @param log
+	 *            the recorded poses, a Recording for poses and scans
+	 * @param clock
+	 *            the clock the controller runs on
+	 * @param beams
+	 *            number of laser beams to answer with
+	 */
+	public ReplayLink(Path log, Clock clock, int beams) {
+		if (log.size() == 0) {
+			throw new IllegalArgumentException("Nothing to replay");
+		}
+		this.log = log;
+		this.recording = log instanceof Recording ? (Recording) log : null;
+		this.clock = clock;
+		scan = new double[beams];
+		startTime = clock.nanoTime();
+		firstTimestamp = log.getTimestamp(0);
+		lastTimestamp = log.getTimestamp(log.size() - 1);
+	}
+
+	/**
+	 * Keeps a drive command. A DriveCommand is read through its getters, any
+	 * other request through its data map.
+	 *
+	 * @param r
+	 *            the drive request
+	 * @return 204 as the web server answers drive commands
+	 * @throws IllegalArgumentException
+	 *             if the request is not a drive request
+	 */
+	@Override
+	public synchronized int putRequest(Request r) {
+		if (!DriveCommand.PATH.equals(r.getPath())) {
+			throw new IllegalArgumentException("Unsupported request "
+					+ r.getPath());
+		}
+		if (commands == times.length) {
+			int capacity = commands * 2;
+			times = Arrays.copyOf(times, capacity);
+			linear = Arrays.copyOf(linear, capacity);
+			angular = Arrays.copyOf(angular, capacity);
+		}
+		times[commands] = clock.nanoTime() - startTime;
+		if (r instanceof DriveCommand) {
+			DriveCommand command = (DriveCommand) r;
+			linear[commands] = command.getLinearSpeed();
+			angular[commands] = command.getAngularSpeed();
+		} else {
+			Map<String, Object> data = r.getData();
+			linear[commands] = number(data.get("TargetLinearSpeed"));
+			angular[commands] = number(data.get("TargetAngularSpeed"));
+		}
+		commands++;
+		return NO_CONTENT;
+	}
+
+	/**
+	 * Fills in a localization or laser response from the record that was
+	 * current at this time of the recording.
+	 *
+	 * @param r
+	 *            response to fill in
+	 * @return response same as parameter
+	 * @throws EOFException
+	 *             once the clock has passed the last record
+	 * @throws IllegalArgumentException
+	 *             if the response is of another kind
+	 */
+	@Override
+	public Response getResponse(Response r) throws EOFException {
+		long time = firstTimestamp + (clock.nanoTime() - startTime) / 1000000;
+		if (time > lastTimestamp) {
+			throw new EOFException("End of the recording");
+		}
+		int i = indexAt(time);
+		if (r instanceof LocalizationResponse) {
+			((LocalizationResponse) r).setPose(log.getX(i), log.getY(i),
+					log.getHeading(i), log.getTimestamp(i));
+		} else if (r instanceof LaserEchoesResponse) {
+			synchronized (scan) {
+				if (recording != null) {
+					recording.getRanges(i, scan);
+				}
+				((LaserEchoesResponse) r).setEchoes(scan, scan.length,
+						log.getTimestamp(i));
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported response "
+					+ r.getPath());
+		}
+		return r;
+	}
+
+	/**
+	 * Nothing to release for a replay.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * @return number of drive commands sent so far
+	 */
+	public synchronized int getCommands() {
+		return commands;
+	}
+
+	/**
+	 * Calculates a 64 bit FNV-1a hash of the command stream, times and
+	 * speeds bit for bit, so two runs can be compared without writing them
+	 * out.
+	 *
+	 * @return the hash
+	 */
+	public synchronized long checksum() {
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < commands; i++) {
+			hash = (hash ^ times[i]) * FNV_PRIME;
+			hash = (hash ^ Double.doubleToLongBits(linear[i])) * FNV_PRIME;
+			hash = (hash ^ Double.doubleToLongBits(angular[i])) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes the command stream as text, one command per line with the time
+	 * in nanoseconds since the replay started and the linear and angular
+	 * speed. Doubles are written with Double.toString, which reads back to
+	 * the same value, so two files only differ if the runs did.
+	 *
+	 * @param file
+	 *            the file to write
+	 * @throws IOException
+	 */
+	public synchronized void writeCommands(File file) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			for (int i = 0; i < commands; i++) {
+				out.write(Long.toString(times[i]));
+				out.write(' ');
+				out.write(Double.toString(linear[i]));
+				out.write(' ');
+				out.write(Double.toString(angular[i]));
+				out.newLine();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return index of the last record at or before the time
+	 */
+	private int indexAt(long time) {
+		int low = 0;
+		int high = log.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (log.getTimestamp(mid) <= time) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private static double number(Object value) {
+		return value instanceof Number ? ((Number) value).doubleValue() : 0;
+	}
+}
@@ -0,0 +1,241 @@
+package robot.sim;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+import robot.path.Path;
+
+/**
+ * ObstacleMap class A simple 2D world made of wall segments, used by the
+ * simulator for laser ray casting and collision checks. Maps can be built in
+ * code or read from a text file with one obstacle per line:
+ *
+ * <pre>
+ * # comment
+ * wall x1 y1 x2 y2
+ * box  x1 y1 x2 y2
+ * </pre>
+ *
+ * A box is an axis aligned rectangle given by two corners.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class ObstacleMap {
+
+	private double[] segments = new double[64];
+	private int count;
+
+	/**
+	 * Adds a wall segment.
+	 *
+	 * @param x1
+	 *            x coordinate of the first end
+	 * @param y1
+	 *            y coordinate of the first end
+	 * @param x2
+	 *            x coordinate of the second end
+	 * @param y2
+	 *            y coordinate of the second end
+	 */
+	public void addWall(double x1, double y1, double x2, double y2) {
+		if (segments.length < (count + 1) * 4) {
+			segments = Arrays.copyOf(segments, segments.length * 2);
+		}
+		segments[count * 4] = x1;
+		segments[count * 4 + 1] = y1;
+		segments[count * 4 + 2] = x2;
+		segments[count * 4 + 3] = y2;
+		count++;
+	}
+
+	/**
+	 * Adds an axis aligned box as four walls.
+	 *
+	 * @param x1
+	 *            x coordinate of one corner
+	 * @param y1
+	 *            y coordinate of one corner
+	 * @param x2
+	 *            x coordinate of the opposite corner
+	 * @param y2
+	 *            y coordinate of the opposite corner
+	 */
+	public void addBox(double x1, double y1, double x2, double y2) {
+		addWall(x1, y1, x2, y1);
+		addWall(x2, y1, x2, y2);
+		addWall(x2, y2, x1, y2);
+		addWall(x1, y2, x1, y1);
+	}
+
+	/**
+	 * @return number of wall segments
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Gives the smallest axis aligned box that holds all walls.
+	 *
+	 * @param bounds
+	 *            at least four values, filled with the smallest x and y and
+	 *            the largest x and y, or all zero if there are no walls
+	 */
+	public void getBounds(double[] bounds) {
+		if (count == 0) {
+			Arrays.fill(bounds, 0, 4, 0);
+			return;
+		}
+		bounds[0] = bounds[1] = Double.POSITIVE_INFINITY;
+		bounds[2] = bounds[3] = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < count * 4; i += 2) {
+			bounds[0] = Math.min(bounds[0], segments[i]);
+			bounds[1] = Math.min(bounds[1], segments[i + 1]);
+			bounds[2] = Math.max(bounds[2], segments[i]);
+			bounds[3] = Math.max(bounds[3], segments[i + 1]);
+		}
+	}
+
+	/**
+	 * Casts a ray and returns the distance to the first wall it hits.
+	 *
+	 * @param x
+	 *            x coordinate of the ray origin
+	 * @param y
+	 *            y coordinate of the ray origin
+	 * @param angle
+	 *            direction of the ray in radians
+	 * @param maxRange
+	 *            distance returned if nothing is hit
+	 * @return distance to the closest hit or maxRange
+	 */
+	public double castRay(double x, double y, double angle, double maxRange) {
+		double dx = Math.cos(angle);
+		double dy = Math.sin(angle);
+		double best = maxRange;
+		for (int i = 0; i < count * 4; i += 4) {
+			double ex = segments[i + 2] - segments[i];
+			double ey = segments[i + 3] - segments[i + 1];
+			double denom = dx * ey - dy * ex;
+			if (denom == 0) {
+				continue;
+			}
+			double wx = segments[i] - x;
+			double wy = segments[i + 1] - y;
+			double t = (wx * ey - wy * ex) / denom;
+			double u = (wx * dy - wy * dx) / denom;
+			if (t >= 0 && t < best && u >= 0 && u <= 1) {
+				best = t;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Calculates the distance from a point to the closest wall.
+	 *
+	 * @param x
+	 *            x coordinate of the point
+	 * @param y
+	 *            y coordinate of the point
+	 * @return the distance or infinity if there are no walls
+	 */
+	public double distanceTo(double x, double y) {
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < count * 4; i += 4) {
+			double ex = segments[i + 2] - segments[i];
+			double ey = segments[i + 3] - segments[i + 1];
+			double wx = x - segments[i];
+			double wy = y - segments[i + 1];
+			double lengthSq = ex * ex + ey * ey;
+			double t = lengthSq == 0 ? 0 : Math.max(0,
+					Math.min(1, (wx * ex + wy * ey) / lengthSq));
+			double px = wx - t * ex;
+			double py = wy - t * ey;
+			best = Math.min(best, Math.sqrt(px * px + py * py));
+		}
+		return best;
+	}
+
+	/**
+	 * Creates an empty room that encloses a path, or a 10 by 10 meter room
+	 * around the origin if the path is empty.
+	 *
+	 * @param path
+	 *            the path the room should hold
+	 * @param margin
+	 *            distance from the path to the walls
+	 * @return the map
+	 */
+	public static ObstacleMap room(Path path, double margin) {
+		double minX = -5, minY = -5, maxX = 5, maxY = 5;
+		if (path.size() > 0) {
+			minX = minY = Double.POSITIVE_INFINITY;
+			maxX = maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < path.size(); i++) {
+				minX = Math.min(minX, path.getX(i));
+				minY = Math.min(minY, path.getY(i));
+				maxX = Math.max(maxX, path.getX(i));
+				maxY = Math.max(maxY, path.getY(i));
+			}
+		}
+		ObstacleMap map = new ObstacleMap();
+		map.addBox(minX - margin, minY - margin, maxX + margin, maxY + margin);
+		return map;
+	}
+
+	/**
+	 * Reads a map file.
+	 *
+	 * @param file
+	 *            the map file
+	 * @return the map
+	 * @throws IOException
+	 *             if the file can not be read or has a bad line
+	 */
+	public static ObstacleMap read(File file) throws IOException {
+		ObstacleMap map = new ObstacleMap();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] parts = line.split("\\s+");
+				if (parts.length != 5) {
+					throw new IOException(file + ":" + lineNumber
+							+ ": expected 'wall|box x1 y1 x2 y2'");
+				}
+				double[] v = new double[4];
+				try {
+					for (int i = 0; i < 4; i++) {
+						v[i] = Double.parseDouble(parts[i + 1]);
+					}
+				} catch (NumberFormatException e) {
+					throw new IOException(file + ":" + lineNumber + ": "
+							+ e.getMessage());
+				}
+				if (parts[0].equals("wall")) {
+					map.addWall(v[0], v[1], v[2], v[3]);
+				} else if (parts[0].equals("box")) {
+					map.addBox(v[0], v[1], v[2], v[3]);
+				} else {
+					throw new IOException(file + ":" + lineNumber
+							+ ": unknown obstacle " + parts[0]);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return map;
+	}
+}
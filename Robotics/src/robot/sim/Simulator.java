@@ -0,0 +1,220 @@
+package robot.sim;
+
+import java.util.Random;
+
+/**
+ * Simulator class A simulated differential drive robot with a laser scanner
+ * in an ObstacleMap. The robot follows the last drive command with unicycle
+ * kinematics, integrated exactly over fixed sub-steps, and stops instead of
+ * driving through a wall. The laser has the same geometry as the Robulab
+ * scanner used through Lokarria: 271 beams one degree apart from -135 to
+ * +135 degrees, so beam 135 points straight ahead.
+ *
+ * Time only moves when advanceTo is called, which lets the simulator run in
+ * real time behind a web server or as fast as possible on a virtual clock.
+ * All methods are synchronized so the server threads can share one
+ * simulator.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Simulator {
+
+	public static final int BEAMS = 271;
+	public static final double BEAM_STEP = Math.toRadians(1);
+	public static final double FIRST_BEAM = -Math.toRadians(135);
+	public static final double MAX_RANGE = 20;
+	public static final double ROBOT_RADIUS = 0.25;
+	public static final double MAX_LINEAR_SPEED = 1.5;
+	public static final double MAX_ANGULAR_SPEED = 3;
+	private static final long STEP_NANOS = 5000000;
+
+	private final ObstacleMap map;
+	private final Random random;
+	private double laserNoise;
+	private double x;
+	private double y;
+	private double heading;
+	private double linearSpeed;
+	private double angularSpeed;
+	private long time;
+	private long collisions;
+	private boolean blocked;
+
+	/**
+	 * Constructor for Simulator. The robot starts at the origin facing along
+	 * the x-axis.
+	 *
+	 * @param map
+	 *            the obstacles of the world
+	 * @param seed
+	 *            seed for the sensor noise
+	 */
+	public Simulator(ObstacleMap map, long seed) {
+		this.map = map;
+		random = new Random(seed);
+	}
+
+	/**
+	 * Places the robot and stops it.
+	 *
+	 * @param x
+	 *            x coordinate
+	 * @param y
+	 *            y coordinate
+	 * @param heading
+	 *            heading in radians
+	 */
+	public synchronized void setPose(double x, double y, double heading) {
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		linearSpeed = 0;
+		angularSpeed = 0;
+	}
+
+	/**
+	 * @param sigma
+	 *            standard deviation of the Gaussian noise added to every
+	 *            echo, 0 for exact echoes
+	 */
+	public synchronized void setLaserNoise(double sigma) {
+		laserNoise = sigma;
+	}
+
+	/**
+	 * Sets the drive command the robot follows from now on. The speeds are
+	 * limited to what the robot can do.
+	 *
+	 * @param linear
+	 *            linear speed in m/s
+	 * @param angular
+	 *            angular speed in rad/s, positive turns left
+	 */
+	public synchronized void setCommand(double linear, double angular) {
+		linearSpeed = clamp(linear, MAX_LINEAR_SPEED);
+		angularSpeed = clamp(angular, MAX_ANGULAR_SPEED);
+	}
+
+	/**
+	 * Moves the simulation forward to the given time. Calls with a time
+	 * earlier than the current one do nothing.
+	 *
+	 * @param nanos
+	 *            simulation time in nanoseconds
+	 */
+	public synchronized void advanceTo(long nanos) {
+		while (time < nanos) {
+			long step = Math.min(STEP_NANOS, nanos - time);
+			integrate(step / 1e9);
+			time += step;
+		}
+	}
+
+	/**
+	 * @return simulation time in nanoseconds
+	 */
+	public synchronized long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return simulation time in milliseconds, as in the Timestamp field of
+	 *         Lokarria responses
+	 */
+	public synchronized long getTimestamp() {
+		return time / 1000000;
+	}
+
+	public synchronized double getX() {
+		return x;
+	}
+
+	public synchronized double getY() {
+		return y;
+	}
+
+	public synchronized double getHeading() {
+		return heading;
+	}
+
+	public synchronized double getLinearSpeed() {
+		return linearSpeed;
+	}
+
+	public synchronized double getAngularSpeed() {
+		return angularSpeed;
+	}
+
+	/**
+	 * @return number of times the robot has been stopped by a wall
+	 */
+	public synchronized long getCollisions() {
+		return collisions;
+	}
+
+	/**
+	 * @return distance from the robot center to the closest wall
+	 */
+	public synchronized double getClearance() {
+		return map.distanceTo(x, y);
+	}
+
+	/**
+	 * Makes a laser scan from the current pose.
+	 *
+	 * @param echoes
+	 *            array of at least BEAMS elements to fill with distances
+	 */
+	public synchronized void scan(double[] echoes) {
+		for (int i = 0; i < BEAMS; i++) {
+			double range = map.castRay(x, y, heading + FIRST_BEAM + i
+					* BEAM_STEP, MAX_RANGE);
+			if (laserNoise > 0) {
+				range = Math.max(0, Math.min(MAX_RANGE, range
+						+ random.nextGaussian() * laserNoise));
+			}
+			echoes[i] = range;
+		}
+	}
+
+	/**
+	 * Integrates the unicycle model exactly for a constant command.
+	 */
+	private void integrate(double dt) {
+		double v = linearSpeed;
+		double w = angularSpeed;
+		double nextHeading = heading + w * dt;
+		double nextX;
+		double nextY;
+		if (Math.abs(w) < 1e-9) {
+			nextX = x + v * Math.cos(heading) * dt;
+			nextY = y + v * Math.sin(heading) * dt;
+		} else {
+			nextX = x + v / w * (Math.sin(nextHeading) - Math.sin(heading));
+			nextY = y - v / w * (Math.cos(nextHeading) - Math.cos(heading));
+		}
+
+		// Turning on the spot is always allowed, moving into a wall is not.
+		if (v != 0 && map.distanceTo(nextX, nextY) < ROBOT_RADIUS
+				&& map.distanceTo(nextX, nextY) < map.distanceTo(x, y)) {
+			if (!blocked) {
+				collisions++;
+				blocked = true;
+			}
+		} else {
+			x = nextX;
+			y = nextY;
+			blocked = false;
+		}
+		heading = Math.atan2(Math.sin(nextHeading), Math.cos(nextHeading));
+	}
+
+	private static double clamp(double value, double max) {
+		if (Double.isNaN(value)) {
+			return 0;
+		}
+		return Math.max(-max, Math.min(max, value));
+	}
+}
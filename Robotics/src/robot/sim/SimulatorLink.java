@@ -0,0 +1,139 @@
+package robot.sim;
+
+import java.util.Map;
+
+import robot.comm.DriveCommand;
+import robot.comm.RobotLink;
+import robot.control.Clock;
+import suppliedFiles.LaserEchoesResponse;
+import suppliedFiles.LocalizationResponse;
+import suppliedFiles.Request;
+import suppliedFiles.Response;
+
+/**
+ * SimulatorLink class A RobotLink to a Simulator in the same JVM. Poses,
+ * scans and drive commands are handed over as typed values, so there is no
+ * HTTP and no JSON on the way and the controller runs the same code as
+ * against the real robot. The simulator is moved forward to the current
+ * simulation time on every call, the same way as SimulatorServer does.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class SimulatorLink implements RobotLink {
+
+	private static final int NO_CONTENT = 204;
+
+	private final Simulator simulator;
+	private final Clock clock;
+	private final double speedFactor;
+	private final long startTime;
+	private final double[] scan = new double[Simulator.BEAMS];
+
+	/**
+	 * Constructor for SimulatorLink. Simulation time starts now.
+	 *
+	 * @param simulator
+	 *            the simulated robot
+	 * @param clock
+	 *            the clock driving the simulation
+	 * @param speedFactor
+	 *            simulated seconds per clock second
+	 */
+	public SimulatorLink(Simulator simulator, Clock clock, double speedFactor) {
+		if (!(speedFactor > 0)) {
+			throw new IllegalArgumentException("Speed factor must be positive");
+		}
+		this.simulator = simulator;
+		this.clock = clock;
+		this.speedFactor = speedFactor;
+		startTime = clock.nanoTime();
+	}
+
+	/**
+	 * @return the simulated robot
+	 */
+	public Simulator getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * Applies a drive command. A DriveCommand is read through its getters,
+	 * any other request through its data map.
+	 *
+	 * @param r
+	 *            the drive request
+	 * @return 204 as the web server answers drive commands
+	 * @throws IllegalArgumentException
+	 *             if the request is not a drive request
+	 */
+	@Override
+	public int putRequest(Request r) {
+		if (!DriveCommand.PATH.equals(r.getPath())) {
+			throw new IllegalArgumentException("Unsupported request "
+					+ r.getPath());
+		}
+		advance();
+		if (r instanceof DriveCommand) {
+			DriveCommand command = (DriveCommand) r;
+			simulator.setCommand(command.getLinearSpeed(),
+					command.getAngularSpeed());
+		} else {
+			Map<String, Object> data = r.getData();
+			simulator.setCommand(number(data.get("TargetLinearSpeed")),
+					number(data.get("TargetAngularSpeed")));
+		}
+		return NO_CONTENT;
+	}
+
+	/**
+	 * Fills in a localization or laser response from the simulator.
+	 *
+	 * @param r
+	 *            response to fill in
+	 * @return response same as parameter
+	 * @throws IllegalArgumentException
+	 *             if the response is of another kind
+	 */
+	@Override
+	public Response getResponse(Response r) {
+		advance();
+		if (r instanceof LocalizationResponse) {
+			synchronized (simulator) {
+				((LocalizationResponse) r).setPose(simulator.getX(),
+						simulator.getY(), simulator.getHeading(),
+						simulator.getTimestamp());
+			}
+		} else if (r instanceof LaserEchoesResponse) {
+			synchronized (scan) {
+				long timestamp;
+				synchronized (simulator) {
+					simulator.scan(scan);
+					timestamp = simulator.getTimestamp();
+				}
+				((LaserEchoesResponse) r).setEchoes(scan, scan.length,
+						timestamp);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported response "
+					+ r.getPath());
+		}
+		return r;
+	}
+
+	/**
+	 * Nothing to release for an in-process link.
+	 */
+	@Override
+	public void close() {
+	}
+
+	private void advance() {
+		simulator.advanceTo((long) ((clock.nanoTime() - startTime) * speedFactor));
+	}
+
+	private static double number(Object value) {
+		return value instanceof Number ? ((Number) value).doubleValue() : 0;
+	}
+}
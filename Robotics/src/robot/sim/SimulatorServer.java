@@ -0,0 +1,278 @@
+package robot.sim;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import robot.control.Clock;
+import robot.control.SystemClock;
+import robot.path.Path;
+import robot.path.PathLoader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * SimulatorServer class A local stand-in for the MRDS/Lokarria web server
+ * backed by a Simulator, so the controller can be run offline. It serves
+ * /lokarria/localization, /lokarria/laser/echoes and
+ * /lokarria/differentialdrive with the same JSON shapes as the real server.
+ *
+ * Simulation time is the time of the clock since start multiplied by a speed
+ * factor, so a factor of 1 runs in real time and larger factors run faster
+ * than real time. The simulator is moved forward whenever a request arrives.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class SimulatorServer {
+
+	public static final int DEFAULT_PORT = 50000;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	public static final double ROOM_MARGIN = 1.5;
+
+	private final Simulator simulator;
+	private final Clock clock;
+	private final double speedFactor;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private long startTime;
+
+	/**
+	 * Constructor for SimulatorServer. The server listens on the loopback
+	 * interface once start is called.
+	 *
+	 * @param simulator
+	 *            the simulated robot
+	 * @param port
+	 *            port to listen on, 0 picks a free port
+	 * @param clock
+	 *            the clock driving the simulation
+	 * @param speedFactor
+	 *            simulated seconds per clock second
+	 * @throws IOException
+	 */
+	public SimulatorServer(Simulator simulator, int port, Clock clock,
+			double speedFactor) throws IOException {
+		if (!(speedFactor > 0)) {
+			throw new IllegalArgumentException("Speed factor must be positive");
+		}
+		this.simulator = simulator;
+		this.clock = clock;
+		this.speedFactor = speedFactor;
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", port),
+				0);
+		executor = Executors.newFixedThreadPool(4);
+		server.setExecutor(executor);
+		server.createContext("/lokarria/localization", new Handler() {
+			@Override
+			byte[] reply(byte[] request) {
+				return localizationJson(SimulatorServer.this.simulator)
+						.getBytes(UTF8);
+			}
+		});
+		server.createContext("/lokarria/laser/echoes", new Handler() {
+			@Override
+			byte[] reply(byte[] request) {
+				return laserJson(SimulatorServer.this.simulator).getBytes(UTF8);
+			}
+		});
+		server.createContext("/lokarria/differentialdrive", new Handler() {
+			@Override
+			byte[] reply(byte[] request) throws IOException {
+				Map<?, ?> data = mapper.readValue(request, Map.class);
+				SimulatorServer.this.simulator.setCommand(
+						number(data.get("TargetLinearSpeed")),
+						number(data.get("TargetAngularSpeed")));
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Starts the simulation clock and answers requests.
+	 */
+	public void start() {
+		startTime = clock.nanoTime();
+		server.start();
+	}
+
+	/**
+	 * Stops the server and its worker threads.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the simulated robot
+	 */
+	public Simulator getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * Moves the simulator to the current simulation time.
+	 */
+	private void advance() {
+		simulator.advanceTo((long) ((clock.nanoTime() - startTime) * speedFactor));
+	}
+
+	/**
+	 * Builds a localization reply for the current pose of the simulator. The
+	 * heading is written as a quaternion rotating about the z-axis.
+	 *
+	 * @param simulator
+	 *            the simulated robot
+	 * @return the JSON reply
+	 */
+	public static String localizationJson(Simulator simulator) {
+		synchronized (simulator) {
+			double half = simulator.getHeading() / 2;
+			return "{\"Pose\":{\"Orientation\":{\"W\":" + Math.cos(half)
+					+ ",\"X\":0.0,\"Y\":0.0,\"Z\":" + Math.sin(half)
+					+ "},\"Position\":{\"X\":" + simulator.getX() + ",\"Y\":"
+					+ simulator.getY() + ",\"Z\":0.0}},\"Status\":4,"
+					+ "\"Timestamp\":" + simulator.getTimestamp() + "}";
+		}
+	}
+
+	/**
+	 * Builds a laser reply from a fresh scan of the simulator.
+	 *
+	 * @param simulator
+	 *            the simulated robot
+	 * @return the JSON reply
+	 */
+	public static String laserJson(Simulator simulator) {
+		double[] echoes = new double[Simulator.BEAMS];
+		long timestamp;
+		synchronized (simulator) {
+			simulator.scan(echoes);
+			timestamp = simulator.getTimestamp();
+		}
+		StringBuilder sb = new StringBuilder(Simulator.BEAMS * 8 + 32);
+		sb.append("{\"Echoes\":[");
+		for (int i = 0; i < echoes.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append((float) echoes[i]);
+		}
+		return sb.append("],\"Timestamp\":").append(timestamp).append('}')
+				.toString();
+	}
+
+	private static double number(Object value) {
+		return value instanceof Number ? ((Number) value).doubleValue() : 0;
+	}
+
+	/**
+	 * Handler that moves the simulation forward, reads the request body and
+	 * answers with the reply from the subclass, or 204 when there is none.
+	 */
+	private abstract class Handler implements HttpHandler {
+
+		abstract byte[] reply(byte[] request) throws IOException;
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				InputStream in = exchange.getRequestBody();
+				byte[] request = new byte[512];
+				int length = 0;
+				int read;
+				while ((read = in.read(request, length, request.length
+						- length)) != -1) {
+					length += read;
+					if (length == request.length) {
+						request = Arrays.copyOf(request,
+								length * 2);
+					}
+				}
+				in.close();
+
+				advance();
+				byte[] body = reply(Arrays.copyOf(request, length));
+				exchange.getResponseHeaders().set("Content-Type",
+						"application/json");
+				if (body == null) {
+					exchange.sendResponseHeaders(204, -1);
+				} else {
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				}
+			} catch (IOException e) {
+				exchange.sendResponseHeaders(400, -1);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Starts a simulator server. Without a map the robot is put in an empty
+	 * room around the path, or around the origin when no path is given.
+	 *
+	 * @param args
+	 *            [port] [speed factor] [map file or -] [path file giving the
+	 *            start pose]
+	 */
+	public static void main(String[] args) {
+		try {
+			int port = args.length > 0 ? Integer.parseInt(args[0])
+					: DEFAULT_PORT;
+			double speedFactor = args.length > 1 ? Double
+					.parseDouble(args[1]) : 1;
+			Path path = args.length > 3 ? PathLoader.read(new File(args[3]))
+					: null;
+
+			ObstacleMap map;
+			if (args.length > 2 && !args[2].equals("-")) {
+				map = ObstacleMap.read(new File(args[2]));
+			} else if (path != null) {
+				map = ObstacleMap.room(path, ROOM_MARGIN);
+			} else {
+				map = new ObstacleMap();
+				map.addBox(-5, -5, 5, 5);
+			}
+
+			Simulator simulator = new Simulator(map, 1);
+			if (path != null && path.size() > 0) {
+				simulator.setPose(path.getX(0), path.getY(0),
+						path.getHeading(0));
+			}
+			SimulatorServer server = new SimulatorServer(simulator, port,
+					SystemClock.INSTANCE, speedFactor);
+			server.start();
+			System.out.println("Simulator listening on port "
+					+ server.getPort() + " with " + map.size()
+					+ " walls at " + speedFactor + "x real time");
+		} catch (Exception e) {
+			System.err.println("An error has occurred with message:"
+					+ e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package robot.track;
+
+import robot.Pose;
+import robot.comm.DriveCommand;
+import robot.path.Path;
+import robot.path.SpeedProfile;
+
+/**
+ * PathTracker class Base for controllers that follow a path by distance along
+ * it. The cumulative distances of the speed profile are used for everything,
+ * so a point some distance ahead is found with a binary search and a linear
+ * interpolation instead of stepping through waypoints with distance and
+ * bearing calculations. The progress of the robot only moves forward, and is
+ * found by projecting the robot onto the path in a window of SEARCH_AHEAD
+ * metres past the last progress.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public abstract class PathTracker {
+
+	private static final double SEARCH_AHEAD = 2;
+	protected final Path path;
+	protected final SpeedProfile profile;
+	protected final double maxAngularSpeed;
+	private int index;
+	private double progress;
+	private double crossTrack;
+
+	/**
+	 * Constructor for PathTracker.
+	 *
+	 * @param path
+	 *            the path to follow
+	 * @param profile
+	 *            the speed profile of the path
+	 * @param maxAngularSpeed
+	 *            largest turn rate to command in rad/s
+	 */
+	protected PathTracker(Path path, SpeedProfile profile,
+			double maxAngularSpeed) {
+		if (profile.size() != path.size()) {
+			throw new IllegalArgumentException("Profile of another path");
+		}
+		this.path = path;
+		this.profile = profile;
+		this.maxAngularSpeed = maxAngularSpeed;
+	}
+
+	/**
+	 * Starts over from the first waypoint.
+	 */
+	public void reset() {
+		seek(0);
+	}
+
+	/**
+	 * Moves the progress to a waypoint, for example where a detour rejoined
+	 * the path.
+	 *
+	 * @param i
+	 *            waypoint index
+	 */
+	public void seek(int i) {
+		index = i;
+		progress = profile.getDistance(i);
+		crossTrack = 0;
+	}
+
+	/**
+	 * Updates the progress along the path and fills in the command that
+	 * follows it.
+	 *
+	 * @param pose
+	 *            current pose of the robot
+	 * @param command
+	 *            command to fill in with the move
+	 */
+	public void steer(Pose pose, DriveCommand command) {
+		locate(pose.getX(), pose.getY());
+		control(pose, command);
+		double angular = command.getAngularSpeed();
+		if (Math.abs(angular) > maxAngularSpeed) {
+			command.setAngularSpeed(Math.copySign(maxAngularSpeed, angular));
+		}
+	}
+
+	/**
+	 * Fills in the command for the current pose. The progress, cross-track
+	 * error and waypoint index have been updated before this is called.
+	 *
+	 * @param pose
+	 *            current pose of the robot
+	 * @param command
+	 *            command to fill in with the move
+	 */
+	protected abstract void control(Pose pose, DriveCommand command);
+
+	/**
+	 * @return index of the waypoint at or just before the robot
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return distance along the path to the point closest to the robot
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	/**
+	 * @return distance from the path, positive when the robot is to the
+	 *         left of it
+	 */
+	public double getCrossTrack() {
+		return crossTrack;
+	}
+
+	/**
+	 * Finds the point at a distance along the path.
+	 *
+	 * @param s
+	 *            distance along the path, clamped to the ends
+	 * @param point
+	 *            filled with x and y of the point
+	 */
+	protected void pointAt(double s, double[] point) {
+		int i = profile.indexAt(s);
+		if (i >= path.size() - 1) {
+			point[0] = path.getX(i);
+			point[1] = path.getY(i);
+			return;
+		}
+		double start = profile.getDistance(i);
+		double length = profile.getDistance(i + 1) - start;
+		double t = length > 0 ? Math.max(0, (s - start) / length) : 0;
+		point[0] = path.getX(i) + t * (path.getX(i + 1) - path.getX(i));
+		point[1] = path.getY(i) + t * (path.getY(i + 1) - path.getY(i));
+	}
+
+	/**
+	 * Projects the robot onto the segments from the current index up to
+	 * SEARCH_AHEAD further along the path and keeps the closest projection.
+	 */
+	private void locate(double x, double y) {
+		int last = Math.min(profile.indexAt(progress + SEARCH_AHEAD),
+				path.size() - 2);
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = index; i <= last; i++) {
+			double ax = path.getX(i);
+			double ay = path.getY(i);
+			double dx = path.getX(i + 1) - ax;
+			double dy = path.getY(i + 1) - ay;
+			double px = x - ax;
+			double py = y - ay;
+			double lengthSq = dx * dx + dy * dy;
+			double t = lengthSq > 0 ? (px * dx + py * dy) / lengthSq : 0;
+			t = Math.max(0, Math.min(1, t));
+			double ex = px - t * dx;
+			double ey = py - t * dy;
+			double d = ex * ex + ey * ey;
+			if (d < best) {
+				best = d;
+				double s = profile.getDistance(i) + t
+						* (profile.getDistance(i + 1) - profile.getDistance(i));
+				if (s >= progress) {
+					progress = s;
+					index = t < 1 ? i : i + 1;
+				}
+				double length = Math.sqrt(lengthSq);
+				crossTrack = length > 0 ? (dx * py - dy * px) / length : 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package robot.track;
+
+import robot.Pose;
+import robot.comm.DriveCommand;
+import robot.path.Path;
+import robot.path.SpeedProfile;
+
+/**
+ * PurePursuit class Follows a path by driving along the circle arc through
+ * the robot and a lookahead point on the path. The lookahead distance grows
+ * with the speed from the profile, so the robot looks further ahead on
+ * straights and turns tighter in curves. The arc curvature is 2 sin(alpha) /
+ * L, where alpha is the angle to the lookahead point, and the sine comes
+ * from a cross product so no atan2 is needed.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class PurePursuit extends PathTracker {
+
+	private final double minLookahead;
+	private final double lookaheadTime;
+	private final double maxLookahead;
+	private final double[] point = new double[2];
+
+	/**
+	 * Constructor for PurePursuit.
+	 *
+	 * @param path
+	 *            the path to follow
+	 * @param profile
+	 *            the speed profile of the path
+	 * @param minLookahead
+	 *            lookahead distance when standing still
+	 * @param lookaheadTime
+	 *            seconds of driving added to the lookahead distance
+	 * @param maxLookahead
+	 *            largest lookahead distance
+	 * @param maxAngularSpeed
+	 *            largest turn rate, also used to turn on the spot when the
+	 *            lookahead point is behind the robot
+	 */
+	public PurePursuit(Path path, SpeedProfile profile, double minLookahead,
+			double lookaheadTime, double maxLookahead, double maxAngularSpeed) {
+		super(path, profile, maxAngularSpeed);
+		this.minLookahead = minLookahead;
+		this.lookaheadTime = lookaheadTime;
+		this.maxLookahead = maxLookahead;
+	}
+
+	@Override
+	protected void control(Pose pose, DriveCommand command) {
+		double lookahead = Math.min(maxLookahead, minLookahead
+				+ lookaheadTime * profile.getSpeed(getIndex()));
+		pointAt(getProgress() + lookahead, point);
+
+		double dx = point[0] - pose.getX();
+		double dy = point[1] - pose.getY();
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		if (distance == 0) {
+			command.set(0, 0);
+			return;
+		}
+		double cos = Math.cos(pose.getHeading());
+		double sin = Math.sin(pose.getHeading());
+		double ahead = (cos * dx + sin * dy) / distance;
+		double left = (cos * dy - sin * dx) / distance;
+		if (ahead < 0) {
+			command.set(0, Math.copySign(maxAngularSpeed, left));
+			return;
+		}
+		double speed = profile.getSpeed(getIndex());
+		command.set(speed, speed * 2 * left / distance);
+	}
+}
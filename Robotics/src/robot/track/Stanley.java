@@ -0,0 +1,73 @@
+package robot.track;
+
+import robot.Pose;
+import robot.comm.DriveCommand;
+import robot.path.Path;
+import robot.path.SpeedProfile;
+
+/**
+ * Stanley class Follows a path with the Stanley law, steering by the heading
+ * error to the path plus atan(k e / (v + softening)) of the cross-track error
+ * e. The robot is a differential drive, so the steering angle is turned into
+ * a turn rate with a gain, and the curvature of the path is fed forward so
+ * the robot does not have to lag behind in curves to turn.
+ *
+ * @author Magnus Stenman, dv12msn
+ * @author Christer Jakobsson, dv12cjn
+ * @version 2026-10-18
+ */
+public class Stanley extends PathTracker {
+
+	private final double gain;
+	private final double softening;
+	private final double headingGain;
+
+	/**
+	 * Constructor for Stanley.
+	 *
+	 * @param path
+	 *            the path to follow
+	 * @param profile
+	 *            the speed profile of the path
+	 * @param gain
+	 *            cross-track gain k in 1/s
+	 * @param softening
+	 *            added to the speed so the cross-track term stays bounded
+	 *            at low speed, in m/s
+	 * @param headingGain
+	 *            turn rate per radian of steering angle in 1/s
+	 * @param maxAngularSpeed
+	 *            largest turn rate in rad/s
+	 */
+	public Stanley(Path path, SpeedProfile profile, double gain,
+			double softening, double headingGain, double maxAngularSpeed) {
+		super(path, profile, maxAngularSpeed);
+		this.gain = gain;
+		this.softening = softening;
+		this.headingGain = headingGain;
+	}
+
+	@Override
+	protected void control(Pose pose, DriveCommand command) {
+		int i = Math.min(getIndex(), path.size() - 2);
+		if (i < 0) {
+			command.set(0, 0);
+			return;
+		}
+		double dx = path.getX(i + 1) - path.getX(i);
+		double dy = path.getY(i + 1) - path.getY(i);
+		double cos = Math.cos(pose.getHeading());
+		double sin = Math.sin(pose.getHeading());
+		double headingError = Math.atan2(cos * dy - sin * dx, cos * dx + sin
+				* dy);
+
+		double speed = profile.getSpeed(getIndex());
+		double steering = headingError
+				+ Math.atan(-gain * getCrossTrack() / (speed + softening));
+		// Slow down while the heading is far off, and turn on the spot when
+		// facing away from the path.
+		speed *= Math.max(0, Math.cos(steering));
+		command.set(speed, headingGain * steering + speed
+				* profile.getCurvature(getIndex()));
+	}
+}
@@ -1,6 +1,8 @@
 package suppliedFiles;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 
@@ -8,13 +10,38 @@ public class LaserEchoesResponse implements Response
 {
    private Map<String, Object> data;
 
+   // Echoes set directly by an in-process link, used while data is null
+   private double[] echoes = new double[0];
+   private int count;
+   private long timestamp;
+
    public void setData(Map<String, Object> data)
    {
       this.data = data;
    }
 
+   /**
+    * Set the echoes directly, without a JSON map. The values are copied so
+    * the caller can reuse its array.
+    * @param values distances of the echoes
+    * @param count number of echoes in values
+    * @param timestamp robot timestamp in milliseconds
+    */
+   public void setEchoes(double[] values, int count, long timestamp)
+   {
+      if (echoes.length < count)
+         echoes = new double[count];
+      System.arraycopy(values, 0, echoes, 0, count);
+      this.data = null;
+      this.count = count;
+      this.timestamp = timestamp;
+   }
+
    public double[] getEchoes()
    {
+      if (data == null)
+         return Arrays.copyOf(echoes, count);
+
       ArrayList echoes = (ArrayList)data.get("Echoes");
       
       Object[] list = echoes.toArray();
@@ -30,6 +57,29 @@ public class LaserEchoesResponse implements Response
       return result;
    }
 
+   /**
+    * Copy the echoes into an existing array without creating any objects.
+    * @param result array to fill, echoes that do not fit are left out
+    * @return number of echoes in the response
+    */
+   public int getEchoes(double[] result)
+   {
+      if (data == null)
+      {
+         System.arraycopy(echoes, 0, result, 0, Math.min(count, result.length));
+         return count;
+      }
+
+      List<?> echoes = (List<?>)data.get("Echoes");
+
+      int n = Math.min(echoes.size(), result.length);
+      for (int i = 0; i < n; i++)
+         // Integers and doubles both come out right through Number
+         result[i] = ((Number)echoes.get(i)).doubleValue();
+
+      return echoes.size();
+   }
+
    public String getPath()
    {
       return "/lokarria/laser/echoes";
@@ -37,7 +87,15 @@ public class LaserEchoesResponse implements Response
 
    public long getTimestamp()
    {
-      return (Long)data.get("TimeStamp");
+      if (data == null)
+         return timestamp;
+
+      // The robot sends "Timestamp", older logs were written with
+      // "TimeStamp". Jackson gives an Integer for small values.
+      Object value = data.get("Timestamp");
+      if (value == null)
+         value = data.get("TimeStamp");
+      return value instanceof Number ? ((Number)value).longValue() : 0;
    }
 
 }
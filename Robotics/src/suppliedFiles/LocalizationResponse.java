@@ -5,17 +5,80 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import robot.Geometry;
+
 public class LocalizationResponse implements Response
 {
    private Map<String, Object> data;
 
+   // Pose set directly by an in-process link or a ResponseDecoder, used
+   // while data is null
+   private double x;
+   private double y;
+   private double z;
+   private double heading;
+   private double qw = 1;
+   private double qx;
+   private double qy;
+   private double qz;
+   private int status = 4;
+   private long timestamp;
+
    public void setData(Map<String, Object> data)
    {
       this.data = data;
    }
 
+   /**
+    * Set the pose directly, without a JSON map. Used by links that talk to
+    * the robot inside the same JVM.
+    * @param x x coordinate
+    * @param y y coordinate
+    * @param heading heading in radians
+    * @param timestamp robot timestamp in milliseconds
+    */
+   public void setPose(double x, double y, double heading, long timestamp)
+   {
+      this.data = null;
+      this.x = x;
+      this.y = y;
+      this.z = 0;
+      this.heading = heading;
+      this.qw = Math.cos(heading / 2);
+      this.qx = 0;
+      this.qy = 0;
+      this.qz = Math.sin(heading / 2);
+      this.status = 4;
+      this.timestamp = timestamp;
+   }
+
+   /**
+    * Set the whole reply directly, without a JSON map. Used by
+    * ResponseDecoder, which reads the reply into primitive values.
+    * @param pose position x, y, z and orientation w, x, y, z
+    * @param status status of the localization
+    * @param timestamp robot timestamp in milliseconds
+    */
+   public void setPose(double[] pose, int status, long timestamp)
+   {
+      this.data = null;
+      this.x = pose[0];
+      this.y = pose[1];
+      this.z = pose[2];
+      this.qw = pose[3];
+      this.qx = pose[4];
+      this.qy = pose[5];
+      this.qz = pose[6];
+      this.heading = Geometry.heading(qw, qx, qy, qz);
+      this.status = status;
+      this.timestamp = timestamp;
+   }
+
    public double[] getOrientation()
    {
+      if (data == null)
+         return new double[] {qw, qx, qy, qz};
+
       Map<String, Object> pose = (Map<String, Object>)data.get("Pose");
       Map<String, Object> orientation = (Map<String, Object>)pose.get("Orientation");
 
@@ -29,6 +92,9 @@ public class LocalizationResponse implements Response
 
    public double[] getPosition()
    {
+      if (data == null)
+         return new double[] {x, y, z};
+
       Map<String, Object> pose = (Map<String, Object>)data.get("Pose");
       Map<String, Object> position = (Map<String, Object>)pose.get("Position");
       
@@ -39,18 +105,53 @@ public class LocalizationResponse implements Response
       return new double[] {x, y, z};
    }
 
+   public double getX()
+   {
+      if (data == null)
+         return x;
+
+      return (Double)poseMap("Position").get("X");
+   }
+
+   public double getY()
+   {
+      if (data == null)
+         return y;
+
+      return (Double)poseMap("Position").get("Y");
+   }
+
    public double getHeadingAngle()
    {
-      double e[] = getOrientation();
+      if (data == null)
+         return heading;
 
-      Quaternion q = new Quaternion(e);
-      double[] v = q.bearing();
+      Map<String, Object> orientation = poseMap("Orientation");
 
-      return Math.atan2(v[1], v[0]);
+      // Same angle as Quaternion.bearing gives, but computed directly from
+      // the elements so no Quaternion objects or arrays are created
+      return Geometry.heading((Double)orientation.get("W"),
+            (Double)orientation.get("X"), (Double)orientation.get("Y"),
+            (Double)orientation.get("Z"));
+   }
+
+   /**
+    * The part of the Pose map of the JSON reply named by key.
+    * @param key "Position" or "Orientation"
+    * @return the map of the X, Y, Z (and W) values
+    */
+   @SuppressWarnings("unchecked")
+   private Map<String, Object> poseMap(String key)
+   {
+      Map<String, Object> pose = (Map<String, Object>)data.get("Pose");
+      return (Map<String, Object>)pose.get(key);
    }
 
    public int getStatus()
    {
+      if (data == null)
+         return status;
+
       return (Integer)data.get("Status");
    }
    public String getPath()
@@ -60,7 +161,15 @@ public class LocalizationResponse implements Response
 
    public long getTimestamp()
    {
-      return (Long)data.get("TimeStamp");
+      if (data == null)
+         return timestamp;
+
+      // The robot sends "Timestamp", older logs were written with
+      // "TimeStamp". Jackson gives an Integer for small values.
+      Object value = data.get("Timestamp");
+      if (value == null)
+         value = data.get("TimeStamp");
+      return value instanceof Number ? ((Number)value).longValue() : 0;
    }
 
 }
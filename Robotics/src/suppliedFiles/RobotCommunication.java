@@ -15,6 +15,15 @@ import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.annotation.*;
 
+import robot.comm.JsonRequest;
+import robot.comm.KeepAliveTransport;
+import robot.comm.ReplyBuffer;
+import robot.comm.ResponseDecoder;
+import robot.comm.RobotLink;
+import robot.comm.Transport;
+import robot.metrics.Histogram;
+import robot.metrics.Metrics;
+
 /**
  * Simple example of a robot communication interface to the (real or virtual) 
  * robot over a network connection.
@@ -36,28 +45,90 @@ import com.fasterxml.jackson.annotation.*;
  * @author Thomas Johansson, dept. of Computing Science, Ume� University, Ume�, Sweden
  * Mail: thomasj@cs.umu.se
  */
-public class RobotCommunication
+public class RobotCommunication implements RobotLink
 {
-   private final String host;
-   private final int port;
+   private final Transport transport;
    private final ObjectMapper mapper;
+   private final ResponseDecoder decoder = new ResponseDecoder();
+
+   // Localization and laser replies are read straight into the responses
+   // unless this is turned off, then all replies go through a Map
+   private boolean typedDecoding = true;
+
+   // Set by setMetrics, null while metrics are off
+   private Histogram encodes;
+   private Histogram decodes;
+
+   // Per thread buffer for requests that write their own JSON
+   private final ThreadLocal<byte[]> jsonBuffer = new ThreadLocal<byte[]>()
+   {
+      @Override
+      protected byte[] initialValue()
+      {
+         return new byte[JsonRequest.MAX_JSON_LENGTH];
+      }
+   };
+
+   // Per thread buffer the replies are read into, it grows to the longest
+   private final ThreadLocal<ReplyBuffer> replyBuffer = new ThreadLocal<ReplyBuffer>()
+   {
+      @Override
+      protected ReplyBuffer initialValue()
+      {
+         return new ReplyBuffer(8192);
+      }
+   };
 
    /**
     * Create a new communications object.
     * Normally the host is 'localhost' and the port is 500000.
+    * The connections to the robot are kept alive between requests.
     * 
     * @param host
     * @param port
     */
    public RobotCommunication(String host, int port)
    {
-      this.host = host;
-      this.port = port;
+      this(new KeepAliveTransport(host, port));
+   }
+
+   /**
+    * Create a new communications object on top of the given transport.
+    * 
+    * @param transport the connection to the web server
+    */
+   public RobotCommunication(Transport transport)
+   {
+      this.transport = transport;
 
       // This is used by the JSON library to convert to/from JSON
       mapper = new ObjectMapper();
    }
 
+   /**
+    * Record how long it takes to write every request as JSON into
+    * json.encode and to read every reply into json.decode. Must be called
+    * before the first request.
+    * @param metrics the registry to record into
+    */
+   public void setMetrics(Metrics metrics)
+   {
+      encodes = metrics.histogram("json.encode");
+      decodes = metrics.histogram("json.decode");
+   }
+
+   /**
+    * Choose how localization and laser replies are read. Typed decoding
+    * reads them with a streaming parser into the primitive fields of the
+    * responses, so no Map or boxed numbers are made for them. Other
+    * responses are always read into a Map.
+    * @param typed true to decode typed, the default, false to use a Map
+    */
+   public void setTypedDecoding(boolean typed)
+   {
+      this.typedDecoding = typed;
+   }
+
    /**
     * Send a request to the robot.
     * @param r request to send
@@ -66,30 +137,25 @@ public class RobotCommunication
     */
    public int putRequest(Request r) throws Exception
    {
-      URL url = new URL(host + ":" + port + r.getPath());
-
-      HttpURLConnection connection = (HttpURLConnection)url.openConnection();
-
-      connection.setDoOutput(true);
-
-      connection.setRequestMethod("POST");
-      connection.setRequestProperty("Content-Type", "application/json");
-      connection.setUseCaches (false);
-
-      OutputStreamWriter out = new OutputStreamWriter(
-            connection.getOutputStream());
+      if (r instanceof JsonRequest)
+      {
+         // the request writes itself, no Map or String is created
+         byte[] buffer = jsonBuffer.get();
+         long start = System.nanoTime();
+         int length = ((JsonRequest)r).writeJson(buffer);
+         if (encodes != null)
+            encodes.record(System.nanoTime() - start);
+         return transport.post(r.getPath(), buffer, 0, length);
+      }
 
       // construct a JSON string
-      String json = mapper.writeValueAsString(r.getData());
+      long start = System.nanoTime();
+      byte[] json = mapper.writeValueAsBytes(r.getData());
+      if (encodes != null)
+         encodes.record(System.nanoTime() - start);
 
-      // write it to the web server
-      out.write(json);
-      out.close();
-
-      // wait for response code
-      int rc = connection.getResponseCode();
-
-      return rc;
+      // write it to the web server and wait for response code
+      return transport.post(r.getPath(), json, 0, json.length);
    }
 
    /**
@@ -100,22 +166,37 @@ public class RobotCommunication
     */
    public Response getResponse(Response r) throws Exception
    {
-      URL url = new URL(host + ":" + port + r.getPath());
-
-      // open a connection to the web server and then get the resulting data
-      URLConnection connection = url.openConnection();
-      BufferedReader in = new BufferedReader(new InputStreamReader(
-            connection.getInputStream()));
+      // the transport reads the whole reply so the connection can be reused
+      ReplyBuffer reply = replyBuffer.get();
+      transport.get(r.getPath(), reply);
+      byte[] body = reply.getBuffer();
 
-      // map it to a Java Map
-      Map<String, Object> data = mapper.readValue(in, Map.class);
-      r.setData(data);
-
-      in.close();
+      long start = System.nanoTime();
+      if (typedDecoding && r instanceof LocalizationResponse)
+         decoder.decode(body, reply.size(), (LocalizationResponse)r);
+      else if (typedDecoding && r instanceof LaserEchoesResponse)
+         decoder.decode(body, reply.size(), (LaserEchoesResponse)r);
+      else
+      {
+         // map it to a Java Map
+         Map<String, Object> data = mapper.readValue(body, 0, reply.size(),
+               Map.class);
+         r.setData(data);
+      }
+      if (decodes != null)
+         decodes.record(System.nanoTime() - start);
 
       return r;
    }
 
+   /**
+    * Close the connections to the robot.
+    */
+   public void close()
+   {
+      transport.close();
+   }
+
 
 //   /**
 //    * Send a request for an action to the robot. The request must be correctly formatted JSON.